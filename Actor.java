@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.List;
 /**
  * An Interface for things that act.
@@ -8,9 +9,21 @@ import java.util.List;
 public interface Actor
 {
     /**
-     * Method for an Actor's actions in a step.
+     * Method for an Actor's actions in a step, in the given time and weather.
      */
-    abstract void act(List<Actor> newActors);
+    abstract void act(List<Actor> newActors, Environment environment);
+    
+    /**
+     * Method for an Actor's actions in a step outside its active hours,
+     * which are only ageing and perhaps getting hungrier.
+     */
+    void rest(Environment environment);
+    
+    /**
+     * A method that will return the hours of the day, as an
+     * Environment.hours() mask, in which the Actor is active.
+     */
+    int getActiveHours();
     
     /**
      * A method that would return whether the Actor is alive.
@@ -32,6 +45,11 @@ public interface Actor
      */
     void setLocation(Location location);
     
+    /**
+     * A method that will return the Actor's cell id, or -1 if it has none.
+     */
+    int getCell();
+    
     /**
      * A method that will return the Actor's current field
      */
@@ -47,6 +65,17 @@ public interface Actor
      */
     boolean canBreed();
     
+    /**
+     * A method that will write the Actor's own state to a checkpoint.
+     * Its species and cell are written by the checkpoint.
+     */
+    void saveState(Checkpoint checkpoint) throws IOException;
+    
+    /**
+     * A method that will read back the state written by saveState.
+     */
+    void restoreState(Checkpoint checkpoint) throws IOException;
+    
     
     
     
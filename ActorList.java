@@ -0,0 +1,220 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.function.Predicate;
+
+/**
+ * An array-backed list of actors that is cheap to clean up.
+ * Instead of removing dead actors one at a time, which costs O(n) each
+ * on an ArrayList, the simulator lets every actor act and then removes
+ * all the dead ones with a single compacting pass. swapRemove offers
+ * O(1) removal when order does not matter.
+ * The list can be cleared and reused, so newborn buffers need not be
+ * allocated afresh every step.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class ActorList extends AbstractList<Actor> implements RandomAccess
+{
+    // The capacity of a new list.
+    private static final int INITIAL_CAPACITY = 64;
+
+    // The actors; only the first size entries are in use.
+    private Actor[] actors;
+    // The number of actors in the list.
+    private int size;
+
+    /**
+     * Create an empty list.
+     */
+    public ActorList()
+    {
+        actors = new Actor[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Return the actor at a position.
+     * @param index The position.
+     * @return The actor.
+     */
+    public Actor get(int index)
+    {
+        checkIndex(index, size);
+        return actors[index];
+    }
+
+    /**
+     * Replace the actor at a position.
+     * @param index The position.
+     * @param actor The new actor.
+     * @return The actor that was replaced.
+     */
+    public Actor set(int index, Actor actor)
+    {
+        checkIndex(index, size);
+        Actor previous = actors[index];
+        actors[index] = actor;
+        return previous;
+    }
+
+    /**
+     * @return The number of actors in the list.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Insert an actor at a position. Adding at the end is O(1).
+     * @param index The position.
+     * @param actor The actor to insert.
+     */
+    public void add(int index, Actor actor)
+    {
+        checkIndex(index, size + 1);
+        ensureCapacity(size + 1);
+        System.arraycopy(actors, index, actors, index + 1, size - index);
+        actors[index] = actor;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Append all the actors of a collection.
+     * @param others The actors to append.
+     * @return true if the list changed.
+     */
+    public boolean addAll(Collection<? extends Actor> others)
+    {
+        if(others instanceof ActorList) {
+            ActorList list = (ActorList) others;
+            ensureCapacity(size + list.size);
+            System.arraycopy(list.actors, 0, actors, size, list.size);
+            size += list.size;
+            modCount++;
+            return list.size > 0;
+        }
+        return super.addAll(others);
+    }
+
+    /**
+     * Remove the actor at a position, keeping the others in order.
+     * @param index The position.
+     * @return The actor removed.
+     */
+    public Actor remove(int index)
+    {
+        checkIndex(index, size);
+        Actor removed = actors[index];
+        System.arraycopy(actors, index + 1, actors, index, size - index - 1);
+        actors[--size] = null;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Remove the actor at a position in O(1) by moving the last actor
+     * into its place. The order of the list is not kept.
+     * @param index The position.
+     * @return The actor removed.
+     */
+    public Actor swapRemove(int index)
+    {
+        checkIndex(index, size);
+        Actor removed = actors[index];
+        actors[index] = actors[size - 1];
+        actors[--size] = null;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Remove every actor that is no longer alive, in one pass,
+     * keeping the living actors in order.
+     * @return The number of actors removed.
+     */
+    public int compact()
+    {
+        return compact(actor -> !actor.isAlive());
+    }
+
+    /**
+     * Remove every actor that is no longer alive, in one pass, putting
+     * them in a pool to be reused for newborns.
+     * @param pool The pool to keep the dead actors in.
+     * @return The number of actors removed.
+     */
+    public int compact(ActorPool pool)
+    {
+        return compact(pool::reclaim);
+    }
+
+    /**
+     * Remove every actor matching a condition, in one pass.
+     * @param filter The condition.
+     * @return true if any actor was removed.
+     */
+    public boolean removeIf(Predicate<? super Actor> filter)
+    {
+        return compact(filter) > 0;
+    }
+
+    /**
+     * Empty the list, keeping its capacity for reuse.
+     */
+    public void clear()
+    {
+        Arrays.fill(actors, 0, size, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Remove every actor matching a condition, keeping the others in order.
+     * @param filter The condition.
+     * @return The number of actors removed.
+     */
+    private int compact(Predicate<? super Actor> filter)
+    {
+        int kept = 0;
+        for(int i = 0; i < size; i++) {
+            Actor actor = actors[i];
+            if(!filter.test(actor)) {
+                actors[kept++] = actor;
+            }
+        }
+        int removed = size - kept;
+        if(removed > 0) {
+            Arrays.fill(actors, kept, size, null);
+            size = kept;
+            modCount++;
+        }
+        return removed;
+    }
+
+    /**
+     * Make room for at least the given number of actors.
+     * @param capacity The number of actors needed.
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if(capacity > actors.length) {
+            actors = Arrays.copyOf(actors, Math.max(capacity, actors.length * 2));
+        }
+    }
+
+    /**
+     * Check that a position lies within bounds.
+     * @param index The position.
+     * @param limit One more than the largest valid position.
+     */
+    private static void checkIndex(int index, int limit)
+    {
+        if(index < 0 || index >= limit) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + (limit));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keep dead actors so that their objects can be used again for newborns
+ * of the same species, instead of being left to the garbage collector.
+ * Every species has a shelf of dead actors. The simulator puts actors on
+ * the shelves as it removes the dead from its lists, and giveBirth takes
+ * one off, resetting it as if it had just been created.
+ *
+ * An actor is only put on a shelf once nothing else refers to it: it has
+ * left the field and been removed from the lists of actors. Shelves are
+ * only filled between the phases of a step, on the simulation thread,
+ * but tiles of a parallel step may take actors off them at the same
+ * time, so taking is atomic. A shelf holds at most MAX_SHELVED actors;
+ * beyond that dead actors are dropped as before.
+ *
+ * Which object a tile takes depends on how the tiles' threads happen to
+ * interleave, so a run stays reproducible only because the object's
+ * past cannot show: reset gives every field of an actor a fresh value,
+ * and nothing outside the pool still holds a shelved actor. In
+ * particular the front of an EpidemicLayer drops its dead animals when
+ * it spreads, at the start of a step, before any actor of the step can
+ * be taken off a shelf.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class ActorPool
+{
+    // The largest number of dead actors kept for a species.
+    public static final int MAX_SHELVED = 1 << 16;
+    // The capacity of a new shelf.
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * The dead actors of one species, taken from the top.
+     */
+    private static class Shelf
+    {
+        // The actors; only the first size entries are on the shelf.
+        Actor[] actors = new Actor[INITIAL_CAPACITY];
+        // The number of actors on the shelf.
+        final AtomicInteger size = new AtomicInteger();
+    }
+
+    // The shelf of each species, by species number, made when the first
+    // actor of the species is put on it.
+    private final Shelf[] shelves;
+
+    /**
+     * Create a pool with every shelf empty.
+     */
+    public ActorPool()
+    {
+        shelves = new Shelf[Species.MAX_SPECIES + 1];
+    }
+
+    /**
+     * Put an actor on its species' shelf if it is dead. Used as the
+     * condition when compacting a list of actors. The shelf is grown and
+     * its size written without synchronisation, so this must only be
+     * called on the simulation thread while no tiles are running.
+     * @param actor An actor being removed from its list if dead.
+     * @return True if the actor is dead.
+     */
+    public boolean reclaim(Actor actor)
+    {
+        if(actor.isAlive()) {
+            return false;
+        }
+        int species = Species.of(actor);
+        Shelf shelf = shelves[species];
+        if(shelf == null) {
+            shelf = new Shelf();
+            shelves[species] = shelf;
+        }
+        int size = shelf.size.get();
+        if(size < MAX_SHELVED) {
+            if(size == shelf.actors.length) {
+                shelf.actors = Arrays.copyOf(shelf.actors, size * 2);
+            }
+            shelf.actors[size] = actor;
+            shelf.size.set(size + 1);
+        }
+        return true;
+    }
+
+    /**
+     * Take a dead actor of a species off its shelf, to be reset.
+     * @param type The class of the species.
+     * @return The actor, or null if there is none.
+     */
+    public <T extends Actor> T take(Class<T> type)
+    {
+        Shelf shelf = shelves[Species.of(type)];
+        if(shelf == null) {
+            return null;
+        }
+        int size;
+        do {
+            size = shelf.size.get();
+            if(size == 0) {
+                return null;
+            }
+        } while(!shelf.size.compareAndSet(size, size - 1));
+        // The slot is this caller's alone until the shelf is filled again.
+        Actor actor = shelf.actors[size - 1];
+        shelf.actors[size - 1] = null;
+        return type.cast(actor);
+    }
+
+    /**
+     * @param species A species number.
+     * @return The number of dead actors of the species on its shelf.
+     */
+    public int getShelved(int species)
+    {
+        Shelf shelf = shelves[species];
+        return shelf == null ? 0 : shelf.size.get();
+    }
+
+    /**
+     * Drop every dead actor kept. Like reclaim, only call this while no
+     * tiles are running.
+     */
+    public void clear()
+    {
+        Arrays.fill(shelves, null);
+    }
+}
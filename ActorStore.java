@@ -0,0 +1,505 @@
+import java.util.Random;
+
+/**
+ * A structure-of-arrays simulation for very large populations.
+ * Instead of one object per animal, each species keeps its animals in
+ * primitive columns (see SpeciesColumns) and is processed by one tight
+ * loop driven by its entry in a SpeciesBehaviour table. The field is an
+ * int plane naming the species and slot in each cell, and grass is a
+ * byte plane beneath it that grazers eat and that slowly regrows.
+ *
+ * The store is a standalone approximation of the simulation, run by
+ * its own main method; Simulator does not use it, and its results are
+ * not those of a Simulator run. The animals' rules follow the animal
+ * classes: animals age, and while active they breed with an
+ * opposite-sex neighbour of their species, eat adjacent prey (or grass)
+ * and move, dying of overcrowding if they cannot. While inactive they
+ * only get hungrier now and then. Each species runs the infection roll
+ * as its behaviour says (never, while active, or every step): a high
+ * roll sets the infection level of every neighbour, and a very high one
+ * kills the animal. There is no Environment, though: the hours follow
+ * the step number and there is no weather; there is no epidemic or
+ * vegetation layer; and a fixed share of random cells regrows grass
+ * each step in place of Grass growing and spreading with the rain.
+ * Each species draws from its own stream derived from the seed and
+ * the step, so runs are reproducible.
+ *
+ * Usage: java ActorStore [steps [depth width]]
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class ActorStore
+{
+    // The number of bits of an occupant entry holding the slot.
+    private static final int SLOT_BITS = 26;
+    // The mask selecting the slot of an occupant entry, and the largest slot.
+    static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+    // Row and column offsets of the eight neighbours of a cell.
+    private static final int[] ROW_OFFSETS = { -1, -1, -1, 0, 0, 1, 1, 1 };
+    private static final int[] COL_OFFSETS = { -1, 0, 1, -1, 1, -1, 0, 1 };
+    // The probabilities of creating each species in a cell, in table order.
+    private static final double[] CREATION_PROBABILITIES = { 0.07, 0.11, 0.08, 0.12, 0.16 };
+    // The order species are tried in when populating, as in Simulator.populate.
+    private static final int[] CREATION_ORDER = {
+        SpeciesBehaviour.TIGER, SpeciesBehaviour.BEAR, SpeciesBehaviour.LION,
+        SpeciesBehaviour.ZEBRA, SpeciesBehaviour.DEER
+    };
+    // The probability of a cell starting with grass.
+    private static final double GRASS_CREATION_PROBABILITY = 0.6;
+    // The fraction of cells that regrow grass each step.
+    private static final double GRASS_REGROWTH = 0.01;
+    // Infection rolls above this infect the neighbours.
+    private static final double INFECTION_THRESHOLD = 0.75;
+    // Infection rolls above this kill the animal.
+    private static final double INFECTION_DEATH_THRESHOLD = 0.99;
+    // The infection level given to an infected neighbour, as in Animal.
+    private static final float INFECTED_LEVEL = 0.8f;
+
+    // The depth and width of the field.
+    private final int depth, width;
+    // The species and slot in each cell, see encode; 0 for an empty cell.
+    private final int[] occupant;
+    // Whether each cell has grass.
+    private final byte[] grass;
+    // The behaviour of each species.
+    private final SpeciesBehaviour[] behaviours;
+    // The animals of each species.
+    private final SpeciesColumns[] columns;
+    // The seed the random streams are derived from.
+    private final long seed;
+    // Scratch buffers for neighbour cells.
+    private final int[] adjacent = new int[8];
+    private final int[] free = new int[8];
+    // The current step.
+    private int step;
+
+    /**
+     * Create an empty store using the default behaviour table.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param seed The seed the random streams are derived from.
+     */
+    public ActorStore(int depth, int width, long seed)
+    {
+        this(depth, width, seed, SpeciesBehaviour.defaults());
+    }
+
+    /**
+     * Create an empty store.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param seed The seed the random streams are derived from.
+     * @param behaviours The behaviour of each species.
+     */
+    public ActorStore(int depth, int width, long seed, SpeciesBehaviour[] behaviours)
+    {
+        if((1 << (31 - SLOT_BITS)) <= behaviours.length) {
+            throw new IllegalArgumentException("Too many species: " + behaviours.length);
+        }
+        this.depth = depth;
+        this.width = width;
+        this.seed = seed;
+        this.behaviours = behaviours;
+        occupant = new int[depth * width];
+        grass = new byte[depth * width];
+        columns = new SpeciesColumns[behaviours.length];
+        for(int species = 0; species < columns.length; species++) {
+            columns[species] = new SpeciesColumns();
+        }
+    }
+
+    /**
+     * Run a simulation from the command line and print the final population.
+     * @param args The number of steps, optionally followed by the field size.
+     */
+    public static void main(String[] args)
+    {
+        int numSteps = args.length >= 1 ? Integer.parseInt(args[0]) : 1000;
+        int depth = args.length >= 3 ? Integer.parseInt(args[1]) : 80;
+        int width = args.length >= 3 ? Integer.parseInt(args[2]) : 120;
+        ActorStore store = new ActorStore(depth, width, Randomizer.getSeed());
+        store.populate();
+        long start = System.nanoTime();
+        for(int i = 0; i < numSteps && store.isViable(); i++) {
+            store.step();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.println("Steps: " + store.getStep() + " (" + (elapsed / 1000000) + " ms)");
+        System.out.println("Population: " + store.getPopulationDetails());
+    }
+
+    /**
+     * Randomly populate the field using the default creation probabilities
+     * of the default behaviour table.
+     */
+    public void populate()
+    {
+        Random rand = Randomizer.stream(seed, -1);
+        for(int cell = 0; cell < occupant.length; cell++) {
+            boolean placed = false;
+            for(int i = 0; i < CREATION_ORDER.length && !placed; i++) {
+                int species = CREATION_ORDER[i];
+                if(species < behaviours.length
+                   && rand.nextDouble() <= CREATION_PROBABILITIES[species]) {
+                    SpeciesBehaviour behaviour = behaviours[species];
+                    add(species, cell, rand.nextInt(behaviour.getMaxAge()),
+                        rand.nextInt(behaviour.getFoodValue()), rand);
+                    placed = true;
+                }
+            }
+            if(!placed && rand.nextDouble() <= GRASS_CREATION_PROBABILITY) {
+                grass[cell] = 1;
+            }
+        }
+    }
+
+    /**
+     * Add an animal to an empty cell.
+     * @param species The species index.
+     * @param cell The cell.
+     * @param age The animal's age.
+     * @param food The animal's food level.
+     * @param rand The stream to draw the animal's sex and infection from.
+     * @throws IllegalStateException If the species has no free slot.
+     */
+    public void add(int species, int cell, int age, int food, Random rand)
+    {
+        float infection = (float) rand.nextDouble();
+        boolean female = rand.nextInt(2) == 1;
+        int slot = columns[species].add(cell, age, food, female, infection);
+        occupant[cell] = encode(species, slot);
+    }
+
+    /**
+     * Run one step: each species in turn, then the removal of the
+     * dead and the regrowth of grass.
+     */
+    public void step()
+    {
+        step++;
+        int time = step % 24;
+        for(int species = 0; species < behaviours.length; species++) {
+            processSpecies(species, time, Randomizer.stream(seed, step, species));
+        }
+        for(int species = 0; species < columns.length; species++) {
+            columns[species].compact(occupant, species);
+        }
+        regrowGrass(Randomizer.stream(seed, step, behaviours.length));
+    }
+
+    /**
+     * Return the number of living animals of a species.
+     * @param species The species index.
+     * @return The number alive.
+     */
+    public int getCount(int species)
+    {
+        SpeciesColumns animals = columns[species];
+        int count = 0;
+        for(int slot = 0; slot < animals.size; slot++) {
+            if(animals.alive[slot]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Determine whether the simulation should continue to run.
+     * @return true If there is more than one species alive.
+     */
+    public boolean isViable()
+    {
+        int nonZero = 0;
+        for(int species = 0; species < columns.length; species++) {
+            if(getCount(species) > 0) {
+                nonZero++;
+            }
+        }
+        return nonZero > 1;
+    }
+
+    /**
+     * Get details of the current population.
+     * @return A string describing the number of each species alive.
+     */
+    public String getPopulationDetails()
+    {
+        StringBuilder buffer = new StringBuilder();
+        for(int species = 0; species < behaviours.length; species++) {
+            buffer.append(behaviours[species].getName());
+            buffer.append(": ");
+            buffer.append(getCount(species));
+            buffer.append(' ');
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * @return The current step.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * Encode a species and slot as an occupant entry.
+     * @param species The species index.
+     * @param slot The slot in the species' columns.
+     * @return The occupant entry, never 0.
+     */
+    static int encode(int species, int slot)
+    {
+        return ((species << SLOT_BITS) | slot) + 1;
+    }
+
+    /**
+     * Let every animal of one species that was alive at the start of the
+     * step act. Animals born during the loop wait for the next step.
+     * @param species The species index.
+     * @param time The hour of the day.
+     * @param rand The species' stream for this step.
+     */
+    private void processSpecies(int species, int time, Random rand)
+    {
+        SpeciesBehaviour behaviour = behaviours[species];
+        SpeciesColumns animals = columns[species];
+        boolean active = behaviour.isActive(time);
+        int maxAge = behaviour.getMaxAge();
+        double dormantHunger = behaviour.getDormantHungerProbability();
+        int infection = behaviour.getInfection();
+        int count = animals.size;
+        for(int slot = 0; slot < count; slot++) {
+            if(!animals.alive[slot]) {
+                continue;
+            }
+            if(++animals.age[slot] > maxAge) {
+                kill(species, slot);
+                continue;
+            }
+            if(infection == SpeciesBehaviour.INFECTION_ALWAYS
+               && runInfection(species, slot, rand)) {
+                continue;
+            }
+            if(active) {
+                if(animals.food[slot] > 0) {
+                    giveBirth(species, slot, rand);
+                }
+                int newCell = findFood(species, slot, rand);
+                if(newCell < 0) {
+                    int freeCount = freeAdjacentCells(animals.cell[slot], free, rand);
+                    newCell = freeCount > 0 ? free[0] : -1;
+                }
+                if(newCell >= 0) {
+                    occupant[animals.cell[slot]] = 0;
+                    occupant[newCell] = encode(species, slot);
+                    animals.cell[slot] = newCell;
+                }
+                else {
+                    // Overcrowding.
+                    kill(species, slot);
+                    continue;
+                }
+                if(infection == SpeciesBehaviour.INFECTION_WHILE_ACTIVE
+                   && runInfection(species, slot, rand)) {
+                    continue;
+                }
+                if(--animals.food[slot] <= 0) {
+                    kill(species, slot);
+                }
+            }
+            else if(dormantHunger > 0 && rand.nextDouble() < dormantHunger) {
+                if(--animals.food[slot] <= 0) {
+                    kill(species, slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Breed if there is a mate next to the animal, placing the young
+     * into free adjacent cells.
+     * @param species The species index.
+     * @param slot The animal's slot.
+     * @param rand The species' stream.
+     */
+    private void giveBirth(int species, int slot, Random rand)
+    {
+        SpeciesBehaviour behaviour = behaviours[species];
+        SpeciesColumns animals = columns[species];
+        int here = animals.cell[slot];
+        int freeCount = freeAdjacentCells(here, free, rand);
+        if(!findMate(species, slot, rand)) {
+            return;
+        }
+        if(animals.age[slot] >= behaviour.getBreedingAge()
+           && rand.nextDouble() <= behaviour.getBreedingProbability()) {
+            int births = rand.nextInt(behaviour.getMaxLitterSize()) + 1;
+            for(int b = 0; b < births && b < freeCount; b++) {
+                add(species, free[b], 0, behaviour.getFoodValue(), rand);
+            }
+        }
+    }
+
+    /**
+     * Look for an opposite-sex neighbour of the same species that is
+     * old enough to breed.
+     * @param species The species index.
+     * @param slot The animal's slot.
+     * @param rand The species' stream.
+     * @return true if there is a mate.
+     */
+    private boolean findMate(int species, int slot, Random rand)
+    {
+        SpeciesColumns animals = columns[species];
+        int breedingAge = behaviours[species].getBreedingAge();
+        byte sex = animals.female[slot];
+        int count = adjacentCells(animals.cell[slot], adjacent, rand);
+        for(int i = 0; i < count; i++) {
+            int entry = occupant[adjacent[i]];
+            if(entry != 0 && ((entry - 1) >>> SLOT_BITS) == species) {
+                int other = (entry - 1) & SLOT_MASK;
+                if(animals.female[other] != sex && animals.age[other] >= breedingAge) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Look for prey (or grass) adjacent to the animal. The first that is
+     * found is eaten.
+     * @param species The species index.
+     * @param slot The animal's slot.
+     * @param rand The species' stream.
+     * @return The cell where food was found, or -1 if it wasn't.
+     */
+    private int findFood(int species, int slot, Random rand)
+    {
+        SpeciesBehaviour behaviour = behaviours[species];
+        SpeciesColumns animals = columns[species];
+        int prey = behaviour.getPrey();
+        int count = adjacentCells(animals.cell[slot], adjacent, rand);
+        for(int i = 0; i < count; i++) {
+            int where = adjacent[i];
+            int entry = occupant[where];
+            if(prey == SpeciesBehaviour.GRAZER) {
+                if(entry == 0 && grass[where] != 0) {
+                    grass[where] = 0;
+                    animals.food[slot] = behaviour.getFoodValue();
+                    return where;
+                }
+            }
+            else if(entry != 0 && ((entry - 1) >>> SLOT_BITS) == prey) {
+                kill(prey, (entry - 1) & SLOT_MASK);
+                animals.food[slot] = behaviour.getFoodValue();
+                return where;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Run the infection roll: a high roll infects every neighbour, and
+     * a very high one kills the animal.
+     * @param species The species index.
+     * @param slot The animal's slot.
+     * @param rand The species' stream.
+     * @return true if the animal died.
+     */
+    private boolean runInfection(int species, int slot, Random rand)
+    {
+        double roll = rand.nextDouble();
+        if(roll > INFECTION_THRESHOLD) {
+            int count = adjacentCells(columns[species].cell[slot], adjacent, rand);
+            for(int i = 0; i < count; i++) {
+                int entry = occupant[adjacent[i]];
+                if(entry != 0) {
+                    columns[(entry - 1) >>> SLOT_BITS].infection[(entry - 1) & SLOT_MASK] = INFECTED_LEVEL;
+                }
+            }
+        }
+        if(roll > INFECTION_DEATH_THRESHOLD) {
+            kill(species, slot);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Mark an animal dead and clear its cell. It is removed from its
+     * columns at the end of the step.
+     * @param species The species index.
+     * @param slot The animal's slot.
+     */
+    private void kill(int species, int slot)
+    {
+        SpeciesColumns animals = columns[species];
+        animals.alive[slot] = false;
+        occupant[animals.cell[slot]] = 0;
+    }
+
+    /**
+     * Regrow grass on a fraction of the cells, chosen at random.
+     * @param rand The stream to draw from.
+     */
+    private void regrowGrass(Random rand)
+    {
+        int regrowth = (int) (occupant.length * GRASS_REGROWTH);
+        for(int i = 0; i < regrowth; i++) {
+            grass[rand.nextInt(occupant.length)] = 1;
+        }
+    }
+
+    /**
+     * Fill the buffer with the cells adjacent to the given one, in a
+     * random order, as Field.adjacentCells does.
+     * @param cell The cell.
+     * @param buffer Receives the adjacent cells.
+     * @param rand The stream to shuffle with.
+     * @return The number of adjacent cells.
+     */
+    private int adjacentCells(int cell, int[] buffer, Random rand)
+    {
+        int row = cell / width;
+        int col = cell % width;
+        int count = 0;
+        for(int i = 0; i < ROW_OFFSETS.length; i++) {
+            int nextRow = row + ROW_OFFSETS[i];
+            int nextCol = col + COL_OFFSETS[i];
+            if(nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width) {
+                buffer[count++] = nextRow * width + nextCol;
+            }
+        }
+        for(int i = count; i > 1; i--) {
+            int j = rand.nextInt(i);
+            int tmp = buffer[i - 1];
+            buffer[i - 1] = buffer[j];
+            buffer[j] = tmp;
+        }
+        return count;
+    }
+
+    /**
+     * Fill the buffer with the free cells adjacent to the given one,
+     * in a random order.
+     * @param cell The cell.
+     * @param buffer Receives the free adjacent cells.
+     * @param rand The stream to shuffle with.
+     * @return The number of free adjacent cells.
+     */
+    private int freeAdjacentCells(int cell, int[] buffer, Random rand)
+    {
+        int count = adjacentCells(cell, buffer, rand);
+        int freeCount = 0;
+        for(int i = 0; i < count; i++) {
+            if(occupant[buffer[i]] == 0) {
+                buffer[freeCount++] = buffer[i];
+            }
+        }
+        return freeCount;
+    }
+}
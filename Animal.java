@@ -1,6 +1,6 @@
+import java.io.IOException;
 import java.util.List;
 import java.util.Random;
-import java.util.Iterator;
 
 /**
  * A class representing shared characteristics of animals.
@@ -16,6 +16,8 @@ public abstract class Animal implements Actor
     private Field field;
     // The animal's gender
     private int female;
+    // The animal's species number.
+    private final int species;
 
     // The age at which an Animal can start to breed.
     private int BREEDING_AGE;
@@ -30,20 +32,33 @@ public abstract class Animal implements Actor
     protected int age;
     // The Animal's food level, which is increased by eating zebras.
     protected int foodLevel;
+    // Minimum food level for the Animal to reproduce.
+    protected int breedingFoodLevel;
     // Animal's infection level
-    private Double infection;
+    private double infection;
 
-    // The animal's position in the field.
-    private Location location;
+    // The animal's cell in the field, or -1 if it has none.
+    private int cell = -1;
     private static final Random rand = Randomizer.getRandom();
 
     /**
-     * Create a new animal at location in field.
+     * Create an animal of the subclass's species. The subclass's
+     * constructor then gives it a place and a state with reset.
+     */
+    protected Animal()
+    {
+        species = Species.of(getClass());
+    }
+    
+    /**
+     * Make the animal a new animal in a cell of field: alive, with a
+     * random infection level and sex. Used both for a new object and
+     * for a dead animal's object taken from the field's actor pool.
      * 
      * @param field The field currently occupied.
-     * @param location The location within the field.
+     * @param newCell The cell id within the field.
      */
-    public Animal(Field field, Location location, int breedingAge, int maxAge, double breedingProbability, int maxLitterSize)
+    protected void reset(Field field, int newCell, int breedingAge, int maxAge, double breedingProbability, int maxLitterSize)
     {
         alive = true;
         this.BREEDING_AGE = breedingAge;
@@ -51,18 +66,17 @@ public abstract class Animal implements Actor
         this.BREEDING_PROBABILITY = breedingProbability;
         this.MAX_LITTER_SIZE = maxLitterSize;
         infection = rand.nextDouble();
-        this.age = age;
-        this.foodLevel = foodLevel;
         female = rand.nextInt(2);
         this.field = field;
-        setLocation(location);
+        cell = -1;
+        setCell(newCell);
     }
     
     /**
      * Whether the Animal has been infected or not
-     * @return Double infection  True for an infected animal.
+     * @return double infection  The Animal's infection level.
      */
-    public Double isInfected() {
+    public double isInfected() {
         return infection;
     }
     
@@ -77,29 +91,34 @@ public abstract class Animal implements Actor
     * Make this animal act - that is: make it do
     * whatever it wants/needs to do.
     * @param newAnimals A list to receive newly born animals.
+    * @param environment The time and weather of the current step.
     */
-    abstract public void act(List<Actor> newAnimals);
+    abstract public void act(List<Actor> newAnimals, Environment environment);
     
     /**
      * Run the infection status of Animals.
      * Generates a random number, then if location isn't null then it checks adjacent locations.
      * For all adjacent locations, it checks for surrounding Animals, and for any alive Animals there's a random chance that they
-     * will be infected.
+     * will be infected. Does nothing if the field has an epidemic layer.
      */
     public void runInfection(List<Actor> newAnimals) {
         Field field = getField();
-        Double random = rand.nextDouble();
-        if (!(this.location==null)) {
-            List<Location> adjacent = field.adjacentLocations(getLocation());
-            Iterator<Location> it = adjacent.iterator();
-            while (it.hasNext()) {
-                Location where = it.next();
-                Object animal = field.getObjectAt(where);
+        if (field != null && field.getEpidemic() != null) {
+            // The field's epidemic layer spreads the disease instead.
+            return;
+        }
+        double random = rand.nextDouble();
+        if (cell >= 0) {
+            int[] adjacent = Field.getAdjacentBuffer();
+            int count = field.adjacentCells(cell, adjacent);
+            for (int i = 0; i < count; i++) {
+                Object animal = field.getObjectAt(adjacent[i]);
                 if (animal instanceof Animal) {
                     Animal animalToInfect = (Animal) animal;
                     if (animalToInfect.isAlive()) {
                         if (random > 0.75) {
                             animalToInfect.setInfection();
+                            field.getEvents().infect();
                         }
                             
                     }
@@ -137,20 +156,23 @@ public abstract class Animal implements Actor
     public void setDead()
     {
         alive = false;
-        if(location != null) {
-            field.clear(location);
-            location = null;
+        if(cell >= 0) {
+            field.clear(cell);
+            cell = -1;
             field = null;
         }
     }
 
     /**
      * Return the animal's location.
-     * @return The animal's location.
+     * @return The animal's location, or null if it has none.
      */
     public Location getLocation()
     {
-        return location;
+        if(cell < 0) {
+            return null;
+        }
+        return field.getLocation(cell);
     }
 
     /**
@@ -159,11 +181,58 @@ public abstract class Animal implements Actor
      */
     public void setLocation(Location newLocation)
     {
-        if(location != null) {
-            field.clear(location);
+        setCell(field.getCell(newLocation.getRow(), newLocation.getCol()));
+    }
+    
+    /**
+     * Return the animal's cell.
+     * @return The animal's cell id, or -1 if it has none.
+     */
+    public int getCell()
+    {
+        return cell;
+    }
+    
+    /**
+     * Place the animal in the new cell of its field.
+     * @param newCell The animal's new cell id.
+     */
+    public void setCell(int newCell)
+    {
+        if(cell >= 0) {
+            field.move(this, cell, newCell);
+        }
+        else {
+            field.place(this, newCell);
         }
-        location = newLocation;
-        field.place(this, newLocation);
+        cell = newCell;
+    }
+
+    /**
+     * Write the animal's age, food level, infection level and sex to a
+     * checkpoint.
+     * @param checkpoint The checkpoint being written.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void saveState(Checkpoint checkpoint) throws IOException
+    {
+        checkpoint.writeInt(age);
+        checkpoint.writeInt(foodLevel);
+        checkpoint.writeDouble(infection);
+        checkpoint.writeByte(female);
+    }
+    
+    /**
+     * Read back the state written by saveState.
+     * @param checkpoint The checkpoint being read.
+     * @throws IOException If the checkpoint cannot be read.
+     */
+    public void restoreState(Checkpoint checkpoint) throws IOException
+    {
+        age = checkpoint.readInt();
+        foodLevel = checkpoint.readInt();
+        infection = checkpoint.readDouble();
+        female = checkpoint.readByte();
     }
 
     /**
@@ -187,6 +256,72 @@ public abstract class Animal implements Actor
         }
     }
 
+    /**
+     * Graze the field's vegetation layer: eat the grass of the first
+     * free adjacent cell with enough to eat.
+     * @param vegetation The field's vegetation layer.
+     * @param foodValue The food level the grass restores.
+     * @return The cell that was grazed, or -1 if none was.
+     */
+    protected int graze(VegetationLayer vegetation, int foodValue)
+    {
+        int[] adjacent = Field.getAdjacentBuffer();
+        int count = field.adjacentCellsOfSpecies(cell, Species.EMPTY, adjacent);
+        for(int i = 0; i < count; i++) {
+            int where = adjacent[i];
+            if(vegetation.graze(where)) {
+                foodLevel = foodValue;
+                return where;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Pass a step outside the active hours: grow older, and perhaps
+     * hungrier.
+     * @param hungerProbability The chance of getting hungrier.
+     */
+    protected void passTime(double hungerProbability)
+    {
+        incrementAge();
+        if(rand.nextDouble() < hungerProbability) {
+            incrementHunger();
+        }
+    }
+
+    /**
+     * Head for the nearest animal of a species that the animal can
+     * sense beyond its adjacent cells, when the field's sensing radius
+     * is more than one.
+     * @param wanted The species number to look for.
+     * @return The free adjacent cell that brings the animal closest to
+     *         it, or -1 if none was sensed or no free cell is closer.
+     */
+    protected int approach(int wanted)
+    {
+        int radius = field.getSensingRadius();
+        if(radius <= 1) {
+            return -1;
+        }
+        int target = field.nearestOfSpecies(cell, wanted, radius);
+        if(target < 0) {
+            return -1;
+        }
+        int[] free = Field.getFreeBuffer();
+        int count = field.freeAdjacentCells(cell, free);
+        int best = -1;
+        int bestDistance = field.getDistance(cell, target);
+        for(int i = 0; i < count; i++) {
+            int distance = field.getDistance(free[i], target);
+            if(distance < bestDistance) {
+                best = free[i];
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
     /**
      * Increase the age. This could result in the Animal's death, if age goes above the Animal's maximum age.
      */
@@ -226,23 +361,20 @@ public abstract class Animal implements Actor
     
     /**
      * A method that allows Animals to find mates. 
-     * Creates a list of adjacent grid Locations, and checks them to see if there's a non-plant, Animal entity.
-     * If the species is not null, the classes are equal, the gender is opposite to the gender of the Animal this method is called upon,
-     * and the other Animal can breed, then a boolean value of true is returned. Otherwise, false is returned.
+     * Scans the adjacent cells for animals of the same species, using the field's species numbers.
+     * If one of them is of the opposite gender to the Animal this method is called upon,
+     * and can breed, then a boolean value of true is returned. Otherwise, false is returned.
      * @return boolean  Value to confirm whether or not the Animal could find a viable mate.
      */
     public boolean findMate() {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(this.getLocation());
-        for (Location where : adjacent) { // Running through all Locations in the List adjacent.
-            if (field.getObjectAt(where) != null) { // Checks that grid Location is not empty
-                if (!(field.getObjectAt(where) instanceof Grass)) { // Checks that other entity is not Grass
-                    Animal speciesInNextCell = (Animal) field.getObjectAt(where);
-                    if (speciesInNextCell != null && this.getClass().equals(speciesInNextCell.getClass()) && speciesInNextCell.isFemale() != this.isFemale() && speciesInNextCell.canBreed()) { // Checks that there's an Animal in the next cell. Also checks: That the two Animals are the same class, the genders of the two are different and that the other Animal can breed.
-                        return true;          
-                    }
-                }
-            }  
+        int[] adjacent = Field.getAdjacentBuffer();
+        int count = field.adjacentCellsOfSpecies(cell, species, adjacent);
+        for (int i = 0; i < count; i++) { // Running through the adjacent cells holding this species.
+            Animal mate = (Animal) field.getObjectAt(adjacent[i]);
+            if (mate.female != female && mate.canBreed()) { // Checks that the genders of the two are different and that the other Animal can breed.
+                return true;
+            }
         }
         return false;
     }
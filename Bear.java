@@ -1,5 +1,4 @@
 import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
@@ -18,22 +17,12 @@ public class Bear extends Animal
     private static final int DEER_FOOD_VALUE = 20;
     // A shared random number generator to control breeding.
     private static final Random rand = Randomizer.getRandom();
-    
-        // The age at which a Zebra can start to breed.
-    protected static int BREEDING_AGE;
-    // The age to which a Zebra can live.
-    protected static int MAX_AGE;
-    // The likelihood of a Zebra breeding.
-    protected static double BREEDING_PROBABILITY;
-    // The maximum number of births.
-    protected static int MAX_LITTER_SIZE;
-
-    // The Zebra's age.
-    protected int age;
-    // The Zebra's food level, which is increased by eating zebras.
-    protected int foodLevel;
-    
-    protected int breedingFoodLevel;
+    // The species number of the Bear's food.
+    private static final int PREY = Species.of(Deer.class);
+    // The hours of the day in which the Bear is active.
+    private static final int ACTIVE_HOURS = Environment.hours(5, 17);
+    // The chance of a resting Bear getting hungrier in a step.
+    private static final double RESTING_HUNGER = 0.1;
 
     /**
      * Create a Bear. A Bear can be created as a new born (age zero
@@ -45,8 +34,35 @@ public class Bear extends Animal
      */
     public Bear(boolean randomAge, Field field, Location location, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
     {
-        super(field, location, 15, 150, 0.8, 2);
-        breedingFoodLevel = 0;
+        this(randomAge, field, field.getCell(location.getRow(), location.getCol()),
+             BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE);
+    }
+
+    /**
+     * Create a Bear in a cell. A Bear can be created as a new born (age
+     * zero and not hungry) or with a random age and food level.
+     * 
+     * @param randomAge If true, the Bear will have random age and hunger level.
+     * @param field The field currently occupied.
+     * @param cell The cell id within the field.
+     */
+    public Bear(boolean randomAge, Field field, int cell, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
+    {
+        reset(randomAge, field, cell, BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE);
+    }
+
+    /**
+     * Make this Bear a new Bear, as the constructor does. The object
+     * of a dead Bear taken from the field's actor pool is reset to
+     * be born again.
+     * 
+     * @param randomAge If true, the Bear will have random age and hunger level.
+     * @param field The field currently occupied.
+     * @param cell The cell id within the field.
+     */
+    public void reset(boolean randomAge, Field field, int cell, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
+    {
+        reset(field, cell, 15, 150, 0.8, 2);
         if(randomAge) {
             age = rand.nextInt(MAX_AGE);
             foodLevel = rand.nextInt(DEER_FOOD_VALUE);
@@ -63,66 +79,82 @@ public class Bear extends Animal
      * or die of old age.
      * @param field The field currently occupied.
      * @param newBears A list to return newly born Bears.
+     * @param environment The time and weather of the current step.
      */
-    public void act(List<Actor> newBears)
+    public void act(List<Actor> newBears, Environment environment)
     {
+        if (!environment.isActive(ACTIVE_HOURS)) {
+            rest(environment);
+            return;
+        }
         incrementAge();
-        if (Simulator.getTime() >= 5 && Simulator.getTime() <= 17) {
-            if(isAlive()) {
-                if (foodLevel > breedingFoodLevel) {
-                    giveBirth(newBears);
-                }
-                            
-                // Move towards a source of food if found.
-                Location newLocation = findFood();
-                if(newLocation == null) { 
-                    // No food found - try to move to a free location.
-                    newLocation = getField().freeAdjacentLocation(getLocation());
-                }
-                // See if it was possible to move.
-                if(newLocation != null) {
-                    setLocation(newLocation);
-                }
-                else {
-                    // Overcrowding.
-                    setDead();
-                }
-                runInfection(newBears);
-                incrementHunger();
+        if(isAlive()) {
+            if (foodLevel > breedingFoodLevel) {
+                giveBirth(newBears);
             }
-        }
-        else {
-            Double randomVal = rand.nextDouble();
-            if (randomVal < 0.1) {
-                incrementHunger();
+                        
+            // Move towards a source of food if found.
+            int newCell = findFood();
+            if(newCell < 0) { 
+                // No food found - try to move to a free location.
+                newCell = getField().freeAdjacentCell(getCell());
+            }
+            // See if it was possible to move.
+            if(newCell >= 0) {
+                setCell(newCell);
             }
+            else {
+                // Overcrowding.
+                setDead();
+            }
+            runInfection(newBears);
+            incrementHunger();
         }
     }
+
+    /**
+     * Outside its active hours a Bear only ages and sometimes gets
+     * hungrier.
+     * @param environment The time and weather of the current step.
+     */
+    public void rest(Environment environment)
+    {
+        passTime(RESTING_HUNGER);
+    }
+
+    /**
+     * @return The hours of the day in which the Bear is active.
+     */
+    public int getActiveHours()
+    {
+        return ACTIVE_HOURS;
+    }
     
     /**
      * Look for deers adjacent to the current location.
-     * Only the first live deer is eaten.
-     * @return Where food was found, or null if it wasn't.
+     * Only the first live deer is eaten. If there is none, head for the
+     * nearest deer within the field's sensing radius.
+     * @return The cell where food was found or that leads towards it,
+     *         or -1 if there is neither.
      */
-    private Location findFood()
+    private int findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object animal = field.getObjectAt(where);
-            if(animal instanceof Deer) {
-                Deer deer = (Deer) animal;
-                if(deer.isAlive()) { 
-                    deer.setDead();
-                    foodLevel = DEER_FOOD_VALUE;
-                    //System.out.println("Bear eats Deer.");
-                    return where;
-                }
+        int[] adjacent = Field.getAdjacentBuffer();
+        int count = field.adjacentCellsOfSpecies(getCell(), PREY, adjacent);
+        for(int i = 0; i < count; i++) {
+            int where = adjacent[i];
+            Deer deer = (Deer) field.getObjectAt(where);
+            if(deer.isAlive()) { 
+                deer.setDead();
+                field.getEvents().kill();
+                foodLevel = DEER_FOOD_VALUE;
+                //System.out.println("Bear eats Deer.");
+                return where;
             }
         }
-        return null;
+        // Nothing to eat nearby - head for the nearest prey sensed.
+        return approach(PREY);
     }
     
     /**
@@ -135,11 +167,18 @@ public class Bear extends Animal
         // New bears are born into adjacent locations.
         // Get a list of adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+        ActorPool pool = field.getActorPool();
+        int[] free = Field.getFreeBuffer();
+        int freeCount = field.freeAdjacentCells(getCell(), free);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Bear young = new Bear(false, field, loc, 15, 150, 0.7, 2);
+        for(int b = 0; b < births && b < freeCount; b++) {
+            Bear young = pool.take(Bear.class);
+            if(young == null) {
+                young = new Bear(false, field, free[b], 15, 150, 0.7, 2);
+            }
+            else {
+                young.reset(false, field, free[b], 15, 150, 0.7, 2);
+            }
             //Bear young = new Bear(false, field, loc, 15, 150, 0.35, 2);
             newbears.add(young);
         }
@@ -0,0 +1,574 @@
+import java.awt.GraphicsEnvironment;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntSupplier;
+
+/**
+ * A small benchmark harness for the simulation's hot paths.
+ * Each benchmark is warmed up and then measured over several
+ * iterations. For every benchmark the time per operation is reported,
+ * together with the bytes allocated per operation and the garbage
+ * collections that ran while it was measured.
+ *
+ * Usage: java Benchmark [name ...]
+ * With no arguments every benchmark is run. Otherwise only those whose
+ * names start with one of the arguments are run, e.g. "step-120x80"
+ * or "field".
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class Benchmark
+{
+    // Number of unmeasured iterations run before measuring.
+    private static final int WARMUP_ITERATIONS = 5;
+    // Number of measured iterations.
+    private static final int MEASURE_ITERATIONS = 10;
+    // Density of animals in the fields used by the Field and Animal benchmarks.
+    private static final double ANIMAL_DENSITY = 0.5;
+
+    // Sink for benchmark results, so that the work cannot be optimised away.
+    private static long sink;
+    // The real standard output, while benchmarks run with output silenced.
+    private static PrintStream out = System.out;
+
+    /**
+     * A single piece of work to measure.
+     */
+    private interface Workload
+    {
+        /**
+         * Prepare for an iteration. This is not measured.
+         */
+        void setup();
+
+        /**
+         * Run one iteration.
+         * @return The number of operations performed.
+         */
+        int run();
+    }
+
+    /**
+     * Run the benchmarks named on the command line, or all of them.
+     * @param args Prefixes of the benchmark names to run.
+     */
+    public static void main(String[] args)
+    {
+        System.out.println(String.format("%-32s %14s %12s %14s %8s %8s",
+                                         "Benchmark", "ns/op", "+-", "bytes/op", "gc", "gc ms"));
+        benchmarkStep(args, 80, 120, 200);
+        benchmarkStep(args, 1000, 1000, 10);
+        benchmarkStep(args, 4000, 4000, 2);
+        benchmarkStore(args, 80, 120, 200);
+        benchmarkStore(args, 1000, 1000, 10);
+        benchmarkVegetation(args, 4000, 4000);
+        benchmarkField(args);
+        benchmarkSensing(args, 5);
+        benchmarkSensing(args, 20);
+        benchmarkAnimal(args);
+        benchmarkView(args);
+        System.out.println("(sink " + sink + ")");
+    }
+
+    /**
+     * Measure Simulator.simulateOneStep on a headless simulator.
+     * @param args The benchmark name filters.
+     * @param depth Depth of the field.
+     * @param width Width of the field.
+     * @param steps Number of steps per iteration.
+     */
+    private static void benchmarkStep(String[] args, int depth, int width, int steps)
+    {
+        String name = "step-" + width + "x" + depth;
+        if(!selected(args, name)) {
+            return;
+        }
+        Simulator simulator = new Simulator(depth, width, true);
+        run(name, new Workload() {
+            public void setup()
+            {
+                if(!simulator.isViable()) {
+                    simulator.reset();
+                }
+            }
+
+            public int run()
+            {
+                for(int i = 0; i < steps; i++) {
+                    simulator.simulateOneStep();
+                }
+                return steps;
+            }
+        });
+    }
+
+    /**
+     * Measure ActorStore.step, the structure-of-arrays simulation.
+     * @param args The benchmark name filters.
+     * @param depth Depth of the field.
+     * @param width Width of the field.
+     * @param steps Number of steps per iteration.
+     */
+    private static void benchmarkStore(String[] args, int depth, int width, int steps)
+    {
+        String name = "store-step-" + width + "x" + depth;
+        if(!selected(args, name)) {
+            return;
+        }
+        ActorStore[] store = new ActorStore[1];
+        run(name, new Workload() {
+            public void setup()
+            {
+                if(store[0] == null || !store[0].isViable()) {
+                    store[0] = new ActorStore(depth, width, Randomizer.getSeed());
+                    store[0].populate();
+                }
+            }
+
+            public int run()
+            {
+                for(int i = 0; i < steps; i++) {
+                    store[0].step();
+                }
+                return steps;
+            }
+        });
+    }
+
+    /**
+     * Measure VegetationLayer.grow, one step of a vegetation layer in
+     * daylight. Grazing a cell in ten each iteration keeps grass
+     * spreading into bare cells.
+     * @param args The benchmark name filters.
+     * @param depth Depth of the field.
+     * @param width Width of the field.
+     */
+    private static void benchmarkVegetation(String[] args, int depth, int width)
+    {
+        String name = "vegetation-grow-" + width + "x" + depth;
+        if(!selected(args, name)) {
+            return;
+        }
+        VegetationLayer vegetation = new VegetationLayer(depth, width);
+        Random rand = new Random(1);
+        for(int cell = 0; cell < vegetation.getSize(); cell++) {
+            if(rand.nextDouble() < 0.6) {
+                vegetation.plant(cell, rand.nextInt(VegetationLayer.MAX_AGE));
+            }
+        }
+        Environment environment = new Environment();
+        environment.setTime(12);
+        int[] step = new int[1];
+        run(name, new Workload() {
+            public void setup()
+            {
+                for(int cell = step[0] % 10; cell < vegetation.getSize(); cell += 10) {
+                    vegetation.graze(cell);
+                }
+            }
+
+            public int run()
+            {
+                vegetation.grow(environment, 1, step[0]++);
+                return 1;
+            }
+        });
+    }
+
+    /**
+     * Measure the neighbourhood queries of Field.
+     * @param args The benchmark name filters.
+     */
+    private static void benchmarkField(String[] args)
+    {
+        Field field = createField(1000, 1000);
+        int size = field.getSize();
+        int ops = 1000000;
+        Random rand = new Random(1);
+        int[] cells = new int[ops];
+        Location[] locations = new Location[ops];
+        for(int i = 0; i < ops; i++) {
+            cells[i] = rand.nextInt(size);
+            locations[i] = field.getLocation(cells[i]);
+        }
+
+        if(selected(args, "field-adjacentLocations")) {
+            run("field-adjacentLocations", () -> {
+                long total = 0;
+                for(Location location : locations) {
+                    total += field.adjacentLocations(location).size();
+                }
+                sink += total;
+                return ops;
+            });
+        }
+        if(selected(args, "field-getFreeAdjacentLocations")) {
+            run("field-getFreeAdjacentLocations", () -> {
+                long total = 0;
+                for(Location location : locations) {
+                    total += field.getFreeAdjacentLocations(location).size();
+                }
+                sink += total;
+                return ops;
+            });
+        }
+        if(selected(args, "field-adjacentCells")) {
+            run("field-adjacentCells", () -> {
+                int[] buffer = Field.getAdjacentBuffer();
+                long total = 0;
+                for(int cell : cells) {
+                    total += field.adjacentCells(cell, buffer);
+                }
+                sink += total;
+                return ops;
+            });
+        }
+        if(selected(args, "field-freeAdjacentCells")) {
+            run("field-freeAdjacentCells", () -> {
+                int[] buffer = Field.getFreeBuffer();
+                long total = 0;
+                for(int cell : cells) {
+                    total += field.freeAdjacentCells(cell, buffer);
+                }
+                sink += total;
+                return ops;
+            });
+        }
+    }
+
+    /**
+     * Measure searches for the nearest prey within a sensing radius on a
+     * field where prey is scarce, through the spatial index and, for
+     * comparison, by scanning every cell within the radius.
+     * @param args The benchmark name filters.
+     * @param radius The sensing radius.
+     */
+    private static void benchmarkSensing(String[] args, int radius)
+    {
+        String indexed = "sense-nearestOfSpecies-r" + radius;
+        String scanned = "sense-scan-r" + radius;
+        if(!selected(args, indexed) && !selected(args, scanned)) {
+            return;
+        }
+        Field field = new Field(1000, 1000);
+        field.setSensingRadius(radius);
+        Random rand = new Random(1);
+        for(int cell = 0; cell < field.getSize(); cell++) {
+            if(rand.nextDouble() < ANIMAL_DENSITY / 100) {
+                new Zebra(true, field, cell, 15, 150, 0.5, 2);
+            }
+        }
+        int prey = Species.of(Zebra.class);
+        int ops = 100000;
+        int[] cells = new int[ops];
+        for(int i = 0; i < ops; i++) {
+            cells[i] = rand.nextInt(field.getSize());
+        }
+
+        if(selected(args, indexed)) {
+            run(indexed, () -> {
+                long total = 0;
+                for(int cell : cells) {
+                    total += field.nearestOfSpecies(cell, prey, radius);
+                }
+                sink += total;
+                return ops;
+            });
+        }
+        if(selected(args, scanned)) {
+            run(scanned, () -> {
+                long total = 0;
+                for(int cell : cells) {
+                    int row = field.getRow(cell);
+                    int col = field.getCol(cell);
+                    int nearest = -1;
+                    int nearestDistance = radius + 1;
+                    for(int r = Math.max(row - radius, 0); r <= Math.min(row + radius, field.getDepth() - 1); r++) {
+                        for(int c = Math.max(col - radius, 0); c <= Math.min(col + radius, field.getWidth() - 1); c++) {
+                            int other = field.getCell(r, c);
+                            if(other != cell && field.getSpecies(other) == prey
+                               && field.getDistance(cell, other) < nearestDistance) {
+                                nearest = other;
+                                nearestDistance = field.getDistance(cell, other);
+                            }
+                        }
+                    }
+                    total += nearest;
+                }
+                sink += total;
+                return ops;
+            });
+        }
+    }
+
+    /**
+     * Measure Animal.findMate and Animal.runInfection.
+     * Each iteration uses a freshly populated field, since
+     * runInfection can kill the animals it is run on.
+     * @param args The benchmark name filters.
+     */
+    private static void benchmarkAnimal(String[] args)
+    {
+        List<Animal> animals = new ArrayList<>();
+        if(selected(args, "animal-findMate")) {
+            run("animal-findMate", new Workload() {
+                public void setup()
+                {
+                    populateAnimals(animals, 500, 500);
+                }
+
+                public int run()
+                {
+                    long total = 0;
+                    for(Animal animal : animals) {
+                        if(animal.findMate()) {
+                            total++;
+                        }
+                    }
+                    sink += total;
+                    return animals.size();
+                }
+            });
+        }
+        if(selected(args, "animal-runInfection")) {
+            run("animal-runInfection", new Workload() {
+                public void setup()
+                {
+                    populateAnimals(animals, 500, 500);
+                }
+
+                public int run()
+                {
+                    for(Animal animal : animals) {
+                        animal.runInfection(null);
+                    }
+                    return animals.size();
+                }
+            });
+        }
+    }
+
+    /**
+     * Measure SimulatorView.showStatus publishing a frame after one percent of
+     * the cells changed, FieldStats.generateCounts, and the
+     * incrementally maintained statistics of a Field.
+     * The view is skipped when there is no display.
+     * @param args The benchmark name filters.
+     */
+    private static void benchmarkView(String[] args)
+    {
+        Field field = createField(1000, 1000);
+        if(selected(args, "stats-generateCounts")) {
+            FieldStats stats = new FieldStats();
+            run("stats-generateCounts", () -> {
+                // Invalidating the counts makes the next query regenerate them.
+                stats.reset();
+                sink += stats.getPopulationDetails(field).length();
+                return 1;
+            });
+        }
+        if(selected(args, "stats-incremental")) {
+            run("stats-incremental", () -> {
+                FieldStats stats = field.getStats();
+                sink += stats.isViable(field) ? 1 : 0;
+                sink += stats.getPopulationDetails(field).length();
+                return 1;
+            });
+        }
+        if(selected(args, "view-showStatus")) {
+            if(GraphicsEnvironment.isHeadless()) {
+                System.out.println(String.format("%-32s %s", "view-showStatus", "skipped: no display"));
+                return;
+            }
+            SimulatorView view = new SimulatorView(field.getDepth(), field.getWidth(), null);
+            view.showStatus(0, field);
+            run("view-showStatus", () -> {
+                // Change one cell in a hundred, as a step might.
+                for(int cell = (int) (sink & 0x3f); cell < field.getSize(); cell += 100) {
+                    Object animal = field.getObjectAt(cell);
+                    field.clear(cell);
+                    field.place(animal, cell);
+                }
+                view.showStatus(0, field);
+                return 1;
+            });
+            view.dispose();
+        }
+    }
+
+    /**
+     * Create a field filled with Zebras at ANIMAL_DENSITY.
+     * @param depth Depth of the field.
+     * @param width Width of the field.
+     * @return The populated field.
+     */
+    private static Field createField(int depth, int width)
+    {
+        List<Animal> animals = new ArrayList<>();
+        Field field = new Field(depth, width);
+        fill(field, animals);
+        return field;
+    }
+
+    /**
+     * Replace the contents of the list with Zebras on a new field.
+     * @param animals The list to receive the animals.
+     * @param depth Depth of the field.
+     * @param width Width of the field.
+     */
+    private static void populateAnimals(List<Animal> animals, int depth, int width)
+    {
+        animals.clear();
+        fill(new Field(depth, width), animals);
+    }
+
+    /**
+     * Fill a field with Zebras at ANIMAL_DENSITY.
+     * @param field The field to fill.
+     * @param animals The list to receive the animals.
+     */
+    private static void fill(Field field, List<Animal> animals)
+    {
+        Random rand = new Random(1);
+        for(int cell = 0; cell < field.getSize(); cell++) {
+            if(rand.nextDouble() < ANIMAL_DENSITY) {
+                animals.add(new Zebra(true, field, cell, 15, 150, 0.5, 2));
+            }
+        }
+    }
+
+    /**
+     * Determine whether a benchmark was asked for.
+     * @param args The benchmark name filters.
+     * @param name The name of the benchmark.
+     * @return true if there are no filters or one of them matches.
+     */
+    private static boolean selected(String[] args, String name)
+    {
+        if(args.length == 0) {
+            return true;
+        }
+        for(String prefix : args) {
+            if(name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Run a workload that needs no setup.
+     * @param name The name of the benchmark.
+     * @param body The work to measure.
+     */
+    private static void run(String name, IntSupplier body)
+    {
+        run(name, new Workload() {
+            public void setup()
+            {
+            }
+
+            public int run()
+            {
+                return body.getAsInt();
+            }
+        });
+    }
+
+    /**
+     * Warm up and measure a workload, then print one line of results.
+     * Standard output is silenced while the workload runs.
+     * @param name The name of the benchmark.
+     * @param workload The work to measure.
+     */
+    private static void run(String name, Workload workload)
+    {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        try {
+            for(int i = 0; i < WARMUP_ITERATIONS; i++) {
+                workload.setup();
+                workload.run();
+            }
+
+            double[] nsPerOp = new double[MEASURE_ITERATIONS];
+            long totalOps = 0;
+            long allocated = 0;
+            long gcCount = gcCount();
+            long gcTime = gcTime();
+            for(int i = 0; i < MEASURE_ITERATIONS; i++) {
+                workload.setup();
+                long bytesBefore = allocatedBytes(threads);
+                long start = System.nanoTime();
+                int ops = workload.run();
+                long elapsed = System.nanoTime() - start;
+                allocated += allocatedBytes(threads) - bytesBefore;
+                totalOps += ops;
+                nsPerOp[i] = (double) elapsed / ops;
+            }
+            gcCount = gcCount() - gcCount;
+            gcTime = gcTime() - gcTime;
+
+            double mean = 0;
+            for(double value : nsPerOp) {
+                mean += value;
+            }
+            mean /= nsPerOp.length;
+            double variance = 0;
+            for(double value : nsPerOp) {
+                variance += (value - mean) * (value - mean);
+            }
+            double error = Math.sqrt(variance / nsPerOp.length);
+
+            out.println(String.format("%-32s %14.1f %12.1f %14.1f %8d %8d",
+                                      name, mean, error, (double) allocated / totalOps,
+                                      gcCount, gcTime));
+        }
+        finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * @return The number of bytes allocated so far by this thread,
+     *         or 0 if the JVM cannot tell.
+     */
+    private static long allocatedBytes(ThreadMXBean threads)
+    {
+        if(threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    /**
+     * @return The total number of garbage collections so far.
+     */
+    private static long gcCount()
+    {
+        long count = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    /**
+     * @return The total time spent in garbage collection so far, in milliseconds.
+     */
+    private static long gcTime()
+    {
+        long time = 0;
+        for(GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+}
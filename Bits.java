@@ -0,0 +1,58 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Operations on sets of cells kept as one bit per cell in an
+ * AtomicLongArray. Cells of different tiles may share a word, so bits
+ * are set and cleared atomically.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class Bits
+{
+    /**
+     * Put a cell in a set.
+     * @param bits The set, one bit per cell.
+     * @param cell The cell id.
+     */
+    public static void set(AtomicLongArray bits, int cell)
+    {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        long mask = bits.get(word);
+        while((mask & bit) == 0 && !bits.compareAndSet(word, mask, mask | bit)) {
+            mask = bits.get(word);
+        }
+    }
+
+    /**
+     * Take a cell out of a set.
+     * @param bits The set, one bit per cell.
+     * @param cell The cell id.
+     */
+    public static void clear(AtomicLongArray bits, int cell)
+    {
+        int word = cell >>> 6;
+        long bit = 1L << cell;
+        long mask = bits.get(word);
+        while((mask & bit) != 0 && !bits.compareAndSet(word, mask, mask & ~bit)) {
+            mask = bits.get(word);
+        }
+    }
+
+    /**
+     * Put every cell in a set.
+     * @param bits The set, one bit per cell.
+     * @param size The number of cells.
+     */
+    public static void setAll(AtomicLongArray bits, int size)
+    {
+        for(int word = 0; word < bits.length(); word++) {
+            bits.set(word, -1L);
+        }
+        int spare = bits.length() * 64 - size;
+        if(spare > 0) {
+            bits.set(bits.length() - 1, -1L >>> spare);
+        }
+    }
+}
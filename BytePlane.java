@@ -0,0 +1,172 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A plane of small values, one byte per cell of a field, all zero to
+ * begin with. A dense plane is one flat array. A sparse plane is divided
+ * into square chunks as a ChunkedStorage is, and a chunk is only
+ * allocated when one of its cells is first set to something other than
+ * zero, so a large field that is mostly empty only holds the parts in
+ * use. Chunks that are all zero again are given back by trim.
+ *
+ * Cells of different tiles may be set at the same time by a parallel
+ * step, so chunks are created atomically. Chunks are only given back by
+ * trim and clear, while no actors are moving.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class BytePlane
+{
+    // The width and depth of a chunk, as a power of two, as in ChunkedStorage.
+    private static final int CHUNK_SHIFT = 6;
+    // The mask giving a row or column's position within its chunk.
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    // The number of cells in a chunk.
+    private static final int CHUNK_CELLS = 1 << (2 * CHUNK_SHIFT);
+
+    /**
+     * The values of one chunk, indexed by their row and column within
+     * the chunk.
+     */
+    private static class Chunk
+    {
+        // The value of each cell.
+        final byte[] values = new byte[CHUNK_CELLS];
+        // The number of cells whose value is not zero.
+        final AtomicInteger used = new AtomicInteger();
+    }
+
+    // The width of the field.
+    private final int width;
+    // The value of each cell of a dense plane, or null for a sparse one.
+    private final byte[] values;
+    // The number of chunks across the field.
+    private final int chunksAcross;
+    // The chunks of a sparse plane, row by row, or null where a chunk is
+    // all zero; null for a dense plane.
+    private final AtomicReferenceArray<Chunk> chunks;
+
+    /**
+     * Create a plane with every value zero.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param sparse True to allocate the plane in chunks as they are used.
+     */
+    public BytePlane(int depth, int width, boolean sparse)
+    {
+        this.width = width;
+        chunksAcross = (width + CHUNK_MASK) >>> CHUNK_SHIFT;
+        if(sparse) {
+            values = null;
+            chunks = new AtomicReferenceArray<>(chunksAcross * ((depth + CHUNK_MASK) >>> CHUNK_SHIFT));
+        }
+        else {
+            values = new byte[depth * width];
+            chunks = null;
+        }
+    }
+
+    /**
+     * @param cell A cell id.
+     * @return The value of the cell.
+     */
+    public int get(int cell)
+    {
+        if(values != null) {
+            return values[cell];
+        }
+        int row = cell / width;
+        int col = cell - row * width;
+        Chunk chunk = chunks.get(chunkOf(row, col));
+        return chunk == null ? 0 : chunk.values[offsetOf(row, col)];
+    }
+
+    /**
+     * Set the value of a cell. The cell's chunk is allocated if this is
+     * the first value other than zero in it.
+     * @param cell A cell id.
+     * @param value The new value, from -128 to 127.
+     */
+    public void set(int cell, int value)
+    {
+        if(values != null) {
+            values[cell] = (byte) value;
+            return;
+        }
+        int row = cell / width;
+        int col = cell - row * width;
+        int index = chunkOf(row, col);
+        Chunk chunk = chunks.get(index);
+        if(chunk == null) {
+            if(value == 0) {
+                return;
+            }
+            chunk = new Chunk();
+            if(!chunks.compareAndSet(index, null, chunk)) {
+                // Another tile created it first.
+                chunk = chunks.get(index);
+            }
+        }
+        int offset = offsetOf(row, col);
+        byte previous = chunk.values[offset];
+        chunk.values[offset] = (byte) value;
+        if(previous == 0 && value != 0) {
+            chunk.used.incrementAndGet();
+        }
+        else if(previous != 0 && value == 0) {
+            chunk.used.decrementAndGet();
+        }
+    }
+
+    /**
+     * Set every value to zero, giving back every chunk.
+     */
+    public void clear()
+    {
+        if(values != null) {
+            Arrays.fill(values, (byte) 0);
+            return;
+        }
+        for(int index = 0; index < chunks.length(); index++) {
+            chunks.set(index, null);
+        }
+    }
+
+    /**
+     * Give back the chunks whose values are all zero again.
+     */
+    public void trim()
+    {
+        if(chunks == null) {
+            return;
+        }
+        for(int index = 0; index < chunks.length(); index++) {
+            Chunk chunk = chunks.get(index);
+            if(chunk != null && chunk.used.get() == 0) {
+                chunks.set(index, null);
+            }
+        }
+    }
+
+    /**
+     * @param row A row of the field.
+     * @param col A column of the field.
+     * @return The index of the chunk holding the cell.
+     */
+    private int chunkOf(int row, int col)
+    {
+        return (row >>> CHUNK_SHIFT) * chunksAcross + (col >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * @param row A row of the field.
+     * @param col A column of the field.
+     * @return The position of the cell within its chunk.
+     */
+    private static int offsetOf(int row, int col)
+    {
+        return ((row & CHUNK_MASK) << CHUNK_SHIFT) | (col & CHUNK_MASK);
+    }
+}
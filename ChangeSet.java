@@ -0,0 +1,138 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The cells of a field whose occupants have changed, one bit per cell.
+ * The bits are kept in blocks of consecutive cell ids, and a block is
+ * only allocated when one of its cells first changes, so a large field
+ * that is mostly empty only holds bits where something has happened.
+ * Marking every cell as changed sets a flag rather than every bit.
+ *
+ * Cells of different tiles may change at the same time, so blocks are
+ * created and bits set atomically. Blocks that have been drained are
+ * given back by trim, while no actors are moving.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class ChangeSet
+{
+    // The number of cells in a block, as a power of two.
+    private static final int BLOCK_SHIFT = 12;
+    // The mask giving a cell's position within its block.
+    private static final int BLOCK_MASK = (1 << BLOCK_SHIFT) - 1;
+    // The number of words of bits in a block.
+    private static final int BLOCK_WORDS = 1 << (BLOCK_SHIFT - 6);
+
+    // The number of cells.
+    private final int size;
+    // The blocks, in order of cell id, or null where no cell has changed.
+    private final AtomicReferenceArray<AtomicLongArray> blocks;
+    // Set when every cell has changed.
+    private volatile boolean all;
+
+    /**
+     * Create a set in which no cell has changed.
+     * @param size The number of cells.
+     */
+    public ChangeSet(int size)
+    {
+        this.size = size;
+        blocks = new AtomicReferenceArray<>((int) (((long) size + BLOCK_MASK) >>> BLOCK_SHIFT));
+    }
+
+    /**
+     * Record that a cell has changed. Its block is allocated if no
+     * other cell in it has changed since it was last given back.
+     * @param cell The cell id.
+     */
+    public void add(int cell)
+    {
+        int index = cell >>> BLOCK_SHIFT;
+        AtomicLongArray block = blocks.get(index);
+        if(block == null) {
+            block = new AtomicLongArray(BLOCK_WORDS);
+            if(!blocks.compareAndSet(index, null, block)) {
+                // Another tile created it first.
+                block = blocks.get(index);
+            }
+        }
+        Bits.set(block, cell & BLOCK_MASK);
+    }
+
+    /**
+     * Record that every cell has changed.
+     */
+    public void addAll()
+    {
+        all = true;
+    }
+
+    /**
+     * Copy the ids of the changed cells into a buffer, in ascending
+     * order, and forget them.
+     * @param buffer Receives the cell ids; it must hold one per cell.
+     * @return The number of cell ids written.
+     */
+    public int drain(int[] buffer)
+    {
+        if(all) {
+            all = false;
+            // Every cell is listed, so the bits need not be read.
+            for(int index = 0; index < blocks.length(); index++) {
+                blocks.set(index, null);
+            }
+            for(int cell = 0; cell < size; cell++) {
+                buffer[cell] = cell;
+            }
+            return size;
+        }
+        int count = 0;
+        for(int index = 0; index < blocks.length(); index++) {
+            AtomicLongArray block = blocks.get(index);
+            if(block == null) {
+                continue;
+            }
+            for(int word = 0; word < BLOCK_WORDS; word++) {
+                long mask = block.get(word);
+                if(mask != 0) {
+                    mask = block.getAndSet(word, 0);
+                    int base = (index << BLOCK_SHIFT) + (word << 6);
+                    while(mask != 0) {
+                        buffer[count++] = base + Long.numberOfTrailingZeros(mask);
+                        mask &= mask - 1;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Give back the blocks in which no cell has changed since they were
+     * last drained.
+     */
+    public void trim()
+    {
+        for(int index = 0; index < blocks.length(); index++) {
+            AtomicLongArray block = blocks.get(index);
+            if(block != null && isEmpty(block)) {
+                blocks.compareAndSet(index, block, null);
+            }
+        }
+    }
+
+    /**
+     * @param block A block of bits.
+     * @return True if no bit of the block is set.
+     */
+    private static boolean isEmpty(AtomicLongArray block)
+    {
+        for(int word = 0; word < BLOCK_WORDS; word++) {
+            if(block.get(word) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
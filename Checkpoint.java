@@ -0,0 +1,667 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A binary checkpoint file holding the complete state of a simulation.
+ * The file is written through a reused direct buffer and read through
+ * memory-mapped windows, so files of any size can be handled. Nothing
+ * is mapped while writing, so a file being written can always be grown
+ * and closed, even on systems that cannot resize a mapped file.
+ *
+ * A checkpoint starts with a header (magic number, version and field
+ * dimensions), followed by whatever the simulator writes: its clock and
+ * weather, the state of the random generator, and one record per actor.
+ * An actor record holds the actor's species, its cell and then the
+ * state the actor writes itself. A dead actor, which has no cell, is
+ * saved with cell -1; newborns eaten in the step they were born in stay
+ * in the lists until the next step, and still draw random numbers then.
+ *
+ * The field is saved as the animal records, the plant records, records
+ * for any actors in the field but in neither list, and then the
+ * occupant of every cell. Saving the occupants as well as each actor's
+ * cell keeps the field exactly as it was even where an actor has been
+ * placed over another one. Since version 2 the field ends with a flag
+ * saying whether it has a vegetation layer and, if it has, the biomass
+ * of every cell; since version 3 the biomass is followed by the age of
+ * the grass in every cell. Since version 4 the occupants are saved as
+ * a count followed by the cell and occupant of each occupied cell, so
+ * that a large field that is mostly empty is saved in proportion to
+ * what it holds. Since version 5 the field ends with a flag saying
+ * whether it has an epidemic layer and, if it has, the cells of the
+ * recovered animals and then those of the infected animals, in the
+ * order the layer visits them. Since version 6 the state of the random
+ * generator is followed by a flag saying whether the saving thread had
+ * a stream bound and, if it had, the state of that stream. Since
+ * version 7 the vegetation flag of a sparse field is 2, and is followed
+ * by a count of chunk records, each the index of an allocated chunk of
+ * the layer and then the biomass and age of its cells, so that only the
+ * grass actually held is saved.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class Checkpoint implements AutoCloseable
+{
+    // Identifies a checkpoint file: "SAFC".
+    private static final int MAGIC = 0x53414643;
+    // The version of the file format, and the oldest version that can
+    // still be read.
+    private static final int VERSION = 7;
+    private static final int OLDEST_VERSION = 1;
+    // The size of each mapped window of a file being read.
+    private static final int WINDOW_SIZE = 64 << 20;
+    // The size of the buffer a file is written through.
+    private static final int BUFFER_SIZE = 1 << 20;
+    // The species that can be saved, by species code.
+    private static final String[] SPECIES = { "Lion", "Tiger", "Bear", "Zebra", "Deer", "Grass" };
+
+    // The open file.
+    private final FileChannel channel;
+    // True if the checkpoint is being written, false if it is being read.
+    private final boolean writing;
+    // The window of the file currently mapped when reading, or the
+    // buffer of data not yet written when writing.
+    private ByteBuffer window;
+    // The position in the file at which the current window starts,
+    // when reading.
+    private long windowStart;
+    // The depth and width of the field saved in the checkpoint.
+    private int depth, width;
+    // The version of the file format being read or written.
+    private int version = VERSION;
+
+    /**
+     * Create a checkpoint file, replacing any file already there, and
+     * write its header.
+     * @param path Where to write the checkpoint.
+     * @param field The field to be saved.
+     * @return The checkpoint, ready for the simulator's state.
+     * @throws IOException If the file cannot be written.
+     */
+    public static Checkpoint create(Path path, Field field) throws IOException
+    {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                                               StandardOpenOption.TRUNCATE_EXISTING,
+                                               StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Checkpoint checkpoint = new Checkpoint(channel, true);
+        checkpoint.depth = field.getDepth();
+        checkpoint.width = field.getWidth();
+        checkpoint.writeInt(MAGIC);
+        checkpoint.writeInt(VERSION);
+        checkpoint.writeInt(field.getDepth());
+        checkpoint.writeInt(field.getWidth());
+        return checkpoint;
+    }
+
+    /**
+     * Open a checkpoint file and read its header.
+     * @param path Where to read the checkpoint from.
+     * @return The checkpoint, ready for the simulator to read its state.
+     * @throws IOException If the file cannot be read or is not a
+     *                     checkpoint.
+     */
+    public static Checkpoint open(Path path) throws IOException
+    {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            Checkpoint checkpoint = new Checkpoint(channel, false);
+            if(checkpoint.readInt() != MAGIC) {
+                throw new IOException(path + " is not a checkpoint");
+            }
+            int version = checkpoint.readInt();
+            if(version < OLDEST_VERSION || version > VERSION) {
+                throw new IOException(path + " has unsupported checkpoint version " + version);
+            }
+            checkpoint.version = version;
+            checkpoint.depth = checkpoint.readInt();
+            checkpoint.width = checkpoint.readInt();
+            return checkpoint;
+        }
+        catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create a checkpoint on an open file.
+     * @param channel The file.
+     * @param writing True if the checkpoint is to be written.
+     */
+    private Checkpoint(FileChannel channel, boolean writing)
+    {
+        this.channel = channel;
+        this.writing = writing;
+    }
+
+    /**
+     * @return The version of the file format being read or written.
+     */
+    public int getVersion()
+    {
+        return version;
+    }
+
+    /**
+     * @return The depth of the field saved in the checkpoint.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The width of the field saved in the checkpoint.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Write the field and the actors of the simulation.
+     * @param field The field.
+     * @param animals The living animals.
+     * @param plants The living plants.
+     * @throws IOException If an actor cannot be saved, or the file
+     *                     cannot be written.
+     */
+    public void writeField(Field field, List<Actor> animals, List<Actor> plants) throws IOException
+    {
+        Map<Object, Integer> ids = new IdentityHashMap<>();
+        for(Actor animal : animals) {
+            ids.put(animal, ids.size());
+        }
+        for(Actor plant : plants) {
+            ids.put(plant, ids.size());
+        }
+        List<Actor> others = new ArrayList<>();
+        int occupied = 0;
+        for(int cell = field.nextOccupied(-1); cell >= 0; cell = field.nextOccupied(cell)) {
+            occupied++;
+            Object occupant = field.getObjectAt(cell);
+            if(!ids.containsKey(occupant)) {
+                if(!(occupant instanceof Actor)) {
+                    throw new IOException("Cannot save a " + occupant.getClass().getName());
+                }
+                ids.put(occupant, ids.size());
+                others.add((Actor) occupant);
+            }
+        }
+        writeActors(animals);
+        writeActors(plants);
+        writeActors(others);
+        writeInt(occupied);
+        for(int cell = field.nextOccupied(-1); cell >= 0; cell = field.nextOccupied(cell)) {
+            writeInt(cell);
+            writeInt(ids.get(field.getObjectAt(cell)));
+        }
+        VegetationLayer vegetation = field.getVegetation();
+        if(vegetation == null) {
+            writeByte(0);
+        }
+        else if(vegetation.isSparse()) {
+            writeByte(2);
+            writeInt(vegetation.getChunkCount());
+            byte[] biomass = new byte[vegetation.getChunkCells(0)];
+            byte[] age = new byte[biomass.length];
+            for(int index = 0; index < vegetation.getChunkSlots(); index++) {
+                if(vegetation.copyChunk(index, biomass, age)) {
+                    int cells = vegetation.getChunkCells(index);
+                    writeInt(index);
+                    writeBytes(biomass, cells);
+                    writeBytes(age, cells);
+                }
+            }
+        }
+        else {
+            writeByte(1);
+            for(int cell = 0; cell < field.getSize(); cell++) {
+                writeByte(vegetation.getBiomass(cell));
+            }
+            for(int cell = 0; cell < field.getSize(); cell++) {
+                writeByte(vegetation.getAge(cell));
+            }
+        }
+        EpidemicLayer epidemic = field.getEpidemic();
+        writeByte(epidemic == null ? 0 : 1);
+        if(epidemic != null) {
+            writeInt(epidemic.getRecoveredCount());
+            for(int cell = field.nextOccupied(-1); cell >= 0; cell = field.nextOccupied(cell)) {
+                if(epidemic.getHealth(cell) == EpidemicLayer.RECOVERED) {
+                    writeInt(cell);
+                }
+            }
+            int[] infected = epidemic.getInfectedCells();
+            writeInt(infected.length);
+            for(int cell : infected) {
+                writeInt(cell);
+            }
+        }
+    }
+
+    /**
+     * Read back the field and actors written by writeField.
+     * @param field The field to restore, of the saved size.
+     * @param animals Receives the animals.
+     * @param plants Receives the plants.
+     * @throws IOException If the saved field is not valid, or the file
+     *                     cannot be read.
+     */
+    public void readField(Field field, List<Actor> animals, List<Actor> plants) throws IOException
+    {
+        field.clear();
+        List<Actor> all = new ArrayList<>();
+        readActors(field, animals, all);
+        readActors(field, plants, all);
+        readActors(field, new ArrayList<>(), all);
+        // The actors placed themselves as they were created; now put
+        // back the saved occupants.
+        field.clear();
+        if(version >= 4) {
+            int occupied = readInt();
+            if(occupied < 0 || occupied > field.getSize()) {
+                throw new IOException("Invalid number of occupied cells " + occupied);
+            }
+            for(int i = 0; i < occupied; i++) {
+                int cell = readInt();
+                if(cell < 0 || cell >= field.getSize()) {
+                    throw new IOException("Occupant saved outside the field, in cell " + cell);
+                }
+                readOccupant(field, all, cell);
+            }
+        }
+        else {
+            for(int cell = 0; cell < field.getSize(); cell++) {
+                readOccupant(field, all, cell);
+            }
+        }
+        int saved = version >= 2 ? readByte() : 0;
+        VegetationLayer vegetation = field.getVegetation();
+        if((saved != 0) != (vegetation != null)) {
+            throw new IOException(saved != 0 ? "The checkpoint has a vegetation layer but the field has none"
+                                             : "The field has a vegetation layer but the checkpoint has none");
+        }
+        if(saved == 2 && version >= 7) {
+            readChunks(vegetation);
+        }
+        else if(saved == 1) {
+            for(int cell = 0; cell < field.getSize(); cell++) {
+                int biomass = readByte();
+                if(biomass < 0 || biomass > VegetationLayer.MAX_BIOMASS) {
+                    throw new IOException("Biomass " + biomass + " out of range in cell " + cell);
+                }
+                vegetation.setBiomass(cell, biomass);
+            }
+            if(version >= 3) {
+                for(int cell = 0; cell < field.getSize(); cell++) {
+                    int age = readByte() & 0xFF;
+                    if(age > VegetationLayer.MAX_AGE) {
+                        throw new IOException("Grass age " + age + " out of range in cell " + cell);
+                    }
+                    vegetation.setAge(cell, age);
+                }
+            }
+        }
+        else if(saved != 0) {
+            throw new IOException("Invalid vegetation flag " + saved);
+        }
+        boolean outbreak = version >= 5 && readByte() != 0;
+        EpidemicLayer epidemic = field.getEpidemic();
+        if(outbreak != (epidemic != null)) {
+            throw new IOException(outbreak ? "The checkpoint has an epidemic layer but the field has none"
+                                           : "The field has an epidemic layer but the checkpoint has none");
+        }
+        if(epidemic != null) {
+            int recovered = readInt();
+            for(int i = 0; i < recovered; i++) {
+                epidemic.setHealth(readAnimalCell(field), EpidemicLayer.RECOVERED);
+            }
+            int infected = readInt();
+            for(int i = 0; i < infected; i++) {
+                epidemic.infect((Animal) field.getObjectAt(readAnimalCell(field)));
+            }
+        }
+    }
+
+    /**
+     * Read the chunk records of a sparse vegetation layer into a layer
+     * of the same size, held either densely or in chunks.
+     * @param vegetation The layer, already cleared.
+     * @throws IOException If a record is not valid, or the file cannot
+     *                     be read.
+     */
+    private void readChunks(VegetationLayer vegetation) throws IOException
+    {
+        int count = readInt();
+        if(count < 0 || count > vegetation.getChunkSlots()) {
+            throw new IOException("Invalid number of vegetation chunks " + count);
+        }
+        byte[] biomass = new byte[vegetation.getChunkCells(0)];
+        byte[] age = new byte[biomass.length];
+        for(int i = 0; i < count; i++) {
+            int index = readInt();
+            if(index < 0 || index >= vegetation.getChunkSlots()) {
+                throw new IOException("Vegetation chunk " + index + " outside the field");
+            }
+            int cells = vegetation.getChunkCells(index);
+            readBytes(biomass, cells);
+            readBytes(age, cells);
+            for(int cell = 0; cell < cells; cell++) {
+                if(biomass[cell] < 0 || biomass[cell] > VegetationLayer.MAX_BIOMASS) {
+                    throw new IOException("Biomass " + biomass[cell] + " out of range in chunk " + index);
+                }
+                if((age[cell] & 0xFF) > VegetationLayer.MAX_AGE) {
+                    throw new IOException("Grass age " + (age[cell] & 0xFF) + " out of range in chunk " + index);
+                }
+            }
+            vegetation.fillChunk(index, biomass, age);
+        }
+    }
+
+    /**
+     * Read the cell of an animal in the epidemic layer.
+     * @param field The field being restored.
+     * @return The cell id.
+     * @throws IOException If the cell holds no animal, or the file cannot
+     *                     be read.
+     */
+    private int readAnimalCell(Field field) throws IOException
+    {
+        int cell = readInt();
+        if(cell < 0 || cell >= field.getSize() || !(field.getObjectAt(cell) instanceof Animal)) {
+            throw new IOException("No animal for the epidemic layer in cell " + cell);
+        }
+        return cell;
+    }
+
+    /**
+     * Read the id of a cell's saved occupant and put the occupant back.
+     * @param field The field being restored.
+     * @param all The restored actors, in the order they were saved.
+     * @param cell The cell id.
+     * @throws IOException If the id is not valid, or the file cannot be
+     *                     read.
+     */
+    private void readOccupant(Field field, List<Actor> all, int cell) throws IOException
+    {
+        int id = readInt();
+        if(id >= all.size()) {
+            throw new IOException("Unknown occupant " + id + " in cell " + cell);
+        }
+        if(id >= 0) {
+            field.place(all.get(id), cell);
+        }
+    }
+
+    /**
+     * Write a count followed by a record for each actor.
+     * @param actors The actors.
+     * @throws IOException If an actor cannot be saved, or the file
+     *                     cannot be written.
+     */
+    private void writeActors(List<Actor> actors) throws IOException
+    {
+        writeInt(actors.size());
+        for(Actor actor : actors) {
+            writeActor(actor);
+        }
+    }
+
+    /**
+     * Read a count followed by that many actor records.
+     * @param field The field to place the actors in.
+     * @param actors Receives the actors.
+     * @param all Receives the actors too, in the order they were saved.
+     * @throws IOException If a record is not valid, or the file cannot
+     *                     be read.
+     */
+    private void readActors(Field field, List<Actor> actors, List<Actor> all) throws IOException
+    {
+        int count = readInt();
+        for(int i = 0; i < count; i++) {
+            Actor actor = readActor(field);
+            actors.add(actor);
+            all.add(actor);
+        }
+    }
+
+    /**
+     * Write an actor's record: its species, its cell and its own state.
+     * @param actor The actor to save.
+     * @throws IOException If the actor's species cannot be saved, or
+     *                     the file cannot be written.
+     */
+    public void writeActor(Actor actor) throws IOException
+    {
+        String name = actor.getClass().getName();
+        int code = 0;
+        while(code < SPECIES.length && !SPECIES[code].equals(name)) {
+            code++;
+        }
+        if(code == SPECIES.length) {
+            throw new IOException("Cannot save a " + name);
+        }
+        writeByte(code);
+        writeInt(actor.getCell());
+        actor.saveState(this);
+    }
+
+    /**
+     * Read an actor's record, placing a new actor of the saved species in
+     * its saved cell of the field, or creating it dead if it had no cell.
+     * @param field The field to place the actor in.
+     * @return The restored actor.
+     * @throws IOException If the record is not valid, or the file cannot
+     *                     be read.
+     */
+    public Actor readActor(Field field) throws IOException
+    {
+        int code = readByte();
+        int cell = readInt();
+        if(cell < -1 || cell >= field.getSize()) {
+            throw new IOException("Actor saved outside the field, in cell " + cell);
+        }
+        int place = Math.max(cell, 0);
+        Actor actor;
+        switch(code) {
+            case 0: actor = new Lion(false, field, place, 15, 150, 0.5, 2); break;
+            case 1: actor = new Tiger(false, field, place, 15, 150, 0.4, 2); break;
+            case 2: actor = new Bear(false, field, place, 15, 150, 0.4, 2); break;
+            case 3: actor = new Zebra(false, field, place, 15, 150, 0.5, 2); break;
+            case 4: actor = new Deer(false, field, place, 15, 150, 0.8, 2); break;
+            case 5: actor = new Grass(false, field, place); break;
+            default: throw new IOException("Unknown species code " + code);
+        }
+        actor.restoreState(this);
+        if(cell < 0) {
+            actor.setDead();
+        }
+        return actor;
+    }
+
+    /**
+     * @param value The byte to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeByte(int value) throws IOException
+    {
+        reserve(Byte.BYTES).put((byte) value);
+    }
+
+    /**
+     * @param values The bytes to write.
+     * @param length The number of them to write, at most a chunk of a
+     *               vegetation layer.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeBytes(byte[] values, int length) throws IOException
+    {
+        reserve(length).put(values, 0, length);
+    }
+
+    /**
+     * @param value The int to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeInt(int value) throws IOException
+    {
+        reserve(Integer.BYTES).putInt(value);
+    }
+
+    /**
+     * @param value The long to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeLong(long value) throws IOException
+    {
+        reserve(Long.BYTES).putLong(value);
+    }
+
+    /**
+     * @param value The double to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeDouble(double value) throws IOException
+    {
+        reserve(Double.BYTES).putDouble(value);
+    }
+
+    /**
+     * @param value The boolean to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void writeBoolean(boolean value) throws IOException
+    {
+        writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * @return The next byte, sign-extended.
+     * @throws IOException If the file cannot be read.
+     */
+    public int readByte() throws IOException
+    {
+        return reserve(Byte.BYTES).get();
+    }
+
+    /**
+     * Read a run of bytes.
+     * @param values Receives the bytes.
+     * @param length The number of them to read, at most a chunk of a
+     *               vegetation layer.
+     * @throws IOException If the file cannot be read.
+     */
+    public void readBytes(byte[] values, int length) throws IOException
+    {
+        reserve(length).get(values, 0, length);
+    }
+
+    /**
+     * @return The next int.
+     * @throws IOException If the file cannot be read.
+     */
+    public int readInt() throws IOException
+    {
+        return reserve(Integer.BYTES).getInt();
+    }
+
+    /**
+     * @return The next long.
+     * @throws IOException If the file cannot be read.
+     */
+    public long readLong() throws IOException
+    {
+        return reserve(Long.BYTES).getLong();
+    }
+
+    /**
+     * @return The next double.
+     * @throws IOException If the file cannot be read.
+     */
+    public double readDouble() throws IOException
+    {
+        return reserve(Double.BYTES).getDouble();
+    }
+
+    /**
+     * @return The next boolean.
+     * @throws IOException If the file cannot be read.
+     */
+    public boolean readBoolean() throws IOException
+    {
+        return readByte() != 0;
+    }
+
+    /**
+     * Finish the checkpoint. The rest of a written file is written out
+     * and forced to disk.
+     * @throws IOException If the file cannot be written.
+     */
+    public void close() throws IOException
+    {
+        try {
+            if(writing && window != null) {
+                flush();
+                channel.force(true);
+            }
+        }
+        finally {
+            window = null;
+            channel.close();
+        }
+    }
+
+    /**
+     * Make sure the current window has room for a value: when writing,
+     * by writing out the buffer if it is full, and when reading, by
+     * mapping the next window of the file.
+     * @param bytes The size of the value.
+     * @return The window to read or write the value in.
+     * @throws IOException If the file cannot be written or mapped, or a
+     *                     read runs past its end.
+     */
+    private ByteBuffer reserve(int bytes) throws IOException
+    {
+        if(window != null && window.remaining() >= bytes) {
+            return window;
+        }
+        if(writing) {
+            if(window == null) {
+                window = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            }
+            else {
+                flush();
+            }
+            return window;
+        }
+        long position = window == null ? 0 : windowStart + window.position();
+        long size = Math.min(WINDOW_SIZE, channel.size() - position);
+        if(size < bytes) {
+            throw new IOException("Checkpoint ends unexpectedly at byte " + position);
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        windowStart = position;
+        return window;
+    }
+
+    /**
+     * Write out the data in the buffer and empty it.
+     * @throws IOException If the file cannot be written.
+     */
+    private void flush() throws IOException
+    {
+        window.flip();
+        while(window.hasRemaining()) {
+            channel.write(window);
+        }
+        window.clear();
+    }
+}
@@ -0,0 +1,273 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A field storage for large fields that are mostly empty. The field is
+ * divided into square chunks of CHUNK_SIZE cells a side, and a chunk's
+ * arrays are only allocated when something is first placed in it. A
+ * missing chunk is entirely free. Chunks that have become empty are
+ * given back by trim, and the occupied cells can be visited chunk by
+ * chunk, skipping the empty ones.
+ *
+ * Chunks are created atomically, so tiles of a parallel step may place
+ * occupants in the same chunk at the same time. Chunks are only given
+ * back by trim and clear, while no actors are moving.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class ChunkedStorage implements FieldStorage
+{
+    // The width and depth of a chunk, as a power of two.
+    private static final int CHUNK_SHIFT = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    // The mask giving a row or column's position within its chunk.
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    // The number of cells in a chunk.
+    private static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+
+    /**
+     * The cells of one chunk, indexed by their row and column within
+     * the chunk.
+     */
+    private static class Chunk
+    {
+        // The occupant of each cell.
+        final Object[] cells = new Object[CHUNK_CELLS];
+        // The species number of each cell's occupant.
+        final byte[] species = new byte[CHUNK_CELLS];
+        // The number of occupied cells.
+        final AtomicInteger occupied = new AtomicInteger();
+    }
+
+    // The depth and width of the field.
+    private final int depth, width;
+    // The number of chunks across the field.
+    private final int chunksAcross;
+    // The chunks, row by row, or null where a chunk is entirely free.
+    private final AtomicReferenceArray<Chunk> chunks;
+
+    /**
+     * Create a storage with every cell free and no chunks allocated.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public ChunkedStorage(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        chunksAcross = (width + CHUNK_MASK) >>> CHUNK_SHIFT;
+        int chunksDown = (depth + CHUNK_MASK) >>> CHUNK_SHIFT;
+        chunks = new AtomicReferenceArray<>(chunksAcross * chunksDown);
+    }
+
+    /**
+     * @param cell A cell id.
+     * @return The occupant of the cell, or null if it is free.
+     */
+    public Object get(int cell)
+    {
+        int row = cell / width;
+        int col = cell - row * width;
+        Chunk chunk = chunks.get(chunkOf(row, col));
+        return chunk == null ? null : chunk.cells[offsetOf(row, col)];
+    }
+
+    /**
+     * @param cell A cell id.
+     * @return The species number of the cell's occupant.
+     */
+    public int getSpecies(int cell)
+    {
+        int row = cell / width;
+        int col = cell - row * width;
+        Chunk chunk = chunks.get(chunkOf(row, col));
+        return chunk == null ? Species.EMPTY : chunk.species[offsetOf(row, col)];
+    }
+
+    /**
+     * Put an occupant in a cell, replacing any occupant already there.
+     * The cell's chunk is allocated if this is the first occupant in it.
+     * @param cell A cell id.
+     * @param occupant The new occupant, or null to free the cell.
+     * @param number The species number of the occupant.
+     */
+    public void set(int cell, Object occupant, int number)
+    {
+        int row = cell / width;
+        int col = cell - row * width;
+        int index = chunkOf(row, col);
+        Chunk chunk = chunks.get(index);
+        if(chunk == null) {
+            if(occupant == null) {
+                return;
+            }
+            chunk = new Chunk();
+            if(!chunks.compareAndSet(index, null, chunk)) {
+                // Another tile created it first.
+                chunk = chunks.get(index);
+            }
+        }
+        int offset = offsetOf(row, col);
+        Object previous = chunk.cells[offset];
+        chunk.cells[offset] = occupant;
+        chunk.species[offset] = (byte) number;
+        if(previous == null && occupant != null) {
+            chunk.occupied.incrementAndGet();
+        }
+        else if(previous != null && occupant == null) {
+            chunk.occupied.decrementAndGet();
+        }
+    }
+
+    /**
+     * Free every cell, giving back every chunk.
+     */
+    public void clear()
+    {
+        for(int index = 0; index < chunks.length(); index++) {
+            chunks.set(index, null);
+        }
+    }
+
+    /**
+     * Find the next occupied cell, visiting the chunks row by row and
+     * the cells of each chunk row by row, and skipping empty chunks.
+     * @param cell The previous occupied cell, or -1 to find the first.
+     * @return The next occupied cell, or -1 if there are no more.
+     */
+    public int nextOccupied(int cell)
+    {
+        int index = 0;
+        int offset = 0;
+        if(cell >= 0) {
+            int row = cell / width;
+            int col = cell - row * width;
+            index = chunkOf(row, col);
+            offset = offsetOf(row, col) + 1;
+        }
+        for(; index < chunks.length(); index++, offset = 0) {
+            Chunk chunk = chunks.get(index);
+            if(chunk == null || chunk.occupied.get() == 0) {
+                continue;
+            }
+            for(; offset < CHUNK_CELLS; offset++) {
+                if(chunk.species[offset] != Species.EMPTY) {
+                    return cellOf(index, offset);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find a free cell by its position among the free cells, in
+     * ascending order of cell id as in a dense storage, so that the
+     * choice of storage never changes which cell is found. Whole bands
+     * of chunks are counted at a time, and missing chunks are counted
+     * without looking at their cells.
+     * @param index The position among the free cells.
+     * @return The id of the free cell, or -1 if there is none.
+     */
+    public int nthFree(int index)
+    {
+        for(int band = 0; band * CHUNK_SIZE < depth; band++) {
+            int top = band << CHUNK_SHIFT;
+            int rows = Math.min(CHUNK_SIZE, depth - top);
+            int first = band * chunksAcross;
+            int inBand = rows * width;
+            for(int across = 0; across < chunksAcross; across++) {
+                Chunk chunk = chunks.get(first + across);
+                if(chunk != null) {
+                    inBand -= chunk.occupied.get();
+                }
+            }
+            if(index >= inBand) {
+                index -= inBand;
+                continue;
+            }
+            for(int row = top; row < top + rows; row++) {
+                for(int across = 0; across < chunksAcross; across++) {
+                    Chunk chunk = chunks.get(first + across);
+                    int left = across << CHUNK_SHIFT;
+                    int cols = Math.min(CHUNK_SIZE, width - left);
+                    if(chunk == null) {
+                        if(index < cols) {
+                            return row * width + left + index;
+                        }
+                        index -= cols;
+                        continue;
+                    }
+                    for(int col = left; col < left + cols; col++) {
+                        if(chunk.cells[offsetOf(row, col)] == null) {
+                            if(index == 0) {
+                                return row * width + col;
+                            }
+                            index--;
+                        }
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Give back the chunks that have become empty.
+     */
+    public void trim()
+    {
+        for(int index = 0; index < chunks.length(); index++) {
+            Chunk chunk = chunks.get(index);
+            if(chunk != null && chunk.occupied.get() == 0) {
+                chunks.set(index, null);
+            }
+        }
+    }
+
+    /**
+     * @return The number of chunks currently allocated.
+     */
+    public int getChunkCount()
+    {
+        int count = 0;
+        for(int index = 0; index < chunks.length(); index++) {
+            if(chunks.get(index) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param row A row of the field.
+     * @param col A column of the field.
+     * @return The index of the chunk holding the cell.
+     */
+    private int chunkOf(int row, int col)
+    {
+        return (row >>> CHUNK_SHIFT) * chunksAcross + (col >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * @param row A row of the field.
+     * @param col A column of the field.
+     * @return The position of the cell within its chunk.
+     */
+    private static int offsetOf(int row, int col)
+    {
+        return ((row & CHUNK_MASK) << CHUNK_SHIFT) | (col & CHUNK_MASK);
+    }
+
+    /**
+     * @param index A chunk index.
+     * @param offset A position within the chunk.
+     * @return The cell id.
+     */
+    private int cellOf(int index, int offset)
+    {
+        int row = (index / chunksAcross << CHUNK_SHIFT) + (offset >>> CHUNK_SHIFT);
+        int col = (index % chunksAcross << CHUNK_SHIFT) + (offset & CHUNK_MASK);
+        return row * width + col;
+    }
+}
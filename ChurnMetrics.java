@@ -0,0 +1,104 @@
+/**
+ * Keep track of how many actors are born and die in each step of a
+ * simulation, and over the whole run.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class ChurnMetrics
+{
+    // The births and deaths in the most recent step.
+    private int lastBirths, lastDeaths;
+    // The births and deaths since the metrics were reset.
+    private long totalBirths, totalDeaths;
+    // The largest number of actors alive at the end of a step.
+    private int peakActors;
+    // The number of steps recorded.
+    private int steps;
+
+    /**
+     * Create empty metrics.
+     */
+    public ChurnMetrics()
+    {
+        reset();
+    }
+
+    /**
+     * Record the churn of one step.
+     * @param births The number of actors born.
+     * @param deaths The number of dead actors removed.
+     * @param actors The number of actors alive at the end of the step.
+     */
+    public void record(int births, int deaths, int actors)
+    {
+        lastBirths = births;
+        lastDeaths = deaths;
+        totalBirths += births;
+        totalDeaths += deaths;
+        peakActors = Math.max(peakActors, actors);
+        steps++;
+    }
+
+    /**
+     * Forget everything recorded so far.
+     */
+    public void reset()
+    {
+        lastBirths = 0;
+        lastDeaths = 0;
+        totalBirths = 0;
+        totalDeaths = 0;
+        peakActors = 0;
+        steps = 0;
+    }
+
+    /**
+     * @return The number of actors born in the most recent step.
+     */
+    public int getLastBirths()
+    {
+        return lastBirths;
+    }
+
+    /**
+     * @return The number of actors removed in the most recent step.
+     */
+    public int getLastDeaths()
+    {
+        return lastDeaths;
+    }
+
+    /**
+     * @return The number of actors born since the metrics were reset.
+     */
+    public long getTotalBirths()
+    {
+        return totalBirths;
+    }
+
+    /**
+     * @return The number of actors removed since the metrics were reset.
+     */
+    public long getTotalDeaths()
+    {
+        return totalDeaths;
+    }
+
+    /**
+     * @return The largest number of actors alive at the end of a step.
+     */
+    public int getPeakActors()
+    {
+        return peakActors;
+    }
+
+    /**
+     * @return A one-line summary of the metrics.
+     */
+    public String toString()
+    {
+        return "steps: " + steps + " births: " + totalBirths + " deaths: " + totalDeaths
+               + " (last step " + lastBirths + "/" + lastDeaths + ") peak: " + peakActors;
+    }
+}
@@ -0,0 +1,184 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A step listener that writes one CSV row per step: the step, the
+ * weather, the births, deaths, kills, infections and starvations, the
+ * grass replanted, the numbers of susceptible, infected and recovered
+ * animals (zero when there is no epidemic layer), and the population of
+ * each species. Rows are queued and written by a background thread
+ * through a buffered writer, so the simulation only pays for putting a
+ * record on the queue. If the writer falls a whole queue behind, the
+ * simulation waits for it rather than losing rows.
+ *
+ * The species columns are those known when the first row is written.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class CsvStepSink implements StepListener, AutoCloseable
+{
+    // The number of records that can wait to be written.
+    private static final int QUEUE_CAPACITY = 4096;
+    // Put on the queue to tell the writer thread to finish.
+    private static final StepRecord END = new StepRecord(0, 0, 0, 0, false, new int[0], 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    // Records waiting to be written.
+    private final BlockingQueue<StepRecord> queue;
+    // The destination of the rows.
+    private final Writer out;
+    // The thread writing the rows.
+    private final Thread writer;
+    // The number of species columns, or -1 until the header is written.
+    private int speciesColumns = -1;
+    // The first error met by the writer thread, if any.
+    private volatile IOException failure;
+    // True once the sink has been closed.
+    private boolean closed;
+
+    /**
+     * Create a sink writing to a file, replacing any file already there.
+     * @param filename The CSV file to write.
+     * @throws IOException If the file cannot be created.
+     */
+    public CsvStepSink(String filename) throws IOException
+    {
+        this(Files.newBufferedWriter(Paths.get(filename), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Create a sink writing to a writer. The sink closes the writer when
+     * it is closed.
+     * @param out The destination of the rows.
+     */
+    public CsvStepSink(Writer out)
+    {
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+        queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        writer = new Thread(this::writeRows, "csv-step-sink");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queue a step's row for writing.
+     * @param record What happened in the step.
+     */
+    public void stepCompleted(StepRecord record)
+    {
+        if(closed) {
+            throw new IllegalStateException("The sink has been closed");
+        }
+        try {
+            queue.put(record);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Write the rows still queued and close the file.
+     * @throws IOException If any row could not be written.
+     */
+    public void close() throws IOException
+    {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(END);
+            writer.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Take records off the queue and write them until told to finish.
+     * This runs on the writer thread.
+     */
+    private void writeRows()
+    {
+        try {
+            StepRecord record = queue.take();
+            while(record != END) {
+                // After an error, keep taking records so that the
+                // simulation never waits on a full queue.
+                if(failure == null) {
+                    try {
+                        writeRow(record);
+                    }
+                    catch(IOException e) {
+                        failure = e;
+                    }
+                }
+                record = queue.take();
+            }
+        }
+        catch(InterruptedException e) {
+            // Stop writing.
+        }
+        finally {
+            try {
+                out.close();
+            }
+            catch(IOException e) {
+                if(failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Write one row, preceded by the header if it is the first.
+     * @param record The record to write.
+     * @throws IOException If the row cannot be written.
+     */
+    private void writeRow(StepRecord record) throws IOException
+    {
+        if(speciesColumns < 0) {
+            speciesColumns = Species.count();
+            out.write("step,time,season,rain,raining,rainedThisSeason,births,deaths,kills,infections,"
+                      + "starvations,replanted,susceptible,infected,recovered");
+            for(int species = 1; species < speciesColumns; species++) {
+                out.write(',');
+                out.write(Species.getType(species).getName());
+            }
+            out.write('\n');
+        }
+        StringBuilder row = new StringBuilder();
+        row.append(record.getStep()).append(',')
+           .append(record.getTime()).append(',')
+           .append(record.getSeason()).append(',')
+           .append(record.getRain()).append(',')
+           .append(record.isRaining() ? 1 : 0).append(',')
+           .append(record.hasRainedThisSeason() ? 1 : 0).append(',')
+           .append(record.getBirths()).append(',')
+           .append(record.getDeaths()).append(',')
+           .append(record.getKills()).append(',')
+           .append(record.getInfections()).append(',')
+           .append(record.getStarvations()).append(',')
+           .append(record.getReplanted()).append(',')
+           .append(record.getSusceptible()).append(',')
+           .append(record.getInfected()).append(',')
+           .append(record.getRecovered());
+        for(int species = 1; species < speciesColumns; species++) {
+            row.append(',').append(record.getCount(species));
+        }
+        row.append('\n');
+        out.write(row.toString());
+    }
+}
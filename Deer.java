@@ -1,5 +1,4 @@
 import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
@@ -19,22 +18,10 @@ public class Deer extends Animal
     private static final int GRASS_FOOD_VALUE = 14;
     // A shared random number generator to control breeding.
     private static final Random rand = Randomizer.getRandom();
-    
-        // The age at which a Zebra can start to breed.
-    protected static int BREEDING_AGE;
-    // The age to which a Zebra can live.
-    protected static int MAX_AGE;
-    // The likelihood of a Zebra breeding.
-    protected static double BREEDING_PROBABILITY;
-    // The maximum number of births.
-    protected static int MAX_LITTER_SIZE;
-
-    // The Zebra's age.
-    protected int age;
-    // The Zebra's food level, which is increased by eating zebras.
-    protected int foodLevel;
-    //
-    protected int breedingFoodLevel;
+    // The species number of the Deer's food.
+    private static final int PREY = Species.of(Grass.class);
+    // The hours of the day in which the Deer is active.
+    private static final int ACTIVE_HOURS = Environment.hours(14, 6);
 
     /**
      * Create a Deer. A Deer can be created as a new born (age zero
@@ -50,9 +37,35 @@ public class Deer extends Animal
      */
     public Deer(boolean randomAge, Field field, Location location, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
     {
-        super(field, location, 15, 150, 0.95, 3);
-        breedingFoodLevel = 0;
+        this(randomAge, field, field.getCell(location.getRow(), location.getCol()),
+             BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE);
+    }
 
+    /**
+     * Create a Deer in a cell. A Deer can be created as a new born (age
+     * zero and not hungry) or with a random age and food level.
+     * 
+     * @param randomAge If true, the Deer will have random age and hunger level.
+     * @param field The field currently occupied.
+     * @param cell The cell id within the field.
+     */
+    public Deer(boolean randomAge, Field field, int cell, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
+    {
+        reset(randomAge, field, cell, BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE);
+    }
+
+    /**
+     * Make this Deer a new Deer, as the constructor does. The object
+     * of a dead Deer taken from the field's actor pool is reset to
+     * be born again.
+     * 
+     * @param randomAge If true, the Deer will have random age and hunger level.
+     * @param field The field currently occupied.
+     * @param cell The cell id within the field.
+     */
+    public void reset(boolean randomAge, Field field, int cell, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
+    {
+        reset(field, cell, 15, 150, 0.95, 3);
         if(randomAge) {
             age = rand.nextInt(MAX_AGE);
             foodLevel = rand.nextInt(GRASS_FOOD_VALUE);
@@ -68,62 +81,80 @@ public class Deer extends Animal
      * or die of old age.
      * @param field The field currently occupied.
      * @param newDeers A list to return newly born Deers.
+     * @param environment The time and weather of the current step.
      */
-    public void act(List<Actor> newDeers)
+    public void act(List<Actor> newDeers, Environment environment)
     {
+        if (!environment.isActive(ACTIVE_HOURS)) { // Deer are only active between these times.
+            rest(environment);
+            return;
+        }
         incrementAge();
-        
-        if ((Simulator.getTime() >= 14 && Simulator.getTime() <= 23) || (Simulator.getTime() >= 0 && Simulator.getTime() <= 6)) { // Deer are only active between these times.
-            if(isAlive()) {
-                if (foodLevel > breedingFoodLevel) {
-                    giveBirth(newDeers);
-                }
-                            
-                // Move towards a source of food if found.
-                Location newLocation = findFood();
-                if(newLocation == null) { 
-                    // No food found - try to move to a free location.
-                    newLocation = getField().freeAdjacentLocation(getLocation());
-                }
-                // See if it was possible to move.
-                if(newLocation != null) {
-                    setLocation(newLocation);
-                }
-                else {
-                    // Overcrowding.
-                    setDead();
-                }
-                incrementHunger();
+        if(isAlive()) {
+            if (foodLevel > breedingFoodLevel) {
+                giveBirth(newDeers);
             }
+                        
+            // Move towards a source of food if found.
+            int newCell = findFood();
+            if(newCell < 0) { 
+                // No food found - try to move to a free location.
+                newCell = getField().freeAdjacentCell(getCell());
+            }
+            // See if it was possible to move.
+            if(newCell >= 0) {
+                setCell(newCell);
+            }
+            else {
+                // Overcrowding.
+                setDead();
+            }
+            incrementHunger();
         }
-        else {
-            Double randomVal = rand.nextDouble();
-        }
+    }
+
+    /**
+     * Outside its active hours a Deer only ages.
+     * @param environment The time and weather of the current step.
+     */
+    public void rest(Environment environment)
+    {
+        incrementAge();
+    }
+
+    /**
+     * @return The hours of the day in which the Deer is active.
+     */
+    public int getActiveHours()
+    {
+        return ACTIVE_HOURS;
     }
     
     /**
      * Look for grass adjacent to the current location.
      * Only the first live grass is eaten.
-     * @return Where food was found, or null if it wasn't.
+     * @return The cell where food was found, or -1 if it wasn't.
      */
-    private Location findFood()
+    private int findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object plant = field.getObjectAt(where);
-            if(plant instanceof Grass) {
-                Grass grass = (Grass) plant;
-                if(grass.isAlive()) { 
-                    grass.setDead();
-                    foodLevel = GRASS_FOOD_VALUE;
-                    return where;
-                }
+        VegetationLayer vegetation = field.getVegetation();
+        if(vegetation != null) {
+            return graze(vegetation, GRASS_FOOD_VALUE);
+        }
+        int[] adjacent = Field.getAdjacentBuffer();
+        int count = field.adjacentCellsOfSpecies(getCell(), PREY, adjacent);
+        for(int i = 0; i < count; i++) {
+            int where = adjacent[i];
+            Grass grass = (Grass) field.getObjectAt(where);
+            if(grass.isAlive()) { 
+                grass.setDead();
+                field.getEvents().kill();
+                foodLevel = GRASS_FOOD_VALUE;
+                return where;
             }
         }
-        return null;
+        return -1;
     }
     
     /**
@@ -136,11 +167,18 @@ public class Deer extends Animal
         // New Deers are born into adjacent locations.
         // Get a list of adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+        ActorPool pool = field.getActorPool();
+        int[] free = Field.getFreeBuffer();
+        int freeCount = field.freeAdjacentCells(getCell(), free);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Deer young = new Deer(false, field, loc, 15, 150, 0.85, 3);
+        for(int b = 0; b < births && b < freeCount; b++) {
+            Deer young = pool.take(Deer.class);
+            if(young == null) {
+                young = new Deer(false, field, free[b], 15, 150, 0.85, 3);
+            }
+            else {
+                young.reset(false, field, free[b], 15, 150, 0.85, 3);
+            }
             newDeers.add(young);
         }
     }
@@ -151,8 +189,12 @@ public class Deer extends Animal
     public void incrementHunger() {
         foodLevel--;
         if (foodLevel <= 0) {
+            Field field = getField();
+            if(field != null) {
+                // Not already dead of overcrowding.
+                field.getEvents().starve();
+            }
             setDead();
-            System.out.println("Deer Starved");
         }
     }
     
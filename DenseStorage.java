@@ -0,0 +1,122 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A field storage holding every cell in flat arrays indexed by cell id,
+ * with a set of the free cells, one bit per cell.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class DenseStorage implements FieldStorage
+{
+    // The occupant of each cell.
+    private final Object[] cells;
+    // The species number of each cell's occupant, or Species.EMPTY.
+    private final byte[] species;
+    // One bit per cell, set while the cell is free.
+    private final AtomicLongArray free;
+
+    /**
+     * Create a storage with every cell free.
+     * @param size The number of cells.
+     */
+    public DenseStorage(int size)
+    {
+        cells = new Object[size];
+        species = new byte[size];
+        free = new AtomicLongArray((size + 63) >>> 6);
+        Bits.setAll(free, size);
+    }
+
+    /**
+     * @param cell A cell id.
+     * @return The occupant of the cell, or null if it is free.
+     */
+    public Object get(int cell)
+    {
+        return cells[cell];
+    }
+
+    /**
+     * @param cell A cell id.
+     * @return The species number of the cell's occupant.
+     */
+    public int getSpecies(int cell)
+    {
+        return species[cell];
+    }
+
+    /**
+     * Put an occupant in a cell, replacing any occupant already there.
+     * @param cell A cell id.
+     * @param occupant The new occupant, or null to free the cell.
+     * @param number The species number of the occupant.
+     */
+    public void set(int cell, Object occupant, int number)
+    {
+        Object previous = cells[cell];
+        cells[cell] = occupant;
+        species[cell] = (byte) number;
+        if(previous == null && occupant != null) {
+            Bits.clear(free, cell);
+        }
+        else if(previous != null && occupant == null) {
+            Bits.set(free, cell);
+        }
+    }
+
+    /**
+     * Free every cell.
+     */
+    public void clear()
+    {
+        Arrays.fill(cells, null);
+        Arrays.fill(species, (byte) Species.EMPTY);
+        Bits.setAll(free, cells.length);
+    }
+
+    /**
+     * Find the next occupied cell in ascending order.
+     * @param cell The previous occupied cell, or -1 to find the first.
+     * @return The next occupied cell, or -1 if there are no more.
+     */
+    public int nextOccupied(int cell)
+    {
+        for(int next = cell + 1; next < cells.length; next++) {
+            if(species[next] != Species.EMPTY) {
+                return next;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find a free cell by its position among the free cells, counting
+     * through the free set 64 cells at a time.
+     * @param index The position among the free cells.
+     * @return The id of the free cell, or -1 if there is none.
+     */
+    public int nthFree(int index)
+    {
+        for(int word = 0; word < free.length(); word++) {
+            long mask = free.get(word);
+            int inWord = Long.bitCount(mask);
+            if(index < inWord) {
+                for(int skip = 0; skip < index; skip++) {
+                    mask &= mask - 1;
+                }
+                return (word << 6) + Long.numberOfTrailingZeros(mask);
+            }
+            index -= inWord;
+        }
+        return -1;
+    }
+
+    /**
+     * A dense storage holds every cell, so there is nothing to give back.
+     */
+    public void trim()
+    {
+    }
+}
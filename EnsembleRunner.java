@@ -0,0 +1,207 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Run many independent headless simulations at once, for example to
+ * sweep a grid of creation probabilities, and summarise the results.
+ *
+ * Every run has its own Simulator, Field and Environment, and draws its
+ * random numbers from a stream of its own, bound to the thread running
+ * it and derived from the setting's seed, the setting's index and the
+ * replicate number. The results therefore do not depend on how many
+ * threads are used or on the order the runs happen to finish in.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class EnsembleRunner
+{
+    // The threads running the simulations.
+    private final ExecutorService executor;
+
+    /**
+     * Create a runner with one thread per processor.
+     */
+    public EnsembleRunner()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a runner with the given number of threads.
+     * @param threads The number of simulations to run at once.
+     */
+    public EnsembleRunner(int threads)
+    {
+        if(threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed: " + threads);
+        }
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ensemble-run");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run every parameter setting a number of times, and wait for all
+     * the runs to finish.
+     * @param settings The parameter settings to run.
+     * @param replicates The number of runs of each setting.
+     * @return The results, ordered by setting and then by replicate.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public List<RunResult> run(List<SimulationParameters> settings, int replicates)
+        throws InterruptedException
+    {
+        List<Future<RunResult>> futures = new ArrayList<>();
+        for(int setting = 0; setting < settings.size(); setting++) {
+            for(int replicate = 0; replicate < replicates; replicate++) {
+                SimulationParameters parameters = new SimulationParameters(settings.get(setting));
+                parameters.setSeed(Randomizer.derive(parameters.getSeed(), setting, replicate));
+                int index = setting;
+                int number = replicate;
+                futures.add(executor.submit(() -> runOne(index, number, parameters)));
+            }
+        }
+        List<RunResult> results = new ArrayList<>();
+        for(Future<RunResult> future : futures) {
+            try {
+                results.add(future.get());
+            }
+            catch(ExecutionException e) {
+                throw new IllegalStateException("A run failed", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Stop the runner's threads.
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    /**
+     * Run one simulation on the calling thread, drawing its random
+     * numbers from a stream derived from the parameters' seed.
+     * @param setting The index of the parameter setting.
+     * @param replicate The replicate number.
+     * @param parameters The settings of the run.
+     * @return The outcome of the run.
+     */
+    public static RunResult runOne(int setting, int replicate, SimulationParameters parameters)
+    {
+        Random previous = Randomizer.bind(Randomizer.stream(parameters.getSeed()));
+        try {
+            long start = System.nanoTime();
+            Simulator simulator = new Simulator(parameters, true);
+            simulator.simulate(parameters.getSteps());
+            long elapsed = System.nanoTime() - start;
+            int[] counts = new int[RunResult.SPECIES.length];
+            for(int i = 0; i < counts.length; i++) {
+                counts[i] = simulator.getCount(RunResult.SPECIES[i]);
+            }
+            ChurnMetrics churn = simulator.getChurnMetrics();
+            return new RunResult(setting, replicate, parameters.getSeed(), simulator.getStep(),
+                                 counts, churn.getTotalBirths(), churn.getTotalDeaths(), elapsed);
+        }
+        finally {
+            Randomizer.bind(previous);
+        }
+    }
+
+    /**
+     * Summarise the results of a sweep: for each setting, the mean
+     * number of steps the runs lasted and the mean final population of
+     * each species.
+     * @param settings The parameter settings that were run.
+     * @param results The results of the runs.
+     * @return A table with one line per setting.
+     */
+    public static String summarise(List<SimulationParameters> settings, List<RunResult> results)
+    {
+        int columns = RunResult.SPECIES.length;
+        double[][] totals = new double[settings.size()][columns];
+        double[] steps = new double[settings.size()];
+        int[] runs = new int[settings.size()];
+        for(RunResult result : results) {
+            int setting = result.getSetting();
+            runs[setting]++;
+            steps[setting] += result.getSteps();
+            for(int i = 0; i < columns; i++) {
+                totals[setting][i] += result.getCount(i);
+            }
+        }
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-4s %5s %8s", "#", "runs", "steps"));
+        for(Class<?> species : RunResult.SPECIES) {
+            table.append(String.format(" %8s", species.getName()));
+        }
+        table.append("  settings\n");
+        for(int setting = 0; setting < settings.size(); setting++) {
+            int n = Math.max(runs[setting], 1);
+            table.append(String.format("%-4d %5d %8.1f", setting, runs[setting], steps[setting] / n));
+            for(int i = 0; i < columns; i++) {
+                table.append(String.format(" %8.1f", totals[setting][i] / n));
+            }
+            table.append("  ").append(settings.get(setting)).append('\n');
+        }
+        return table.toString();
+    }
+
+    /**
+     * Sweep the lion and zebra creation probabilities from the command
+     * line and print a summary.
+     * Usage: java EnsembleRunner [replicates [steps [threads]]]
+     * @param args The command line arguments.
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+        int replicates = 4;
+        int steps = 500;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            if(args.length >= 1) {
+                replicates = Integer.parseInt(args[0]);
+            }
+            if(args.length >= 2) {
+                steps = Integer.parseInt(args[1]);
+            }
+            if(args.length >= 3) {
+                threads = Integer.parseInt(args[2]);
+            }
+        }
+        catch(NumberFormatException e) {
+            System.out.println("Usage: java EnsembleRunner [replicates [steps [threads]]]");
+            return;
+        }
+        List<SimulationParameters> settings =
+            SimulationParameters.grid(new SimulationParameters().setSteps(steps),
+                                      new double[] { 0.03, 0.07, 0.11 },
+                                      new double[] { 0.08, 0.12, 0.16 });
+        EnsembleRunner runner = new EnsembleRunner(threads);
+        try {
+            long start = System.nanoTime();
+            List<RunResult> results = runner.run(settings, replicates);
+            long elapsed = System.nanoTime() - start;
+            System.out.print(summarise(settings, results));
+            System.out.println(results.size() + " runs on " + threads + " threads in "
+                               + (elapsed / 1000000) + " ms");
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            runner.shutdown();
+        }
+    }
+}
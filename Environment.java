@@ -0,0 +1,247 @@
+import java.util.Random;
+
+/**
+ * The time of day, season and weather of one simulation. Each simulator
+ * has its own environment and passes it to every actor as it acts, so
+ * that several simulations can run side by side in one program.
+ *
+ * Values that depend only on the time and weather, such as whether the
+ * current hour falls in a species' active hours and how likely grass is
+ * to breed, are worked out once when the environment changes rather
+ * than by every actor in every step. A species describes its active
+ * hours as a mask built once with hours(), and tests it with isActive.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class Environment
+{
+    // The number of steps in a day.
+    private static final int HOURS_PER_DAY = 24;
+    // The number of steps in a season.
+    private static final int SEASON_LENGTH = 30;
+    // How often, in hours, the rain can change.
+    private static final int RAIN_INTERVAL = 8;
+    // The rain value at which it counts as raining.
+    private static final double RAIN_THRESHOLD = 0.75;
+    // The likelihood of grass breeding when it is raining, when it has
+    // rained earlier in the season, and when it has not rained.
+    private static final double GRASS_BREEDING_IN_RAIN = 1.0;
+    private static final double GRASS_BREEDING_AFTER_RAIN = 0.7;
+    private static final double GRASS_BREEDING_IN_DROUGHT = 0.5;
+
+    // The current time of day, 0 to 23.
+    private int time;
+    // The step within the current season.
+    private int seasonTrack;
+    // The current season.
+    private int season;
+    // The current rain value.
+    private double rain;
+    // Whether it has rained during the current season.
+    private boolean rainedThisSeason;
+    // The bit of the current hour in an hours() mask.
+    private int hourBit;
+    // The current likelihood of grass breeding.
+    private double grassBreedingProbability;
+
+    /**
+     * Create an environment at midnight, before the first season.
+     */
+    public Environment()
+    {
+        reset();
+    }
+
+    /**
+     * Go back to midnight, before the first season, with no rain.
+     */
+    public void reset()
+    {
+        time = 0;
+        seasonTrack = 0;
+        season = 0;
+        rain = 0.0;
+        rainedThisSeason = false;
+        derive();
+    }
+
+    /**
+     * Build a mask of the hours from one hour to another, inclusive. If
+     * the first hour is after the last the hours wrap past midnight.
+     * @param from The first hour, 0 to 23.
+     * @param to The last hour, 0 to 23.
+     * @return The mask, with bit h set for each hour h.
+     */
+    public static int hours(int from, int to)
+    {
+        int mask = 0;
+        for(int hour = from; hour != to; hour = (hour + 1) % HOURS_PER_DAY) {
+            mask |= 1 << hour;
+        }
+        return mask | (1 << to);
+    }
+
+    /**
+     * Check whether the current hour is one of the given hours.
+     * @param hours A mask built by hours().
+     * @return True if the current hour is in the mask.
+     */
+    public boolean isActive(int hours)
+    {
+        return (hours & hourBit) != 0;
+    }
+
+    /**
+     * @return The current likelihood of grass breeding, which depends on
+     *         the rain.
+     */
+    public double getGrassBreedingProbability()
+    {
+        return grassBreedingProbability;
+    }
+
+    /**
+     * Move the clock on to a step, changing the season and the rain
+     * when they are due to change.
+     * @param step The step number.
+     * @param rand The generator to draw the rain from.
+     */
+    public void update(int step, Random rand)
+    {
+        time = step % HOURS_PER_DAY;
+        seasonTrack = step % SEASON_LENGTH;
+
+        if(seasonTrack == 0) { // Tracking length of seasons
+            rainedThisSeason = false;
+            season = (season % 4) + 1;
+        }
+
+        if((time % RAIN_INTERVAL) == 0) { // Every 8 hours, it could start raining.
+            rain = rand.nextDouble();
+            if(isRaining()) {
+                rainedThisSeason = true;
+            }
+        }
+        derive();
+    }
+
+    /**
+     * Work out the values that depend only on the time and weather.
+     */
+    private void derive()
+    {
+        hourBit = 1 << time;
+        if(isRaining()) {
+            grassBreedingProbability = GRASS_BREEDING_IN_RAIN;
+        }
+        else if(rainedThisSeason) {
+            grassBreedingProbability = GRASS_BREEDING_AFTER_RAIN;
+        }
+        else {
+            grassBreedingProbability = GRASS_BREEDING_IN_DROUGHT;
+        }
+    }
+
+    /**
+     * Get current time of day.
+     * @return The time of day, a number between 0 and 23.
+     */
+    public int getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Set the time of day, when restoring a saved simulation.
+     * @param time The time of day, 0 to 23.
+     */
+    public void setTime(int time)
+    {
+        this.time = time;
+        derive();
+    }
+
+    /**
+     * @return The step within the current season.
+     */
+    public int getSeasonTrack()
+    {
+        return seasonTrack;
+    }
+
+    /**
+     * Set the step within the current season, when restoring a saved
+     * simulation.
+     * @param seasonTrack The step within the season.
+     */
+    public void setSeasonTrack(int seasonTrack)
+    {
+        this.seasonTrack = seasonTrack;
+    }
+
+    /**
+     * Get current season.
+     * @return The number of the season, 1 to 4, or 0 before the first
+     *         season starts.
+     */
+    public int getSeason()
+    {
+        return season;
+    }
+
+    /**
+     * Set the season, when restoring a saved simulation.
+     * @param season The number of the season.
+     */
+    public void setSeason(int season)
+    {
+        this.season = season;
+    }
+
+    /**
+     * @return The current rain value, between 0 and 1.
+     */
+    public double getRain()
+    {
+        return rain;
+    }
+
+    /**
+     * Set the rain value.
+     * @param rain The rain value, between 0 and 1.
+     */
+    public void setRain(double rain)
+    {
+        this.rain = rain;
+        derive();
+    }
+
+    /**
+     * Returns whether or not it's raining.
+     * @return True if the rain value is 0.75 or more.
+     */
+    public boolean isRaining()
+    {
+        return rain >= RAIN_THRESHOLD;
+    }
+
+    /**
+     * Returns true if it has rained during the current season.
+     * @return True if it has recently rained.
+     */
+    public boolean hasRainedThisSeason()
+    {
+        return rainedThisSeason;
+    }
+
+    /**
+     * Set whether it has rained during the current season.
+     * @param rained True if it has rained.
+     */
+    public void setRainedThisSeason(boolean rained)
+    {
+        this.rainedThisSeason = rained;
+        derive();
+    }
+}
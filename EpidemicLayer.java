@@ -0,0 +1,288 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An outbreak of disease among the animals of a field, modelled as
+ * susceptible, infected and recovered animals. The health of the animal
+ * in each cell is kept in a plane, one byte per cell, which the field
+ * carries along when the animal moves and resets when the cell is
+ * cleared, so a newborn is always susceptible. The plane of a sparse
+ * field is allocated in chunks, as the field is, and only where animals
+ * are not susceptible.
+ *
+ * The layer also keeps a list of the infected animals, the front of the
+ * outbreak, and a step only visits them: each one may pass the disease
+ * to each susceptible animal next to it, and then may die of it or
+ * recover. A step therefore costs in proportion to the size of the
+ * outbreak rather than to the whole population. Animals infected in a
+ * step only pass the disease on from the next step.
+ *
+ * The plane may be changed by tiles of a parallel step as animals move,
+ * so the numbers of infected and recovered animals are counted
+ * atomically. A step of the outbreak itself runs on one thread.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class EpidemicLayer
+{
+    // The health states of an animal.
+    public static final int SUSCEPTIBLE = 0;
+    public static final int INFECTED = 1;
+    public static final int RECOVERED = 2;
+    // The share of the animals infected when the field is populated.
+    public static final double INITIAL_INFECTION = 0.01;
+    // The chance of an infected animal passing the disease to each
+    // susceptible neighbour in a step.
+    private static final double TRANSMISSION = 0.25;
+    // The chance of an infected animal dying of the disease in a step.
+    private static final double MORTALITY = 0.01;
+    // The chance of an infected animal recovering in a step.
+    private static final double RECOVERY = 0.05;
+    // Whether a species can catch the disease, once it is known.
+    private static final byte UNKNOWN = 0, HOST = 1, NOT_HOST = 2;
+
+    // The field the animals live in.
+    private final Field field;
+    // The depth and width of the field.
+    private final int depth, width;
+    // The health of the animal in each cell, indexed by cell id.
+    private final BytePlane health;
+    // The numbers of infected and recovered animals.
+    private final LongAdder infected, recovered;
+    // Whether each species, by species number, can catch the disease.
+    private final byte[] hosts;
+    // The infected animals, in the order they are visited. Animals that
+    // die stay here until the next spread drops them, which is always
+    // before their objects can be reused from the field's actor pool.
+    private List<Animal> front;
+    // The infected animals of the next step, being collected.
+    private List<Animal> nextFront;
+
+    /**
+     * Create a layer in which every animal is susceptible.
+     * @param field The field the animals live in.
+     */
+    public EpidemicLayer(Field field)
+    {
+        this.field = field;
+        depth = field.getDepth();
+        width = field.getWidth();
+        health = new BytePlane(depth, width, field.isSparse());
+        infected = new LongAdder();
+        recovered = new LongAdder();
+        hosts = new byte[Species.MAX_SPECIES + 1];
+        front = new ArrayList<>();
+        nextFront = new ArrayList<>();
+    }
+
+    /**
+     * Make every animal susceptible.
+     */
+    public void clear()
+    {
+        health.clear();
+        infected.reset();
+        recovered.reset();
+        front.clear();
+    }
+
+    /**
+     * Infect some of the animals at random, to start an outbreak.
+     * @param animals The animals to choose from.
+     * @param rand The generator to draw from.
+     */
+    public void seed(List<Actor> animals, Random rand)
+    {
+        for(Actor actor : animals) {
+            if(rand.nextDouble() < INITIAL_INFECTION) {
+                infect((Animal) actor);
+            }
+        }
+    }
+
+    /**
+     * Infect an animal, if it is susceptible.
+     * @param animal The animal to infect.
+     * @return True if the animal was infected.
+     */
+    public boolean infect(Animal animal)
+    {
+        int cell = animal.getCell();
+        if(cell < 0 || health.get(cell) != SUSCEPTIBLE) {
+            return false;
+        }
+        setHealth(cell, INFECTED);
+        front.add(animal);
+        return true;
+    }
+
+    /**
+     * Run one step of the outbreak. Every infected animal may infect
+     * each susceptible neighbour, and then may die or recover.
+     * @param rand The generator to draw from.
+     */
+    public void spread(Random rand)
+    {
+        StepEvents events = field.getEvents();
+        for(Animal source : front) {
+            int cell = source.getCell();
+            if(cell < 0 || health.get(cell) != INFECTED) {
+                // Died, or no longer infected.
+                continue;
+            }
+            int row = cell / width;
+            int col = cell - row * width;
+            for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, depth - 1); r++) {
+                for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+                    int other = r * width + c;
+                    if(health.get(other) == SUSCEPTIBLE && isHost(field.getSpecies(other))
+                       && rand.nextDouble() < TRANSMISSION) {
+                        setHealth(other, INFECTED);
+                        nextFront.add((Animal) field.getObjectAt(other));
+                        events.infect();
+                    }
+                }
+            }
+            double fate = rand.nextDouble();
+            if(fate < MORTALITY) {
+                // Clearing the cell resets its health.
+                source.setDead();
+            }
+            else if(fate < MORTALITY + RECOVERY) {
+                setHealth(cell, RECOVERED);
+            }
+            else {
+                nextFront.add(source);
+            }
+        }
+        List<Animal> visited = front;
+        front = nextFront;
+        nextFront = visited;
+        nextFront.clear();
+    }
+
+    /**
+     * @param cell A cell id.
+     * @return The health of the animal in the cell, or SUSCEPTIBLE if
+     *         the cell holds no animal.
+     */
+    public int getHealth(int cell)
+    {
+        return health.get(cell);
+    }
+
+    /**
+     * Set the health of the animal in a cell.
+     * @param cell A cell id.
+     * @param state SUSCEPTIBLE, INFECTED or RECOVERED.
+     */
+    public void setHealth(int cell, int state)
+    {
+        count(health.get(cell), -1);
+        health.set(cell, state);
+        count(state, 1);
+    }
+
+    /**
+     * Forget the health of a cell's animal, which has left the cell.
+     * @param cell A cell id.
+     */
+    public void vacate(int cell)
+    {
+        if(health.get(cell) != SUSCEPTIBLE) {
+            setHealth(cell, SUSCEPTIBLE);
+        }
+    }
+
+    /**
+     * Give back the parts of the plane of a sparse field in which every
+     * animal is susceptible. Only call this while no actors are moving.
+     */
+    public void trim()
+    {
+        health.trim();
+    }
+
+    /**
+     * @return The cells of the infected animals, in the order they are
+     *         visited.
+     */
+    public int[] getInfectedCells()
+    {
+        int[] cells = new int[front.size()];
+        int count = 0;
+        for(Animal animal : front) {
+            int cell = animal.getCell();
+            if(cell >= 0 && health.get(cell) == INFECTED) {
+                cells[count++] = cell;
+            }
+        }
+        return Arrays.copyOf(cells, count);
+    }
+
+    /**
+     * @return The number of living animals that can still catch the
+     *         disease.
+     */
+    public int getSusceptibleCount()
+    {
+        int animals = 0;
+        for(int species = 1; species < Species.count(); species++) {
+            if(isHost(species)) {
+                animals += field.getStats().getCount(species);
+            }
+        }
+        return animals - getInfectedCount() - getRecoveredCount();
+    }
+
+    /**
+     * @return The number of infected animals.
+     */
+    public int getInfectedCount()
+    {
+        return infected.intValue();
+    }
+
+    /**
+     * @return The number of recovered animals.
+     */
+    public int getRecoveredCount()
+    {
+        return recovered.intValue();
+    }
+
+    /**
+     * Change the count of animals in a health state.
+     * @param state The health state.
+     * @param change The change to the count.
+     */
+    private void count(int state, int change)
+    {
+        if(state == INFECTED) {
+            infected.add(change);
+        }
+        else if(state == RECOVERED) {
+            recovered.add(change);
+        }
+    }
+
+    /**
+     * Check whether a species can catch the disease: only animals can.
+     * @param species A species number.
+     * @return True if the species can catch the disease.
+     */
+    private boolean isHost(int species)
+    {
+        byte known = hosts[species];
+        if(known == UNKNOWN) {
+            Class<?> type = Species.getType(species);
+            known = type != null && Animal.class.isAssignableFrom(type) ? HOST : NOT_HOST;
+            hosts[species] = known;
+        }
+        return known == HOST;
+    }
+}
@@ -1,13 +1,48 @@
-import java.util.Collections;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Represent a rectangular grid of field positions.
  * Each position is able to store a single animal.
  * 
+ * Positions are identified by a cell id, where cell = row * width + col.
+ * The int-based methods work on cell ids directly and never allocate;
+ * the Location-based methods are thin adapters onto them. Cell ids are
+ * ints, so a field can have at most Integer.MAX_VALUE cells.
+ * 
+ * The occupants are held by a FieldStorage: by default a DenseStorage of
+ * flat arrays, or for large fields that are mostly empty a
+ * ChunkedStorage that only allocates the parts that are occupied.
+ * Alongside each occupant the storage keeps its species number, so that
+ * neighbour queries by species are primitive scans with no type checks
+ * and no loads of the occupants themselves.
+ * 
+ * A field may also have a vegetation layer: a plane of grass biomass
+ * lying under the animals, so that grass need not occupy their cells.
+ * 
+ * The field keeps count of its free cells, and the storage knows which
+ * they are, so that a random free cell can be found without scanning
+ * the field.
+ * 
+ * A field may also have an epidemic layer, holding the health of the
+ * animal in each cell. The field carries an animal's health along when
+ * it moves, and forgets it when its cell is cleared.
+ * 
+ * Animals that sense further than their adjacent cells look for the
+ * nearest animals of a species through a SpatialIndex, which the field
+ * keeps up to date while a sensing radius of more than one is set.
+ * 
+ * When change tracking is on, the field also records which cells have
+ * changed occupant, or whose grass in a vegetation layer has become or
+ * stopped being grazeable, since the changes were last drained, so that
+ * a view need only redraw those cells.
+ * 
+ * A sparse field keeps its layers and its record of changes in chunks
+ * too, allocated where they are used, so that none of them holds a
+ * value for every cell.
+ * 
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
@@ -15,11 +50,41 @@ public class Field
 {
     // A random number generator for providing random locations.
     private static final Random rand = Randomizer.getRandom();
+    // The number of random cells tried when looking for a free cell,
+    // before the storage counts through its free cells.
+    private static final int FREE_PROBES = 16;
+    // Row and column offsets of the eight neighbours of a cell.
+    private static final int[] ROW_OFFSETS = { -1, -1, -1, 0, 0, 1, 1, 1 };
+    private static final int[] COL_OFFSETS = { -1, 0, 1, -1, 1, -1, 0, 1 };
+    // Per-thread scratch buffers for neighbour queries.
+    private static final ThreadLocal<int[]> adjacentBuffer =
+        ThreadLocal.withInitial(() -> new int[ROW_OFFSETS.length]);
+    private static final ThreadLocal<int[]> freeBuffer =
+        ThreadLocal.withInitial(() -> new int[ROW_OFFSETS.length]);
     
     // The depth and width of the field.
     private int depth, width;
-    // Storage for the animals.
-    private Object[][] field;
+    // The occupant and species number of each cell.
+    private final FieldStorage storage;
+    // Population counts, kept up to date as animals are placed and cleared.
+    private final FieldStats stats;
+    // Kills and infections counted during the current step.
+    private final StepEvents events;
+    // Dead actors kept to be reused for newborns.
+    private final ActorPool pool;
+    // The number of free cells.
+    private final LongAdder freeCount;
+    // The cells whose occupants have changed, or null if changes are
+    // not tracked.
+    private ChangeSet changed;
+    // The grass under the animals, or null if grass lives in the cells.
+    private VegetationLayer vegetation;
+    // The health of the animals, or null if there is no disease.
+    private EpidemicLayer epidemic;
+    // The distance over which animals sense other animals.
+    private int sensingRadius = 1;
+    // Occupant counts by species and area, or null if not kept.
+    private SpatialIndex index;
 
     /**
      * Represent a field of the given dimensions.
@@ -28,9 +93,32 @@ public class Field
      */
     public Field(int depth, int width)
     {
+        this(depth, width, false);
+    }
+    
+    /**
+     * Represent a field of the given dimensions, held densely or in
+     * chunks.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param sparse True to allocate the field in chunks as they are
+     *               occupied, for large fields that are mostly empty.
+     */
+    public Field(int depth, int width, boolean sparse)
+    {
+        if(depth <= 0 || width <= 0 || (long) depth * width > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A field must have between 1 and "
+                                               + Integer.MAX_VALUE + " cells: "
+                                               + depth + "x" + width);
+        }
         this.depth = depth;
         this.width = width;
-        field = new Object[depth][width];
+        storage = sparse ? new ChunkedStorage(depth, width) : new DenseStorage(depth * width);
+        stats = new FieldStats();
+        events = new StepEvents();
+        pool = new ActorPool();
+        freeCount = new LongAdder();
+        freeCount.add(getSize());
     }
     
     /**
@@ -38,20 +126,81 @@ public class Field
      */
     public void clear()
     {
-        for(int row = 0; row < depth; row++) {
-            for(int col = 0; col < width; col++) {
-                field[row][col] = null;
+        storage.clear();
+        stats.clearCounts();
+        pool.clear();
+        if(vegetation != null) {
+            vegetation.clear();
+        }
+        if(index != null) {
+            index.clear();
+        }
+        if(epidemic != null) {
+            epidemic.clear();
+        }
+        freeCount.reset();
+        freeCount.add(getSize());
+        markAllChanged();
+    }
+    
+    /**
+     * Give back any memory held for parts of the field that have become
+     * empty. Only call this while no actors are moving.
+     */
+    public void trim()
+    {
+        storage.trim();
+        if(isSparse()) {
+            ChangeSet changes = changed;
+            if(changes != null) {
+                changes.trim();
+            }
+            if(vegetation != null) {
+                vegetation.trim();
+            }
+            if(epidemic != null) {
+                epidemic.trim();
             }
         }
     }
     
+    /**
+     * @return True if the field is allocated in chunks as it is occupied.
+     */
+    public boolean isSparse()
+    {
+        return storage instanceof ChunkedStorage;
+    }
+    
     /**
      * Clear the given location.
      * @param location The location to clear.
      */
     public void clear(Location location)
     {
-        field[location.getRow()][location.getCol()] = null;
+        clear(getCell(location.getRow(), location.getCol()));
+    }
+    
+    /**
+     * Clear the given cell.
+     * @param cell The cell id to clear.
+     */
+    public void clear(int cell)
+    {
+        Object previous = storage.get(cell);
+        if(previous != null) {
+            int number = storage.getSpecies(cell);
+            stats.decrement(number);
+            if(index != null) {
+                index.remove(cell, number);
+            }
+            if(epidemic != null) {
+                epidemic.vacate(cell);
+            }
+            storage.set(cell, null, Species.EMPTY);
+            freeCount.increment();
+            markChanged(cell);
+        }
     }
     
     /**
@@ -64,7 +213,7 @@ public class Field
      */
     public void place(Object animal, int row, int col)
     {
-        place(animal, new Location(row, col));
+        place(animal, getCell(row, col));
     }
     
     /**
@@ -76,7 +225,330 @@ public class Field
      */
     public void place(Object animal, Location location)
     {
-        field[location.getRow()][location.getCol()] = animal;
+        place(animal, getCell(location.getRow(), location.getCol()));
+    }
+    
+    /**
+     * Place an animal in the given cell.
+     * If there is already an animal in the cell it will
+     * be lost.
+     * @param animal The animal to be placed.
+     * @param cell The cell id to place the animal in.
+     */
+    public void place(Object animal, int cell)
+    {
+        Object previous = storage.get(cell);
+        if(previous != null) {
+            int previousNumber = storage.getSpecies(cell);
+            stats.decrement(previousNumber);
+            if(index != null) {
+                index.remove(cell, previousNumber);
+            }
+        }
+        int number = Species.of(animal);
+        storage.set(cell, animal, number);
+        if(animal != null) {
+            stats.increment(number);
+            if(index != null) {
+                index.add(cell, number);
+            }
+        }
+        if(previous == null && animal != null) {
+            freeCount.decrement();
+        }
+        else if(previous != null && animal == null) {
+            freeCount.increment();
+        }
+        if(previous != animal) {
+            if(epidemic != null) {
+                epidemic.vacate(cell);
+            }
+            markChanged(cell);
+        }
+    }
+    
+    /**
+     * Move an animal from one cell to another, clearing the cell it
+     * leaves. Its health in the epidemic layer goes with it.
+     * If there is already an animal in the new cell it will
+     * be lost.
+     * @param animal The animal to move.
+     * @param from The cell id it leaves.
+     * @param to The cell id it moves to.
+     */
+    public void move(Object animal, int from, int to)
+    {
+        int health = epidemic == null ? EpidemicLayer.SUSCEPTIBLE : epidemic.getHealth(from);
+        clear(from);
+        place(animal, to);
+        if(health != EpidemicLayer.SUSCEPTIBLE) {
+            epidemic.setHealth(to, health);
+        }
+    }
+    
+    /**
+     * @return The number of free cells in the field.
+     */
+    public int getFreeCount()
+    {
+        return freeCount.intValue();
+    }
+    
+    /**
+     * Choose a free cell at random. A few random cells are tried first,
+     * which finds one quickly unless the field is nearly full; then the
+     * storage counts through its free cells to pick one of them evenly.
+     * Only use this while no actors are moving.
+     * @param rand The generator to draw from.
+     * @return The id of a free cell, or -1 if the field is full.
+     */
+    public int randomFreeCell(Random rand)
+    {
+        int count = getFreeCount();
+        if(count <= 0) {
+            return -1;
+        }
+        for(int probe = 0; probe < FREE_PROBES; probe++) {
+            int cell = rand.nextInt(getSize());
+            if(storage.get(cell) == null) {
+                return cell;
+            }
+        }
+        return storage.nthFree(rand.nextInt(count));
+    }
+    
+    /**
+     * Find the next occupied cell. A dense field visits its occupied
+     * cells in ascending order; a sparse one visits them chunk by chunk,
+     * skipping the empty chunks.
+     * @param cell The previous occupied cell, or -1 to find the first.
+     * @return The next occupied cell, or -1 if there are no more.
+     */
+    public int nextOccupied(int cell)
+    {
+        return storage.nextOccupied(cell);
+    }
+    
+    /**
+     * Turn recording of changed cells on or off. When it is turned on
+     * every cell counts as changed, so that the first drain covers the
+     * whole field.
+     * @param on True if changes should be recorded.
+     */
+    public void setChangeTracking(boolean on)
+    {
+        if(on && changed == null) {
+            changed = new ChangeSet(getSize());
+            markAllChanged();
+        }
+        else if(!on) {
+            changed = null;
+        }
+        if(vegetation != null) {
+            vegetation.setChangeSet(changed);
+        }
+    }
+    
+    /**
+     * @return True if changed cells are being recorded.
+     */
+    public boolean isChangeTracking()
+    {
+        return changed != null;
+    }
+    
+    /**
+     * Copy the ids of the cells changed since the last drain into a
+     * buffer, in ascending order, and forget them.
+     * @param buffer Receives the cell ids; it must hold getSize() ids.
+     * @return The number of cell ids written, or 0 if changes are not
+     *         being recorded.
+     */
+    public int drainChanges(int[] buffer)
+    {
+        ChangeSet changes = changed;
+        return changes == null ? 0 : changes.drain(buffer);
+    }
+    
+    /**
+     * Record that a cell has changed occupant.
+     * @param cell The cell id.
+     */
+    private void markChanged(int cell)
+    {
+        ChangeSet changes = changed;
+        if(changes != null) {
+            changes.add(cell);
+        }
+    }
+    
+    /**
+     * Record that every cell has changed.
+     */
+    private void markAllChanged()
+    {
+        ChangeSet changes = changed;
+        if(changes != null) {
+            changes.addAll();
+        }
+    }
+    
+    /**
+     * Return the population counts of the field. They are kept up to
+     * date as animals are placed and cleared, so reading them never
+     * scans the field.
+     * @return The field's statistics.
+     */
+    public FieldStats getStats()
+    {
+        return stats;
+    }
+    
+    /**
+     * Return the counts of events, such as kills, that actors in the
+     * field record as they act.
+     * @return The field's event counts.
+     */
+    public StepEvents getEvents()
+    {
+        return events;
+    }
+    
+    /**
+     * Return the pool of dead actors that newborns in the field reuse.
+     * @return The field's actor pool.
+     */
+    public ActorPool getActorPool()
+    {
+        return pool;
+    }
+    
+    /**
+     * Give the field a bare vegetation layer, or take its layer away.
+     * @param on True for grass to grow in a layer under the animals,
+     *           false for grass to be kept as occupants of the cells.
+     */
+    public void setVegetation(boolean on)
+    {
+        vegetation = on ? new VegetationLayer(depth, width, isSparse()) : null;
+        if(vegetation != null) {
+            vegetation.setChangeSet(changed);
+        }
+        markAllChanged();
+    }
+    
+    /**
+     * Give the field an epidemic layer in which every animal is
+     * susceptible, or take its layer away.
+     * @param on True for the animals to catch disease through the layer,
+     *           false for them to run their own infection.
+     */
+    public void setEpidemic(boolean on)
+    {
+        epidemic = on ? new EpidemicLayer(this) : null;
+    }
+    
+    /**
+     * Return the health of the animals.
+     * @return The epidemic layer, or null if the field has none.
+     */
+    public EpidemicLayer getEpidemic()
+    {
+        return epidemic;
+    }
+    
+    /**
+     * Set the distance over which animals sense other animals. A radius
+     * of one, the default, is the adjacent cells; a larger radius makes
+     * the field keep a spatial index of its occupants.
+     * @param radius The sensing radius, at least one.
+     */
+    public void setSensingRadius(int radius)
+    {
+        if(radius < 1) {
+            throw new IllegalArgumentException("The sensing radius must be at least one: " + radius);
+        }
+        sensingRadius = radius;
+        if(radius > 1 && index == null) {
+            SpatialIndex built = new SpatialIndex(depth, width);
+            for(int cell = nextOccupied(-1); cell >= 0; cell = nextOccupied(cell)) {
+                built.add(cell, getSpecies(cell));
+            }
+            index = built;
+        }
+    }
+    
+    /**
+     * @return The distance over which animals sense other animals.
+     */
+    public int getSensingRadius()
+    {
+        return sensingRadius;
+    }
+    
+    /**
+     * Find the nearest animal of a species within a distance of a cell,
+     * through the spatial index.
+     * @param cell The cell to search from.
+     * @param wanted The species number to look for.
+     * @param radius The greatest distance to look, in steps to any of
+     *               the eight neighbours.
+     * @return The nearest cell holding the species, or -1 if there is
+     *         none within the distance.
+     */
+    public int nearestOfSpecies(int cell, int wanted, int radius)
+    {
+        return getIndex().nearest(this, cell, wanted, radius);
+    }
+    
+    /**
+     * Find the k nearest animals of a species within a distance of a
+     * cell, through the spatial index.
+     * @param cell The cell to search from.
+     * @param wanted The species number to look for.
+     * @param radius The greatest distance to look.
+     * @param buffer Receives the cells found, nearest first; at least k long.
+     * @param k The greatest number of cells wanted.
+     * @return The number of cells written to the buffer.
+     */
+    public int nearestOfSpecies(int cell, int wanted, int radius, int[] buffer, int k)
+    {
+        return getIndex().nearest(this, cell, wanted, radius, buffer, k);
+    }
+    
+    /**
+     * Return the distance between two cells, in steps to any of the
+     * eight neighbours.
+     * @param cell A cell id.
+     * @param other Another cell id.
+     * @return The distance.
+     */
+    public int getDistance(int cell, int other)
+    {
+        return Math.max(Math.abs(getRow(cell) - getRow(other)),
+                        Math.abs(getCol(cell) - getCol(other)));
+    }
+    
+    /**
+     * @return The spatial index.
+     * @throws IllegalStateException If no sensing radius of more than
+     *                               one has been set.
+     */
+    private SpatialIndex getIndex()
+    {
+        if(index == null) {
+            throw new IllegalStateException("The field keeps no spatial index; set a sensing radius first");
+        }
+        return index;
+    }
+    
+    /**
+     * Return the grass growing under the animals.
+     * @return The vegetation layer, or null if the field has none.
+     */
+    public VegetationLayer getVegetation()
+    {
+        return vegetation;
     }
     
     /**
@@ -97,7 +569,78 @@ public class Field
      */
     public Object getObjectAt(int row, int col)
     {
-        return field[row][col];
+        return storage.get(getCell(row, col));
+    }
+    
+    /**
+     * Return the animal in the given cell, if any.
+     * @param cell The cell id.
+     * @return The animal in the given cell, or null if there is none.
+     */
+    public Object getObjectAt(int cell)
+    {
+        return storage.get(cell);
+    }
+    
+    /**
+     * Return the species number of the occupant of a cell.
+     * @param cell The cell id.
+     * @return The species number, or Species.EMPTY if the cell is free.
+     */
+    public int getSpecies(int cell)
+    {
+        return storage.getSpecies(cell);
+    }
+    
+    /**
+     * Return the cell id of a row and column.
+     * @param row The row.
+     * @param col The column.
+     * @return The cell id, row * width + col.
+     */
+    public int getCell(int row, int col)
+    {
+        return row * width + col;
+    }
+    
+    /**
+     * Return the row of a cell.
+     * @param cell The cell id.
+     * @return The row the cell lies in.
+     */
+    public int getRow(int cell)
+    {
+        return cell / width;
+    }
+    
+    /**
+     * Return the column of a cell.
+     * @param cell The cell id.
+     * @return The column the cell lies in.
+     */
+    public int getCol(int cell)
+    {
+        return cell % width;
+    }
+    
+    /**
+     * Return the location of a cell. This allocates a new Location,
+     * so it should be kept out of the hot paths.
+     * @param cell The cell id.
+     * @return The location of the cell.
+     */
+    public Location getLocation(int cell)
+    {
+        return new Location(cell / width, cell % width);
+    }
+    
+    /**
+     * Return the number of cells in the field.
+     * @return depth * width.
+     */
+    public int getSize()
+    {
+        return depth * width;
     }
     
     /**
@@ -121,14 +664,9 @@ public class Field
      */
     public List<Location> getFreeAdjacentLocations(Location location)
     {
-        List<Location> free = new LinkedList<>();
-        List<Location> adjacent = adjacentLocations(location);
-        for(Location next : adjacent) {
-            if(getObjectAt(next) == null) {
-                free.add(next);
-            }
-        }
-        return free;
+        int[] free = getFreeBuffer();
+        int count = freeAdjacentCells(getCell(location.getRow(), location.getCol()), free);
+        return toLocations(free, count);
     }
     
     /**
@@ -141,10 +679,9 @@ public class Field
      */
     public Location freeAdjacentLocation(Location location)
     {
-        // The available free ones.
-        List<Location> free = getFreeAdjacentLocations(location);
-        if(free.size() > 0) {
-            return free.get(0);
+        int cell = freeAdjacentCell(getCell(location.getRow(), location.getCol()));
+        if(cell >= 0) {
+            return getLocation(cell);
         }
         else {
             return null;
@@ -161,27 +698,144 @@ public class Field
     public List<Location> adjacentLocations(Location location)
     {
         assert location != null : "Null location passed to adjacentLocations";
-        // The list of locations to be returned.
-        List<Location> locations = new LinkedList<>();
-        if(location != null) {
-            int row = location.getRow();
-            int col = location.getCol();
-            for(int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
-                        }
-                    }
+        if(location == null) {
+            return new LinkedList<>();
+        }
+        int[] adjacent = getAdjacentBuffer();
+        int count = adjacentCells(getCell(location.getRow(), location.getCol()), adjacent);
+        return toLocations(adjacent, count);
+    }
+    
+    /**
+     * Fill the buffer with the cells adjacent to the given one, in a
+     * random order. The cell itself is not included and all cells lie
+     * within the grid. Nothing is allocated.
+     * @param cell The cell from which to generate adjacencies.
+     * @param buffer Receives the adjacent cell ids; at least 8 long.
+     * @return The number of adjacent cells written to the buffer.
+     */
+    public int adjacentCells(int cell, int[] buffer)
+    {
+        int row = cell / width;
+        int col = cell % width;
+        int count = 0;
+        if(row > 0 && row < depth - 1 && col > 0 && col < width - 1) {
+            // Interior cell: every neighbour is valid.
+            for(int i = 0; i < ROW_OFFSETS.length; i++) {
+                buffer[count++] = cell + ROW_OFFSETS[i] * width + COL_OFFSETS[i];
+            }
+        }
+        else {
+            for(int i = 0; i < ROW_OFFSETS.length; i++) {
+                int nextRow = row + ROW_OFFSETS[i];
+                int nextCol = col + COL_OFFSETS[i];
+                if(nextRow >= 0 && nextRow < depth && nextCol >= 0 && nextCol < width) {
+                    buffer[count++] = nextRow * width + nextCol;
                 }
             }
-            
-            // Shuffle the list. Several other methods rely on the list
-            // being in a random order.
-            Collections.shuffle(locations, rand);
+        }
+        
+        // Shuffle the cells. Several other methods rely on them
+        // being in a random order. This draws the same random numbers
+        // as Collections.shuffle, so the order matches adjacentLocations.
+        for(int i = count; i > 1; i--) {
+            int j = rand.nextInt(i);
+            int tmp = buffer[i - 1];
+            buffer[i - 1] = buffer[j];
+            buffer[j] = tmp;
+        }
+        return count;
+    }
+    
+    /**
+     * Fill the buffer with the free cells adjacent to the given one,
+     * in a random order. Nothing is allocated.
+     * @param cell The cell from which to generate adjacencies.
+     * @param buffer Receives the free adjacent cell ids; at least 8 long.
+     * @return The number of free adjacent cells written to the buffer.
+     */
+    public int freeAdjacentCells(int cell, int[] buffer)
+    {
+        int count = adjacentCells(cell, buffer);
+        int free = 0;
+        for(int i = 0; i < count; i++) {
+            if(storage.get(buffer[i]) == null) {
+                buffer[free++] = buffer[i];
+            }
+        }
+        return free;
+    }
+    
+    /**
+     * Fill the buffer with the adjacent cells whose occupants are of a
+     * given species, in a random order. This draws the same random
+     * numbers as adjacentCells. Nothing is allocated.
+     * @param cell The cell from which to generate adjacencies.
+     * @param wanted The species number to look for.
+     * @param buffer Receives the matching cell ids; at least 8 long.
+     * @return The number of matching cells written to the buffer.
+     */
+    public int adjacentCellsOfSpecies(int cell, int wanted, int[] buffer)
+    {
+        int count = adjacentCells(cell, buffer);
+        int found = 0;
+        for(int i = 0; i < count; i++) {
+            if(storage.getSpecies(buffer[i]) == wanted) {
+                buffer[found++] = buffer[i];
+            }
+        }
+        return found;
+    }
+    
+    /**
+     * Try to find a free cell that is adjacent to the given cell.
+     * @param cell The cell from which to generate an adjacency.
+     * @return A free adjacent cell id, or -1 if there is none.
+     */
+    public int freeAdjacentCell(int cell)
+    {
+        int[] free = getFreeBuffer();
+        if(freeAdjacentCells(cell, free) > 0) {
+            return free[0];
+        }
+        else {
+            return -1;
+        }
+    }
+    
+    /**
+     * Return this thread's scratch buffer for adjacent cells.
+     * Callers may use it for the results of adjacentCells instead of
+     * allocating their own.
+     * @return A buffer large enough for a full neighbourhood.
+     */
+    public static int[] getAdjacentBuffer()
+    {
+        return adjacentBuffer.get();
+    }
+    
+    /**
+     * Return this thread's scratch buffer for free cells. It is
+     * separate from the adjacent buffer so that an actor can hold its
+     * free cells while it looks around its neighbourhood.
+     * @return A buffer large enough for a full neighbourhood.
+     */
+    public static int[] getFreeBuffer()
+    {
+        return freeBuffer.get();
+    }
+    
+    /**
+     * Convert cell ids into a list of locations.
+     * @param buffer The cell ids.
+     * @param count How many of the cell ids to convert.
+     * @return A list of the corresponding locations.
+     */
+    private List<Location> toLocations(int[] buffer, int count)
+    {
+        List<Location> locations = new LinkedList<>();
+        for(int i = 0; i < count; i++) {
+            locations.add(getLocation(buffer[i]));
         }
         return locations;
     }
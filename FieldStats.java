@@ -1,29 +1,34 @@
 import java.awt.Color;
-import java.util.HashMap;
 
 /**
- * This class collects and provides some statistical data on the state 
- * of a field. It is flexible: it will create and maintain a counter 
+ * This class collects and provides some statistical data on the state
+ * of a field. It is flexible: it will create and maintain a counter
  * for any class of object that is found within the field.
- * 
+ *
+ * The statistics of a Field are kept up to date incrementally as
+ * participants are placed and cleared, so population and viability
+ * queries cost O(species) rather than O(cells). A stand-alone FieldStats
+ * can still be filled by scanning a field on demand.
+ *
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
 public class FieldStats
 {
-    // Counters for each type of entity (fox, rabbit, etc.) in the simulation.
-    private HashMap<Class, Counter> counters;
+    // Counters for each species (fox, rabbit, etc.) in the simulation,
+    // indexed by species number.
+    private final Counter[] counters;
     // Whether the counters are currently up to date.
-    private boolean countsValid;
+    private volatile boolean countsValid;
 
     /**
      * Construct a FieldStats object.
      */
     public FieldStats()
     {
-        // Set up a collection for counters for each type of animal that
+        // Set up room for a counter for each species that
         // we might find
-        counters = new HashMap<>();
+        counters = new Counter[Species.MAX_SPECIES + 1];
         countsValid = true;
     }
 
@@ -33,30 +38,55 @@ public class FieldStats
      */
     public String getPopulationDetails(Field field)
     {
-        StringBuffer buffer = new StringBuffer();
+        StringBuilder buffer = new StringBuilder();
         if(!countsValid) {
             generateCounts(field);
         }
-        for(Class key : counters.keySet()) {
-            Counter info = counters.get(key);
-            buffer.append(info.getName());
-            buffer.append(": ");
-            buffer.append(info.getCount());
+        for(Counter info : counters) {
+            if(info != null) {
+                buffer.append(info.getName());
+                buffer.append(": ");
+                buffer.append(info.getCount());
+                buffer.append(' ');
+            }
+        }
+        VegetationLayer vegetation = field.getVegetation();
+        if(vegetation != null) {
+            buffer.append("Grass cover: ");
+            buffer.append(vegetation.getCover());
+            buffer.append(' ');
+        }
+        EpidemicLayer epidemic = field.getEpidemic();
+        if(epidemic != null) {
+            buffer.append("Infected: ");
+            buffer.append(epidemic.getInfectedCount());
+            buffer.append(" Recovered: ");
+            buffer.append(epidemic.getRecoveredCount());
             buffer.append(' ');
         }
         return buffer.toString();
     }
-    
+
     /**
-     * Invalidate the current set of statistics; reset all 
+     * Invalidate the current set of statistics; reset all
      * counts to zero.
      */
     public void reset()
     {
         countsValid = false;
-        for(Class key : counters.keySet()) {
-            Counter count = counters.get(key);
-            count.reset();
+        clearCounts();
+    }
+
+    /**
+     * Reset all counts to zero, leaving them valid. This matches an
+     * empty field.
+     */
+    public void clearCounts()
+    {
+        for(Counter count : counters) {
+            if(count != null) {
+                count.reset();
+            }
         }
     }
 
@@ -66,14 +96,46 @@ public class FieldStats
      */
     public void incrementCount(Class animalClass)
     {
-        Counter count = counters.get(animalClass);
-        if(count == null) {
-            // We do not have a counter for this species yet.
-            // Create one.
-            count = new Counter(animalClass.getName());
-            counters.put(animalClass, count);
-        }
-        count.increment();
+        increment(Species.of(animalClass));
+    }
+
+    /**
+     * Increment the count for one species.
+     * @param species The species number.
+     */
+    public void increment(int species)
+    {
+        getCounter(species).increment();
+    }
+
+    /**
+     * Decrement the count for one species.
+     * @param species The species number.
+     */
+    public void decrement(int species)
+    {
+        getCounter(species).decrement();
+    }
+
+    /**
+     * Return the count for one class of animal.
+     * @param animalClass The class of animal.
+     * @return How many of them are in the field.
+     */
+    public int getCount(Class animalClass)
+    {
+        return getCount(Species.of(animalClass));
+    }
+
+    /**
+     * Return the count for one species.
+     * @param species The species number.
+     * @return How many of them are in the field.
+     */
+    public int getCount(int species)
+    {
+        Counter count = counters[species];
+        return count == null ? 0 : count.getCount();
     }
 
     /**
@@ -96,32 +158,49 @@ public class FieldStats
         if(!countsValid) {
             generateCounts(field);
         }
-        for(Class key : counters.keySet()) {
-            Counter info = counters.get(key);
-            if(info.getCount() > 0) {
+        for(Counter info : counters) {
+            if(info != null && info.getCount() > 0) {
                 nonZero++;
             }
         }
         return nonZero > 1;
     }
-    
+
+    /**
+     * Return the counter for a species, creating it if this is the
+     * first time the species has been counted.
+     * @param species The species number.
+     * @return The species' counter.
+     */
+    private Counter getCounter(int species)
+    {
+        Counter count = counters[species];
+        if(count == null) {
+            synchronized(counters) {
+                count = counters[species];
+                if(count == null) {
+                    // We do not have a counter for this species yet.
+                    // Create one.
+                    count = new Counter(Species.getType(species).getName());
+                    counters[species] = count;
+                }
+            }
+        }
+        return count;
+    }
+
     /**
-     * Generate counts of the number of foxes and rabbits.
-     * These are not kept up to date as foxes and rabbits
-     * are placed in the field, but only when a request
-     * is made for the information.
+     * Generate counts of the number of foxes and rabbits
+     * by scanning the whole field. The statistics of a Field are kept
+     * up to date as animals are placed in it, so this is only needed
+     * when the counts have been invalidated by reset.
      * @param field The field to generate the stats for.
      */
     private void generateCounts(Field field)
     {
         reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    incrementCount(animal.getClass());
-                }
-            }
+        for(int cell = field.nextOccupied(-1); cell >= 0; cell = field.nextOccupied(cell)) {
+            incrementCount(field.getObjectAt(cell).getClass());
         }
         countsValid = true;
     }
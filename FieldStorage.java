@@ -0,0 +1,64 @@
+/**
+ * Where a field keeps the occupant of each cell and the occupant's
+ * species number. A dense storage holds every cell in flat arrays; a
+ * chunked storage holds only the parts of the field that have been
+ * occupied, for large fields that are mostly empty.
+ *
+ * Cells of different tiles may be set at the same time by a parallel
+ * step, so set must be safe for different cells on different threads.
+ * The other changes, clear and trim, are only made while no actors are
+ * moving.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public interface FieldStorage
+{
+    /**
+     * @param cell A cell id.
+     * @return The occupant of the cell, or null if it is free.
+     */
+    Object get(int cell);
+
+    /**
+     * @param cell A cell id.
+     * @return The species number of the cell's occupant, or
+     *         Species.EMPTY if it is free.
+     */
+    int getSpecies(int cell);
+
+    /**
+     * Put an occupant in a cell, replacing any occupant already there.
+     * @param cell A cell id.
+     * @param occupant The new occupant, or null to free the cell.
+     * @param species The species number of the occupant.
+     */
+    void set(int cell, Object occupant, int species);
+
+    /**
+     * Free every cell.
+     */
+    void clear();
+
+    /**
+     * Find the next occupied cell, in the storage's own order. Cells
+     * that are known to be empty, such as whole chunks, are skipped.
+     * @param cell The previous occupied cell, or -1 to find the first.
+     * @return The next occupied cell, or -1 if there are no more.
+     */
+    int nextOccupied(int cell);
+
+    /**
+     * Find a free cell by its position among the free cells.
+     * @param index The position, from 0 to one less than the number of
+     *              free cells.
+     * @return The id of the index'th free cell, or -1 if there are not
+     *         that many free cells.
+     */
+    int nthFree(int index);
+
+    /**
+     * Give back any memory held for parts of the field that are empty.
+     */
+    void trim();
+}
@@ -0,0 +1,76 @@
+/**
+ * A small ring buffer of frame snapshots between the simulation, which
+ * publishes one snapshot per step, and the view, which draws them when
+ * it can. Publishing never waits: when the buffer is full the oldest
+ * snapshot is dropped. The view only ever wants the newest snapshot,
+ * so taking it drops any older ones still waiting.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class FrameBuffer
+{
+    // The waiting snapshots, oldest first from head.
+    private final FrameSnapshot[] frames;
+    // The position of the oldest waiting snapshot.
+    private int head;
+    // The number of waiting snapshots.
+    private int count;
+    // The number of snapshots dropped without being drawn.
+    private long dropped;
+
+    /**
+     * Create a buffer.
+     * @param capacity The most snapshots that can wait at once.
+     */
+    public FrameBuffer(int capacity)
+    {
+        if(capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+        }
+        frames = new FrameSnapshot[capacity];
+    }
+
+    /**
+     * Add a snapshot, dropping the oldest one if the buffer is full.
+     * @param frame The snapshot to add.
+     */
+    public synchronized void publish(FrameSnapshot frame)
+    {
+        if(count == frames.length) {
+            frames[head] = null;
+            head = (head + 1) % frames.length;
+            count--;
+            dropped++;
+        }
+        frames[(head + count) % frames.length] = frame;
+        count++;
+    }
+
+    /**
+     * Take the newest snapshot and drop any older ones.
+     * @return The newest snapshot, or null if none is waiting.
+     */
+    public synchronized FrameSnapshot takeLatest()
+    {
+        if(count == 0) {
+            return null;
+        }
+        FrameSnapshot latest = frames[(head + count - 1) % frames.length];
+        dropped += count - 1;
+        for(int i = 0; i < count; i++) {
+            frames[(head + i) % frames.length] = null;
+        }
+        head = 0;
+        count = 0;
+        return latest;
+    }
+
+    /**
+     * @return The number of snapshots dropped without being taken.
+     */
+    public synchronized long getDropped()
+    {
+        return dropped;
+    }
+}
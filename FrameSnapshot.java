@@ -0,0 +1,137 @@
+/**
+ * An immutable picture of the field at the end of one step, and the
+ * population details. The simulation publishes snapshots and the view
+ * draws them, so the view never reads the live field.
+ *
+ * A full snapshot holds the species number of every cell. Most
+ * snapshots only hold the cells whose species changed since the
+ * snapshot before, and the species now in each, so publishing a step
+ * and drawing it cost time in proportion to what changed. The view can
+ * only use such a snapshot on top of the one before it, so after a
+ * snapshot has been dropped it asks for a full one.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class FrameSnapshot
+{
+    // The step the snapshot was taken at.
+    private final int step;
+    // The width of the field.
+    private final int width;
+    // The number of cells in the field.
+    private final int size;
+    // The ids of the changed cells, in ascending order, or null for a
+    // full snapshot.
+    private final int[] cells;
+    // The species number of each changed cell, in the order of cells,
+    // or of every cell of a full snapshot, indexed by cell id.
+    private final byte[] species;
+    // The population details at the time of the snapshot.
+    private final String population;
+
+    /**
+     * Create a full snapshot. The species array is taken over by the
+     * snapshot and must not be changed afterwards.
+     * @param step The step the snapshot was taken at.
+     * @param width The width of the field.
+     * @param species The species number of each cell.
+     * @param population The population details.
+     */
+    public FrameSnapshot(int step, int width, byte[] species, String population)
+    {
+        this(step, width, species.length, null, species, population);
+    }
+
+    /**
+     * Create a snapshot of the cells that changed since the snapshot
+     * before. The arrays are taken over by the snapshot and must not be
+     * changed afterwards.
+     * @param step The step the snapshot was taken at.
+     * @param width The width of the field.
+     * @param size The number of cells in the field.
+     * @param cells The ids of the changed cells, in ascending order, or
+     *              null if species holds every cell.
+     * @param species The species number of each changed cell.
+     * @param population The population details.
+     */
+    public FrameSnapshot(int step, int width, int size, int[] cells, byte[] species, String population)
+    {
+        this.step = step;
+        this.width = width;
+        this.size = size;
+        this.cells = cells;
+        this.species = species;
+        this.population = population;
+    }
+
+    /**
+     * @return The step the snapshot was taken at.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The width of the field.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * @return The number of cells in the field.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * @return True if the snapshot holds every cell, false if it only
+     *         holds the cells that changed.
+     */
+    public boolean isFull()
+    {
+        return cells == null;
+    }
+
+    /**
+     * @return The number of cells the snapshot holds.
+     */
+    public int getCount()
+    {
+        return species.length;
+    }
+
+    /**
+     * Return the id of one of the cells the snapshot holds.
+     * @param i The position of the cell in the snapshot, from 0 to
+     *          getCount() - 1; in a full snapshot this is the cell id.
+     * @return The cell id.
+     */
+    public int getCell(int i)
+    {
+        return cells == null ? i : cells[i];
+    }
+
+    /**
+     * Return the species number of one of the cells the snapshot holds.
+     * @param i The position of the cell in the snapshot.
+     * @return The species number, or Species.EMPTY.
+     */
+    public int getSpecies(int i)
+    {
+        return species[i];
+    }
+
+    /**
+     * @return The population details at the time of the snapshot.
+     */
+    public String getPopulation()
+    {
+        return population;
+    }
+}
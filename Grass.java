@@ -17,18 +17,13 @@ public class Grass extends Plant
     private static final int BREEDING_AGE = 2;
     // The age to which a Grass can live.
     private static final int MAX_AGE = 200;
-    // The likelihood of a Grass breeding.
-    private static double BREEDING_PROBABILITY = 0.75;
     // The maximum number of births.
     private static final int MAX_LITTER_SIZE = 3;
     // A shared random number generator to control breeding.
     private static final Random rand = Randomizer.getRandom();
+    // The hours of the day in which the Grass is active.
+    private static final int ACTIVE_HOURS = Environment.hours(6, 20);
     
-    // Individual characteristics (instance fields).
-    // The Grass's age.
-    private int age;
-    // The Grass's food level, which is increased by eating zebras.
- 
 
     /**
      * Create a Grass. A Grass can be created as a new born (age zero
@@ -40,7 +35,34 @@ public class Grass extends Plant
      */
     public Grass(boolean randomAge, Field field, Location location)
     {
-        super(field, location);
+        this(randomAge, field, field.getCell(location.getRow(), location.getCol()));
+    }
+
+    /**
+     * Create a Grass in a cell. A Grass can be created as a new born
+     * (age zero) or with a random age.
+     * 
+     * @param randomAge If true, the Grass will have a random age.
+     * @param field The field currently occupied.
+     * @param cell The cell id within the field.
+     */
+    public Grass(boolean randomAge, Field field, int cell)
+    {
+        reset(randomAge, field, cell);
+    }
+
+    /**
+     * Make this Grass a new Grass, as the constructor does. The object
+     * of a dead Grass taken from the field's actor pool is reset to
+     * grow again.
+     * 
+     * @param randomAge If true, the Grass will have a random age.
+     * @param field The field currently occupied.
+     * @param cell The cell id within the field.
+     */
+    public void reset(boolean randomAge, Field field, int cell)
+    {
+        reset(field, cell);
         age = 0;
         if(randomAge) {
             age = rand.nextInt(MAX_AGE);
@@ -53,24 +75,34 @@ public class Grass extends Plant
      * or die of old age.
      * @param field The field currently occupied.
      * @param newGrass A list to return newly born Grass.
+     * @param environment The time and weather of the current step.
      */
-    public void act(List<Actor> newActors)
+    public void act(List<Actor> newActors, Environment environment)
     {
         incrementAge();
-        if (Simulator.getTime() >= 6 && Simulator.getTime() <= 20) {
+        if (environment.isActive(ACTIVE_HOURS)) {
             if(isAlive()) {
-                giveBirth(newActors);           
+                // The likelihood of breeding depends on the rain.
+                giveBirth(newActors, environment.getGrassBreedingProbability());           
             }
         }
-        if (Simulator.getRain()) {
-            BREEDING_PROBABILITY = 1.0;
-        }
-        else if (Simulator.rainedThisSeason()) {
-            BREEDING_PROBABILITY = 0.7;
-        }
-        else {
-            BREEDING_PROBABILITY = 0.5;
-        }
+    }
+
+    /**
+     * Outside its active hours Grass only ages.
+     * @param environment The time and weather of the current step.
+     */
+    public void rest(Environment environment)
+    {
+        incrementAge();
+    }
+
+    /**
+     * @return The hours of the day in which the Grass breeds.
+     */
+    public int getActiveHours()
+    {
+        return ACTIVE_HOURS;
     }
 
     /**
@@ -88,17 +120,25 @@ public class Grass extends Plant
      * Check whether or not this Grass is to give birth at this step.
      * New births will be made into free adjacent locations.
      * @param newGrass A list to return newly born Grass.
+     * @param breedingProbability The likelihood of breeding.
      */
-    private void giveBirth(List<Actor> newGrass)
+    private void giveBirth(List<Actor> newGrass, double breedingProbability)
     {
         // New Grass are born into adjacent locations.
         // Get a list of adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
-        int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Grass young = new Grass(false, field, loc);
+        ActorPool pool = field.getActorPool();
+        int[] free = Field.getFreeBuffer();
+        int freeCount = field.freeAdjacentCells(getCell(), free);
+        int births = breed(breedingProbability);
+        for(int b = 0; b < births && b < freeCount; b++) {
+            Grass young = pool.take(Grass.class);
+            if(young == null) {
+                young = new Grass(false, field, free[b]);
+            }
+            else {
+                young.reset(false, field, free[b]);
+            }
             newGrass.add(young);
         }
     }
@@ -123,16 +163,4 @@ public class Grass extends Plant
     public boolean canBreed() {
         return age >= BREEDING_AGE;
     }
-    
-    /**
-     * PLace the Grass object in a Location within the field.
-     */
-    public void setLocation(Location newLocation)
-    {
-        if(location != null) {
-            field.clear(location);
-        }
-        location = newLocation;
-        field.place(this, newLocation);
-    }
 }
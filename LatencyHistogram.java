@@ -0,0 +1,166 @@
+import java.util.Arrays;
+
+/**
+ * A histogram of durations in nanoseconds, in the style of HdrHistogram.
+ * Values below 2^PRECISION_BITS are counted exactly; above that, each
+ * power of two is divided into 2^(PRECISION_BITS - 1) equal buckets, so
+ * every value is counted to within about 1.6% of itself however large it
+ * is. Recording a value finds its bucket with a few shifts and bumps a
+ * counter, without allocating.
+ *
+ * A histogram is recorded by one thread at a time. Other threads may
+ * read it meanwhile, and then see it as it was at some recent point.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class LatencyHistogram
+{
+    // The number of bits of a value that are kept.
+    private static final int PRECISION_BITS = 7;
+    // The number of values counted exactly.
+    private static final int EXACT = 1 << PRECISION_BITS;
+    // The number of buckets in each power of two above the exact values.
+    private static final int HALF = EXACT >>> 1;
+    // The number of buckets needed for any positive long.
+    private static final int BUCKETS = (Long.SIZE - PRECISION_BITS + 1) * HALF;
+
+    // The number of values in each bucket.
+    private final long[] counts;
+    // The number of values recorded, and their sum.
+    private long total, sum;
+    // The smallest and largest values recorded.
+    private long min, max;
+
+    /**
+     * Create an empty histogram.
+     */
+    public LatencyHistogram()
+    {
+        counts = new long[BUCKETS];
+        reset();
+    }
+
+    /**
+     * Record a value. Negative values are counted as zero.
+     * @param value The value, in nanoseconds.
+     */
+    public void record(long value)
+    {
+        if(value < 0) {
+            value = 0;
+        }
+        counts[bucketOf(value)]++;
+        total++;
+        sum += value;
+        if(value < min) {
+            min = value;
+        }
+        if(value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Forget every value recorded.
+     */
+    public void reset()
+    {
+        Arrays.fill(counts, 0);
+        total = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * @return The number of values recorded.
+     */
+    public long getCount()
+    {
+        return total;
+    }
+
+    /**
+     * @return The sum of the values recorded.
+     */
+    public long getSum()
+    {
+        return sum;
+    }
+
+    /**
+     * @return The mean of the values recorded, or 0 if there are none.
+     */
+    public double getMean()
+    {
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    /**
+     * @return The smallest value recorded, or 0 if there are none.
+     */
+    public long getMin()
+    {
+        return total == 0 ? 0 : min;
+    }
+
+    /**
+     * @return The largest value recorded.
+     */
+    public long getMax()
+    {
+        return max;
+    }
+
+    /**
+     * Return the value that the given percentage of the recorded values
+     * are at or below, to the precision of the histogram.
+     * @param percentile The percentage, from 0 to 100.
+     * @return The value, or 0 if nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile)
+    {
+        long count = total;
+        if(count == 0) {
+            return 0;
+        }
+        double share = Math.min(Math.max(percentile, 0), 100) / 100;
+        long wanted = Math.max(1, (long) Math.ceil(share * count));
+        long seen = 0;
+        for(int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if(seen >= wanted) {
+                return Math.min(highestIn(bucket), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @param value A value, not negative.
+     * @return The bucket counting the value.
+     */
+    private static int bucketOf(long value)
+    {
+        if(value < EXACT) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - Long.numberOfLeadingZeros(value) - PRECISION_BITS;
+        return shift * HALF + (int) (value >>> shift);
+    }
+
+    /**
+     * @param bucket A bucket.
+     * @return The largest value counted in the bucket.
+     */
+    private static long highestIn(int bucket)
+    {
+        if(bucket < EXACT) {
+            return bucket;
+        }
+        int shift = bucket / HALF - 1;
+        long first = (long) (bucket - shift * HALF) << shift;
+        return first + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,303 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Run the actors of one step in parallel.
+ * The field is divided into square tiles which are coloured in a
+ * 2x2 pattern, so two tiles of the same colour are always at least one
+ * whole tile apart. The four colours are run one after another, and
+ * all tiles of one colour are run at the same time on a ForkJoinPool.
+ *
+ * An actor only touches cells within two of its starting cell (it may
+ * move and then look around its new position), so as long as tiles are
+ * at least MIN_TILE_SIZE wide, tiles running together never touch the
+ * same cells. Animals that sense further than their adjacent cells read
+ * cells further away, so tileSizeFor gives a tile size that keeps the
+ * cells one tile reads apart from those another one changes.
+ *
+ * Only the tiles holding actors are kept, in a map by tile index, so a
+ * large field that is mostly empty costs time and memory in proportion
+ * to the tiles in use rather than to its size. Within a tile the actors
+ * are run by the StepScheduler, so species outside their active hours
+ * are rested rather than run.
+ * 
+ * Each tile draws its random numbers from its own stream, derived by
+ * Randomizer from the seed, the step and the tile, and newborns are merged in tile order. The
+ * result of a step therefore depends only on the seed, not on the
+ * number of threads or on how the tiles were scheduled.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class ParallelStepEngine
+{
+    // The default width and depth of a tile.
+    public static final int DEFAULT_TILE_SIZE = 16;
+    // The smallest tile size that keeps same-coloured tiles apart.
+    public static final int MIN_TILE_SIZE = 4;
+    // The number of rows of a vegetation layer grown as one task.
+    private static final int VEGETATION_BAND = 64;
+
+    // The pool running the tiles.
+    private final ForkJoinPool pool;
+    // The width and depth of a tile.
+    private final int tileSize;
+    // The seed the tile streams are derived from.
+    private final long seed;
+    /**
+     * The actors of one tile and the newborns of the current step.
+     */
+    private static class Tile
+    {
+        // The index of the tile, row by row.
+        final int index;
+        // The actors in the tile at the start of the step.
+        final List<Actor> actors = new ArrayList<>();
+        // The actors born in the tile during the step.
+        final List<Actor> newborns = new ArrayList<>();
+
+        /**
+         * Create an empty tile.
+         * @param index The index of the tile, row by row.
+         */
+        Tile(int index)
+        {
+            this.index = index;
+        }
+    }
+
+    // The tiles that held actors in the last step, by tile index,
+    // reused between steps.
+    private final Map<Integer, Tile> tiles = new HashMap<>();
+    // The number of tiles across and down the field the tiles were made for.
+    private int tilesAcross, tilesDown;
+    // The profiler counting the actors of each tile, or null.
+    private StepProfiler profiler;
+
+    /**
+     * Create an engine using the given number of threads and the
+     * default tile size.
+     * @param threads The number of threads to run tiles on.
+     * @param seed The seed the tile streams are derived from.
+     */
+    public ParallelStepEngine(int threads, long seed)
+    {
+        this(threads, DEFAULT_TILE_SIZE, seed);
+    }
+
+    /**
+     * Create an engine using the given number of threads and tile size.
+     * @param threads The number of threads to run tiles on.
+     * @param tileSize The width and depth of a tile, at least MIN_TILE_SIZE.
+     * @param seed The seed the tile streams are derived from.
+     */
+    public ParallelStepEngine(int threads, int tileSize, long seed)
+    {
+        if(threads < 1) {
+            throw new IllegalArgumentException("At least one thread is needed: " + threads);
+        }
+        if(tileSize < MIN_TILE_SIZE) {
+            throw new IllegalArgumentException("Tiles must be at least " + MIN_TILE_SIZE
+                                               + " cells wide: " + tileSize);
+        }
+        pool = new ForkJoinPool(threads);
+        this.tileSize = tileSize;
+        this.seed = seed;
+    }
+
+    /**
+     * Count the actors that act and rest in each tile.
+     * @param profiler The profiler to count them for, or null for none.
+     */
+    public void setProfiler(StepProfiler profiler)
+    {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Return a tile size at which tiles running together never touch
+     * each other's cells, when animals sense other animals over the
+     * given distance. An actor changes cells within two of its starting
+     * cell, and so must not read cells that close to a neighbouring
+     * tile of the same colour.
+     * @param sensingRadius The distance over which animals sense.
+     * @return The tile size to use.
+     */
+    public static int tileSizeFor(int sensingRadius)
+    {
+        return Math.max(DEFAULT_TILE_SIZE, sensingRadius + 2);
+    }
+
+    /**
+     * Let all the given actors act for one step, removing those that
+     * die, into the field's actor pool, and collecting those that are
+     * born.
+     * @param field The field the actors live in.
+     * @param actors The actors to run. Dead actors are removed.
+     * @param newActors A list to receive newly born actors.
+     * @param environment The time and weather of the step.
+     * @param step The current step, used to seed the tile streams.
+     * @param phase Distinguishes separate calls within one step, so
+     *              that they use different streams.
+     * @return The number of dead actors removed.
+     */
+    public int step(Field field, List<Actor> actors, List<Actor> newActors,
+                    Environment environment, int step, int phase)
+    {
+        prepareTiles(field);
+        for(Actor actor : actors) {
+            int cell = actor.getCell();
+            if(cell >= 0) {
+                int index = (field.getRow(cell) / tileSize) * tilesAcross + field.getCol(cell) / tileSize;
+                Tile tile = tiles.get(index);
+                if(tile == null) {
+                    tile = new Tile(index);
+                    tiles.put(index, tile);
+                }
+                tile.actors.add(actor);
+            }
+        }
+        List<Tile> occupied = new ArrayList<>(tiles.size());
+        for(Iterator<Tile> it = tiles.values().iterator(); it.hasNext(); ) {
+            Tile tile = it.next();
+            if(tile.actors.isEmpty()) {
+                // Empty since the last step: give it back.
+                it.remove();
+            }
+            else {
+                occupied.add(tile);
+            }
+        }
+        // Newborns are merged in tile order.
+        occupied.sort(Comparator.comparingInt(tile -> tile.index));
+
+        for(int colour = 0; colour < 4; colour++) {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for(Tile tile : occupied) {
+                int tileRow = tile.index / tilesAcross;
+                int tileCol = tile.index - tileRow * tilesAcross;
+                if((tileRow % 2) * 2 + tileCol % 2 == colour) {
+                    tasks.add(() -> {
+                        runTile(tile, environment, step, phase);
+                        return null;
+                    });
+                }
+            }
+            runAll(tasks);
+        }
+
+        // Every tile has finished, so the pool's shelves can be filled.
+        int before = actors.size();
+        actors.removeIf(field.getActorPool()::reclaim);
+        int removed = before - actors.size();
+        for(Tile tile : occupied) {
+            newActors.addAll(tile.newborns);
+            tile.actors.clear();
+            tile.newborns.clear();
+        }
+        return removed;
+    }
+
+    /**
+     * Grow a vegetation layer for one step, in bands of rows run in
+     * parallel. The result is the same as growing it on one thread.
+     * @param vegetation The layer to grow.
+     * @param environment The time and weather of the step.
+     * @param step The current step.
+     */
+    public void grow(VegetationLayer vegetation, Environment environment, int step)
+    {
+        vegetation.prepare(environment, seed, step);
+        int depth = vegetation.getDepth();
+        List<Callable<Void>> ageing = new ArrayList<>();
+        List<Callable<Void>> spreading = new ArrayList<>();
+        for(int from = 0; from < depth; from += VEGETATION_BAND) {
+            int fromRow = from;
+            int toRow = Math.min(from + VEGETATION_BAND, depth);
+            ageing.add(() -> {
+                vegetation.ageRows(fromRow, toRow);
+                return null;
+            });
+            spreading.add(() -> {
+                vegetation.spreadRows(fromRow, toRow);
+                return null;
+            });
+        }
+        runAll(ageing);
+        runAll(spreading);
+    }
+
+    /**
+     * Stop the engine's threads.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Let the actors of one tile act, drawing random numbers from the
+     * tile's own stream.
+     * @param tile The tile.
+     * @param environment The time and weather of the step.
+     * @param step The current step.
+     * @param phase The phase of the step.
+     */
+    private void runTile(Tile tile, Environment environment, int step, int phase)
+    {
+        // The calling thread may run a tile while it waits, so restore
+        // whatever stream it had bound before.
+        Random previous = Randomizer.bind(Randomizer.stream(seed, step, phase, tile.index));
+        try {
+            StepScheduler.run(tile.actors, tile.newborns, environment, profiler);
+        }
+        finally {
+            Randomizer.bind(previous);
+        }
+    }
+
+    /**
+     * Run the tasks on the pool and wait for them all to finish.
+     * @param tasks The tasks to run.
+     */
+    private void runAll(List<Callable<Void>> tasks)
+    {
+        try {
+            for(Future<Void> result : pool.invokeAll(tasks)) {
+                result.get();
+            }
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during a parallel step", e);
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException("A task failed during a parallel step", e.getCause());
+        }
+    }
+
+    /**
+     * Divide the field into tiles, forgetting the tiles of a field of
+     * another size.
+     * @param field The field to be divided into tiles.
+     */
+    private void prepareTiles(Field field)
+    {
+        int across = (field.getWidth() + tileSize - 1) / tileSize;
+        int down = (field.getDepth() + tileSize - 1) / tileSize;
+        if(across != tilesAcross || down != tilesDown) {
+            tilesAcross = across;
+            tilesDown = down;
+            tiles.clear();
+        }
+    }
+}
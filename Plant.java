@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.List;
 import java.util.Random;
 
@@ -13,8 +14,8 @@ public abstract class Plant implements Actor
     protected boolean alive;
     // The plant's field.
     protected Field field;
-    // The plant's position in the field.
-    protected Location location;
+    // The plant's cell in the field, or -1 if it has none.
+    protected int cell = -1;
     // The plant's age
     protected int age;
     // Maximum age of plant before it dies
@@ -23,31 +24,33 @@ public abstract class Plant implements Actor
     protected static int BREEDING_AGE = 3;
     // The maximum number of births
     protected static int MAX_LITTER_SIZE = 10;
-    // The likelihood of a plant reproducing.
-    protected static double BREEDING_PROBABILITY = 0.6;
     
     // Random number generator
     private static final Random rand = Randomizer.getRandom();
     
     /**
-     * Create a new Plant at location in field.
+     * Make the plant a new plant in a cell of field. Used both for a
+     * new object and for a dead plant's object taken from the field's
+     * actor pool.
      * 
      * @param field The field currently occupied.
-     * @param location The location within the field.
+     * @param newCell The cell id within the field.
      */
-    public Plant(Field field, Location location)
+    protected void reset(Field field, int newCell)
     {
         alive = true;
         this.field = field;
-        setLocation(location);
+        cell = -1;
+        setCell(newCell);
     }
-    
+
     /**
      * Make this Plant act - that is: make it do
      * whatever it wants/needs to do.
      * @param newPlants A list to receive newly born plants.
+     * @param environment The time and weather of the current step.
      */
-    abstract public void act(List<Actor> newActors);
+    abstract public void act(List<Actor> newActors, Environment environment);
    
     /**
      * Check whether the plant is alive or not.
@@ -65,9 +68,9 @@ public abstract class Plant implements Actor
     public void setDead()
     {
         alive = false;
-        if(location != null) {
-            field.clear(location);
-            location = null;
+        if(cell >= 0) {
+            field.clear(cell);
+            cell = -1;
             field = null;
         }
     }
@@ -84,12 +87,13 @@ public abstract class Plant implements Actor
     
     /**
      * Gives a number of children born to a plant
+     * @param breedingProbability The likelihood of the plant reproducing.
      * @return int births  The number of plants that a plant gives birth
      *  to.
      */
-    protected int breed() {
+    protected int breed(double breedingProbability) {
         int births = 0;
-        if (canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
+        if (canBreed() && rand.nextDouble() <= breedingProbability) {
             births = rand.nextInt(MAX_LITTER_SIZE) + 1;
         }
         return births;
@@ -106,7 +110,10 @@ public abstract class Plant implements Actor
      */
     public Location getLocation()
     {
-        return location;
+        if(cell < 0) {
+            return null;
+        }
+        return field.getLocation(cell);
     }
     
     /**
@@ -115,11 +122,49 @@ public abstract class Plant implements Actor
      */
     public void setLocation(Location newLocation)
     {
-        if(location != null) {
-            field.clear(location);
+        setCell(field.getCell(newLocation.getRow(), newLocation.getCol()));
+    }
+    
+    /**
+     * Return the plant's cell.
+     * @return The plant's cell id, or -1 if it has none.
+     */
+    public int getCell()
+    {
+        return cell;
+    }
+    
+    /**
+     * Place the plant in the new cell of its field.
+     * @param newCell The plant's new cell id.
+     */
+    public void setCell(int newCell)
+    {
+        if(cell >= 0) {
+            field.clear(cell);
         }
-        location = newLocation;
-        field.place(this, newLocation);
+        cell = newCell;
+        field.place(this, newCell);
+    }
+    
+    /**
+     * Write the plant's age to a checkpoint.
+     * @param checkpoint The checkpoint being written.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void saveState(Checkpoint checkpoint) throws IOException
+    {
+        checkpoint.writeInt(age);
+    }
+    
+    /**
+     * Read back the state written by saveState.
+     * @param checkpoint The checkpoint being read.
+     * @throws IOException If the checkpoint cannot be read.
+     */
+    public void restoreState(Checkpoint checkpoint) throws IOException
+    {
+        age = checkpoint.readInt();
     }
     
     /**
@@ -1,52 +1,417 @@
-import java.util.Random;
-
-/**
- * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
- * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
- * 'useShared' to false to get different random behaviour every time.
- * 
- * @author David J. Barnes and Michael Kölling
- * @version 2016.02.29
- */
-public class Randomizer
-{
-    // The default seed for control of randomization.
-    private static final int SEED = 1111;
-    // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
-    // Determine whether a shared random generator is to be provided.
-    private static final boolean useShared = true;
-
-    /**
-     * Constructor for objects of class Randomizer
-     */
-    public Randomizer()
-    {
-    }
-
-    /**
-     * Provide a random generator.
-     * @return A random object.
-     */
-    public static Random getRandom()
-    {
-        if(useShared) {
-            return rand;
-        }
-        else {
-            return new Random();
-        }
-    }
-    
-    /**
-     * Reset the randomization.
-     * This will have no effect if randomization is not through
-     * a shared Random generator.
-     */
-    public static void reset()
-    {
-        if(useShared) {
-            rand.setSeed(SEED);
-        }
-    }
-}
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
+ * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
+ * 'useShared' to false to get different random behaviour every time.
+ * 
+ * A thread may bind a stream of its own to the shared generator. While
+ * it is bound, every draw that thread makes from the shared generator
+ * comes from its stream instead, which lets a parallel step give each
+ * tile a reproducible stream without changing the actors.
+ * 
+ * Streams are derived from a seed and a set of keys (for example a
+ * step number and a tile or actor index) and run SplittableRandom's
+ * generator, so they share no state and never contend. Like the shared
+ * generator, a stream's state can be saved and restored. In
+ * splittable mode the simulator draws every step from its own derived
+ * stream instead of the shared generator, so a run depends only on its
+ * seed, however the work is spread over threads.
+ * 
+ * @author David J. Barnes and Michael Kölling
+ * @version 2016.02.29
+ */
+public class Randomizer
+{
+    // The default seed for control of randomization.
+    private static final int SEED = 1111;
+    // A shared Random object, if required.
+    private static final Random rand = new SharedRandom(SEED);
+    // The stream bound to the shared generator by each thread, if any.
+    private static final ThreadLocal<Random> boundStream = new ThreadLocal<>();
+    // How many threads currently have a stream bound.
+    private static final AtomicInteger boundCount = new AtomicInteger();
+    // Determine whether the simulation draws from derived streams.
+    private static volatile boolean splittable = false;
+    // Multiplier used when mixing keys into a seed.
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    // Determine whether a shared random generator is to be provided.
+    private static final boolean useShared = true;
+
+    /**
+     * Constructor for objects of class Randomizer
+     */
+    public Randomizer()
+    {
+    }
+
+    /**
+     * Provide a random generator.
+     * @return A random object.
+     */
+    public static Random getRandom()
+    {
+        if(useShared) {
+            return rand;
+        }
+        else {
+            return new Random();
+        }
+    }
+    
+    /**
+     * Reset the randomization.
+     * This will have no effect if randomization is not through
+     * a shared Random generator.
+     */
+    public static void reset()
+    {
+        if(useShared) {
+            rand.setSeed(SEED);
+        }
+    }
+    
+    /**
+     * Return the seed of the shared generator.
+     * @return The fixed seed.
+     */
+    public static long getSeed()
+    {
+        return SEED;
+    }
+    
+    /**
+     * Return the internal state of the shared generator, so that it can
+     * be saved in a checkpoint.
+     * @return The generator's state.
+     */
+    public static long getState()
+    {
+        return ((SharedRandom) rand).getState();
+    }
+    
+    /**
+     * Put the shared generator back into a saved state. It then draws
+     * exactly the numbers it would have drawn when the state was saved.
+     * @param state A state returned by getState.
+     */
+    public static void setState(long state)
+    {
+        ((SharedRandom) rand).setState(state);
+    }
+    
+    /**
+     * Check whether the calling thread has a stream bound.
+     * @return true if the thread draws from a bound stream.
+     */
+    public static boolean isBound()
+    {
+        return boundStream.get() != null;
+    }
+    
+    /**
+     * Return the internal state of the stream bound to the calling
+     * thread, so that it can be saved in a checkpoint.
+     * @return The stream's state.
+     * @throws IllegalStateException If no stream is bound, or the bound
+     *                               generator is not one made by stream.
+     */
+    public static long getStreamState()
+    {
+        return getBoundStream().getState();
+    }
+    
+    /**
+     * Put the stream bound to the calling thread into a saved state.
+     * @param state A state returned by getStreamState.
+     * @throws IllegalStateException If no stream is bound, or the bound
+     *                               generator is not one made by stream.
+     */
+    public static void setStreamState(long state)
+    {
+        getBoundStream().setState(state);
+    }
+    
+    /**
+     * Choose whether the simulation draws from derived streams.
+     * @param useStreams true for splittable mode.
+     */
+    public static void setSplittable(boolean useStreams)
+    {
+        splittable = useStreams;
+    }
+    
+    /**
+     * Check whether the simulation draws from derived streams.
+     * @return true in splittable mode.
+     */
+    public static boolean isSplittable()
+    {
+        return splittable;
+    }
+    
+    /**
+     * Derive a seed from a base seed and a sequence of keys. Different
+     * keys give statistically independent seeds, and the same keys
+     * always give the same seed.
+     * @param seed The base seed.
+     * @param keys The keys, e.g. a step number and a tile index.
+     * @return The derived seed.
+     */
+    public static long derive(long seed, long... keys)
+    {
+        long hash = mix(seed);
+        for(long key : keys) {
+            hash = mix(hash + GOLDEN_GAMMA * (key + 1));
+        }
+        return hash;
+    }
+    
+    /**
+     * Provide a stream derived from a base seed and a sequence of keys.
+     * @param seed The base seed.
+     * @param keys The keys, e.g. a step number and a tile index.
+     * @return A new, independent random stream.
+     */
+    public static Random stream(long seed, long... keys)
+    {
+        return new SplitStream(derive(seed, keys));
+    }
+    
+    /**
+     * Route this thread's draws from the shared generator to the given
+     * stream, until another stream (or null) is bound.
+     * @param stream The stream to draw from, or null to draw from the
+     *               shared generator again.
+     * @return The stream that was bound before, or null if there was none.
+     */
+    public static Random bind(Random stream)
+    {
+        Random previous = boundStream.get();
+        if(previous == null && stream != null) {
+            boundCount.incrementAndGet();
+        }
+        else if(previous != null && stream == null) {
+            boundCount.decrementAndGet();
+        }
+        if(stream == null) {
+            boundStream.remove();
+        }
+        else {
+            boundStream.set(stream);
+        }
+        return previous;
+    }
+    
+    /**
+     * Stop routing this thread's draws to a bound stream.
+     */
+    public static void unbind()
+    {
+        bind(null);
+    }
+    
+    /**
+     * @return The stream bound to the calling thread.
+     * @throws IllegalStateException If no stream is bound, or the bound
+     *                               generator is not one made by stream.
+     */
+    private static SplitStream getBoundStream()
+    {
+        Random stream = boundStream.get();
+        if(stream == null) {
+            throw new IllegalStateException("No stream is bound to this thread");
+        }
+        if(!(stream instanceof SplitStream)) {
+            throw new IllegalStateException("The bound generator's state cannot be saved: "
+                                            + stream.getClass().getName());
+        }
+        return (SplitStream) stream;
+    }
+    
+    /**
+     * Scramble the bits of a value (the SplitMix64 finaliser).
+     * @param value The value to scramble.
+     * @return The scrambled value.
+     */
+    private static long mix(long value)
+    {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+    
+    /**
+     * The shared generator. It behaves exactly like java.util.Random
+     * unless the calling thread has bound a stream to it. It runs the
+     * same linear congruential generator as Random, but keeps the state
+     * itself so that the state can be saved and restored.
+     */
+    private static class SharedRandom extends Random
+    {
+        // The version of the serialized form.
+        private static final long serialVersionUID = 1L;
+        // The constants of Random's generator.
+        private static final long MULTIPLIER = 0x5DEECE66DL;
+        private static final long ADDEND = 0xBL;
+        private static final long MASK = (1L << 48) - 1;
+        
+        // The generator's state. It has no initializer because the
+        // superclass constructor sets it through setSeed.
+        private AtomicLong state;
+        
+        /**
+         * Create the generator with the given seed.
+         * @param seed The initial seed.
+         */
+        public SharedRandom(long seed)
+        {
+            super(seed);
+        }
+        
+        /**
+         * Reset the generator from a seed, as Random does.
+         * @param seed The new seed.
+         */
+        public synchronized void setSeed(long seed)
+        {
+            if(state == null) {
+                state = new AtomicLong();
+            }
+            state.set((seed ^ MULTIPLIER) & MASK);
+            super.setSeed(seed);
+        }
+        
+        /**
+         * @return The generator's state.
+         */
+        public long getState()
+        {
+            return state.get();
+        }
+        
+        /**
+         * Set the generator's state.
+         * @param newState A state returned by getState.
+         */
+        public void setState(long newState)
+        {
+            state.set(newState & MASK);
+        }
+        
+        /**
+         * Generate the next random bits, from the calling thread's
+         * bound stream if it has one.
+         * @param bits The number of random bits wanted.
+         * @return The random bits.
+         */
+        protected int next(int bits)
+        {
+            if(boundCount.get() > 0) {
+                Random stream = boundStream.get();
+                if(stream != null) {
+                    return stream.nextInt() >>> (32 - bits);
+                }
+            }
+            long current, following;
+            do {
+                current = state.get();
+                following = (current * MULTIPLIER + ADDEND) & MASK;
+            } while(!state.compareAndSet(current, following));
+            return (int) (following >>> (48 - bits));
+        }
+    }
+    
+    /**
+     * A derived stream, presented as a Random so that it can be bound in
+     * place of the shared generator. It runs the same SplitMix64
+     * generator as SplittableRandom and draws exactly the same numbers,
+     * but keeps the state itself so that the state can be saved and
+     * restored.
+     */
+    private static class SplitStream extends Random
+    {
+        // The version of the serialized form.
+        private static final long serialVersionUID = 1L;
+        
+        // The generator's state, advanced by GOLDEN_GAMMA for each draw.
+        private long seed;
+        
+        /**
+         * Create a stream with the given seed.
+         * @param seed The derived seed.
+         */
+        public SplitStream(long seed)
+        {
+            this.seed = seed;
+        }
+        
+        /**
+         * @return The stream's state.
+         */
+        public long getState()
+        {
+            return seed;
+        }
+        
+        /**
+         * @param state A state returned by getState.
+         */
+        public void setState(long state)
+        {
+            seed = state;
+        }
+        
+        /**
+         * Generate the next random bits.
+         * @param bits The number of random bits wanted.
+         * @return The random bits.
+         */
+        protected int next(int bits)
+        {
+            return nextInt() >>> (32 - bits);
+        }
+        
+        /**
+         * @return The next random int.
+         */
+        public int nextInt()
+        {
+            long z = seed += GOLDEN_GAMMA;
+            z = (z ^ (z >>> 33)) * 0x62A9D9ED799705F5L;
+            return (int) (((z ^ (z >>> 28)) * 0xCB24D0A5C88C35B3L) >>> 32);
+        }
+        
+        /**
+         * @param bound The upper bound (exclusive).
+         * @return The next random int between 0 and bound.
+         */
+        public int nextInt(int bound)
+        {
+            if(bound <= 0) {
+                throw new IllegalArgumentException("bound must be positive");
+            }
+            int r = nextInt();
+            int m = bound - 1;
+            if((bound & m) == 0) {
+                return r & m;
+            }
+            // Reject the values that would make the result uneven.
+            int u = r >>> 1;
+            while(u + m - (r = u % bound) < 0) {
+                u = nextInt() >>> 1;
+            }
+            return r;
+        }
+        
+        /**
+         * @return The next random double between 0 and 1.
+         */
+        public double nextDouble()
+        {
+            return (mix(seed += GOLDEN_GAMMA) >>> 11) * 0x1.0p-53;
+        }
+    }
+}
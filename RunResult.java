@@ -0,0 +1,119 @@
+/**
+ * The outcome of one run of an ensemble: which parameter setting and
+ * replicate it was, the seed it used, how long it lasted and the final
+ * population of each species.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class RunResult
+{
+    // The species reported, in column order.
+    public static final Class<?>[] SPECIES = { Lion.class, Tiger.class, Bear.class,
+                                            Zebra.class, Deer.class, Grass.class };
+
+    // The index of the parameter setting in the sweep.
+    private final int setting;
+    // The replicate number within the setting.
+    private final int replicate;
+    // The seed the run used.
+    private final long seed;
+    // The number of steps the run lasted.
+    private final int steps;
+    // The final population of each species in SPECIES.
+    private final int[] counts;
+    // The births and deaths over the whole run.
+    private final long births, deaths;
+    // The time the run took, in nanoseconds.
+    private final long elapsed;
+
+    /**
+     * Record the outcome of a run.
+     * @param setting The index of the parameter setting.
+     * @param replicate The replicate number.
+     * @param seed The seed the run used.
+     * @param steps The number of steps the run lasted.
+     * @param counts The final population of each species in SPECIES.
+     * @param births The births over the whole run.
+     * @param deaths The deaths over the whole run.
+     * @param elapsed The time the run took, in nanoseconds.
+     */
+    public RunResult(int setting, int replicate, long seed, int steps, int[] counts,
+                     long births, long deaths, long elapsed)
+    {
+        this.setting = setting;
+        this.replicate = replicate;
+        this.seed = seed;
+        this.steps = steps;
+        this.counts = counts;
+        this.births = births;
+        this.deaths = deaths;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return The index of the parameter setting in the sweep.
+     */
+    public int getSetting()
+    {
+        return setting;
+    }
+
+    /**
+     * @return The replicate number within the setting.
+     */
+    public int getReplicate()
+    {
+        return replicate;
+    }
+
+    /**
+     * @return The seed the run used.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * @return The number of steps the run lasted.
+     */
+    public int getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * Return the final population of a species.
+     * @param index The species' index in SPECIES.
+     * @return The number alive at the end of the run.
+     */
+    public int getCount(int index)
+    {
+        return counts[index];
+    }
+
+    /**
+     * @return The births over the whole run.
+     */
+    public long getBirths()
+    {
+        return births;
+    }
+
+    /**
+     * @return The deaths over the whole run.
+     */
+    public long getDeaths()
+    {
+        return deaths;
+    }
+
+    /**
+     * @return The time the run took, in nanoseconds.
+     */
+    public long getElapsed()
+    {
+        return elapsed;
+    }
+}
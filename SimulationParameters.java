@@ -0,0 +1,367 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The settings of one simulation run: the size of the field, the seed,
+ * the number of steps and the probability of creating each species in
+ * a grid position when the field is populated. A new set of parameters
+ * holds the simulator's defaults; the setters change one setting and
+ * return the parameters, so that settings can be chained.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class SimulationParameters
+{
+    // The size of the field.
+    private int depth = 80;
+    private int width = 120;
+    // The seed that the run's random numbers are derived from.
+    private long seed = Randomizer.getSeed();
+    // The number of steps to run for.
+    private int steps = 1000;
+    // The probability that each species will be created in any given grid position.
+    private double lionCreationProbability = 0.07;
+    private double bearCreationProbability = 0.08;
+    private double tigerCreationProbability = 0.11;
+    private double zebraCreationProbability = 0.12;
+    private double deerCreationProbability = 0.16;
+    private double plantCreationProbability = 0.6;
+    // Whether grass grows in a vegetation layer rather than as Grass objects.
+    private boolean vegetationLayer = false;
+    // Whether the field is allocated in chunks as it is occupied.
+    private boolean sparse = false;
+    // Whether disease spreads through an epidemic layer.
+    private boolean epidemic = false;
+    // The distance over which predators sense their prey.
+    private int sensingRadius = 1;
+
+    /**
+     * Create parameters holding the simulator's defaults.
+     */
+    public SimulationParameters()
+    {
+    }
+
+    /**
+     * Create a copy of other parameters.
+     * @param other The parameters to copy.
+     */
+    public SimulationParameters(SimulationParameters other)
+    {
+        depth = other.depth;
+        width = other.width;
+        seed = other.seed;
+        steps = other.steps;
+        lionCreationProbability = other.lionCreationProbability;
+        bearCreationProbability = other.bearCreationProbability;
+        tigerCreationProbability = other.tigerCreationProbability;
+        zebraCreationProbability = other.zebraCreationProbability;
+        deerCreationProbability = other.deerCreationProbability;
+        plantCreationProbability = other.plantCreationProbability;
+        vegetationLayer = other.vegetationLayer;
+        sparse = other.sparse;
+        sensingRadius = other.sensingRadius;
+        epidemic = other.epidemic;
+    }
+
+    /**
+     * Build a parameter grid: every combination of the given lion and
+     * zebra creation probabilities, with the other settings copied from
+     * a base set of parameters.
+     * @param base The settings shared by every point of the grid.
+     * @param lionProbabilities The lion creation probabilities to try.
+     * @param zebraProbabilities The zebra creation probabilities to try.
+     * @return One set of parameters per combination.
+     */
+    public static List<SimulationParameters> grid(SimulationParameters base,
+                                                  double[] lionProbabilities,
+                                                  double[] zebraProbabilities)
+    {
+        List<SimulationParameters> grid = new ArrayList<>();
+        for(double lion : lionProbabilities) {
+            for(double zebra : zebraProbabilities) {
+                grid.add(new SimulationParameters(base)
+                         .setLionCreationProbability(lion)
+                         .setZebraCreationProbability(zebra));
+            }
+        }
+        return grid;
+    }
+
+    /**
+     * @return The depth of the field.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The width of the field.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Set the size of the field.
+     * @param depth The depth of the field. Must be greater than zero.
+     * @param width The width of the field. Must be greater than zero.
+     * @return These parameters.
+     */
+    public SimulationParameters setSize(int depth, int width)
+    {
+        if(depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("The dimensions must be greater than zero: "
+                                               + depth + "x" + width);
+        }
+        this.depth = depth;
+        this.width = width;
+        return this;
+    }
+
+    /**
+     * @return The seed of the run.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * @param seed The seed of the run.
+     * @return These parameters.
+     */
+    public SimulationParameters setSeed(long seed)
+    {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * @return The number of steps to run for.
+     */
+    public int getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * @param steps The number of steps to run for.
+     * @return These parameters.
+     */
+    public SimulationParameters setSteps(int steps)
+    {
+        this.steps = steps;
+        return this;
+    }
+
+    /**
+     * @return The probability of creating a lion in a grid position.
+     */
+    public double getLionCreationProbability()
+    {
+        return lionCreationProbability;
+    }
+
+    /**
+     * @param probability The probability of creating a lion in a grid position.
+     * @return These parameters.
+     */
+    public SimulationParameters setLionCreationProbability(double probability)
+    {
+        lionCreationProbability = probability;
+        return this;
+    }
+
+    /**
+     * @return The probability of creating a bear in a grid position.
+     */
+    public double getBearCreationProbability()
+    {
+        return bearCreationProbability;
+    }
+
+    /**
+     * @param probability The probability of creating a bear in a grid position.
+     * @return These parameters.
+     */
+    public SimulationParameters setBearCreationProbability(double probability)
+    {
+        bearCreationProbability = probability;
+        return this;
+    }
+
+    /**
+     * @return The probability of creating a tiger in a grid position.
+     */
+    public double getTigerCreationProbability()
+    {
+        return tigerCreationProbability;
+    }
+
+    /**
+     * @param probability The probability of creating a tiger in a grid position.
+     * @return These parameters.
+     */
+    public SimulationParameters setTigerCreationProbability(double probability)
+    {
+        tigerCreationProbability = probability;
+        return this;
+    }
+
+    /**
+     * @return The probability of creating a zebra in a grid position.
+     */
+    public double getZebraCreationProbability()
+    {
+        return zebraCreationProbability;
+    }
+
+    /**
+     * @param probability The probability of creating a zebra in a grid position.
+     * @return These parameters.
+     */
+    public SimulationParameters setZebraCreationProbability(double probability)
+    {
+        zebraCreationProbability = probability;
+        return this;
+    }
+
+    /**
+     * @return The probability of creating a deer in a grid position.
+     */
+    public double getDeerCreationProbability()
+    {
+        return deerCreationProbability;
+    }
+
+    /**
+     * @param probability The probability of creating a deer in a grid position.
+     * @return These parameters.
+     */
+    public SimulationParameters setDeerCreationProbability(double probability)
+    {
+        deerCreationProbability = probability;
+        return this;
+    }
+
+    /**
+     * @return The probability of creating grass in a grid position.
+     */
+    public double getPlantCreationProbability()
+    {
+        return plantCreationProbability;
+    }
+
+    /**
+     * @param probability The probability of creating grass in a grid position.
+     * @return These parameters.
+     */
+    public SimulationParameters setPlantCreationProbability(double probability)
+    {
+        plantCreationProbability = probability;
+        return this;
+    }
+
+    /**
+     * @return True if grass grows in a vegetation layer under the
+     *         animals rather than as Grass objects.
+     */
+    public boolean isVegetationLayer()
+    {
+        return vegetationLayer;
+    }
+
+    /**
+     * @param on True for grass to grow in a vegetation layer under the
+     *           animals, false for Grass objects.
+     * @return These parameters.
+     */
+    public SimulationParameters setVegetationLayer(boolean on)
+    {
+        vegetationLayer = on;
+        return this;
+    }
+
+    /**
+     * @return True if the field is allocated in chunks as it is
+     *         occupied, rather than all at once.
+     */
+    public boolean isSparse()
+    {
+        return sparse;
+    }
+
+    /**
+     * @param sparse True to allocate the field in chunks as it is
+     *               occupied, for large fields that are mostly empty.
+     * @return These parameters.
+     */
+    public SimulationParameters setSparse(boolean sparse)
+    {
+        this.sparse = sparse;
+        return this;
+    }
+
+    /**
+     * @return True if disease spreads through an epidemic layer rather
+     *         than by each animal's own infection.
+     */
+    public boolean isEpidemic()
+    {
+        return epidemic;
+    }
+
+    /**
+     * @param on True for disease to spread through an epidemic layer
+     *           that tracks susceptible, infected and recovered animals,
+     *           false for each animal to run its own infection.
+     * @return These parameters.
+     */
+    public SimulationParameters setEpidemic(boolean on)
+    {
+        epidemic = on;
+        return this;
+    }
+
+    /**
+     * @return The distance over which predators sense their prey.
+     */
+    public int getSensingRadius()
+    {
+        return sensingRadius;
+    }
+
+    /**
+     * Set the distance over which predators sense their prey. At the
+     * default of one they only see their adjacent cells; further out
+     * they head for the nearest prey they sense.
+     * @param radius The sensing radius. Must be at least one.
+     * @return These parameters.
+     */
+    public SimulationParameters setSensingRadius(int radius)
+    {
+        if(radius < 1) {
+            throw new IllegalArgumentException("The sensing radius must be at least one: " + radius);
+        }
+        sensingRadius = radius;
+        return this;
+    }
+
+    /**
+     * @return A short description of the settings that differ between
+     *         runs of a sweep.
+     */
+    public String toString()
+    {
+        return "lion=" + lionCreationProbability + " bear=" + bearCreationProbability
+               + " tiger=" + tigerCreationProbability + " zebra=" + zebraCreationProbability
+               + " deer=" + deerCreationProbability + " grass=" + plantCreationProbability
+               + (vegetationLayer ? " vegetation" : "") + (sparse ? " sparse" : "") + (epidemic ? " epidemic" : "")
+               + (sensingRadius > 1 ? " sensing=" + sensingRadius : "")
+               + " " + depth + "x" + width;
+    }
+}
@@ -1,8 +1,12 @@
-import java.util.Random;
-import java.util.List;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
 import java.awt.Color;
+import javax.swing.SwingUtilities;
+import javax.management.JMException;
 
 /**
  * A simple predator-prey simulator, based on a rectangular field
@@ -18,40 +22,44 @@ public class Simulator
     private static final int DEFAULT_WIDTH = 120;
     // The default depth of the grid.
     private static final int DEFAULT_DEPTH = 80;
-    // The probability that a lion, tiger, bear will be created in any given grid position.
-    private static final double LION_CREATION_PROBABILITY = 0.07;
-    private static final double BEAR_CREATION_PROBABILITY = 0.08;
-    private static final double TIGER_CREATION_PROBABILITY = 0.11;
-
-    // The probability that a zebra and deer will be created in any given grid position.
-    private static final double DEER_CREATION_PROBABILITY = 0.16;   
-    private static final double ZEBRA_CREATION_PROBABILITY = 0.12;
-    
-    private static final double PLANT_CREATION_PROBABILITY = 0.6;
+    // The number of plants below which grass repopulates, and the
+    // number it repopulates to.
+    private static final int GRASS_MINIMUM = 30;
+    private static final int GRASS_REPOPULATION = 100;
+    // The key of the stream the epidemic draws from in each step, apart
+    // from the phases of the parallel engine.
+    private static final int EPIDEMIC_STREAM = 2;
 
-    //
-    protected static boolean isRunning;
+    // Whether the simulation is running; cleared to pause it.
+    private volatile boolean isRunning;
+    // The settings of the simulation, including the creation probabilities.
+    private final SimulationParameters parameters;
     // List of animals in the field.
-    private List<Actor> animals;
-    private List<Actor> plants;
+    private ActorList animals;
+    private ActorList plants;
+    // Buffers for newborn animals and plants, reused every step.
+    private ActorList newAnimals;
+    private ActorList newPlants;
+    // Births and deaths per step.
+    private ChurnMetrics churn;
+    // The time taken by each phase of a step.
+    private final StepProfiler profiler;
+    // Listeners told about every step.
+    private List<StepListener> listeners;
     // The current state of the field.
     private Field field;
     // The current step of the simulation.
     private int step;
-    // A graphical view of the simulation.
+    // A graphical view of the simulation, or null when running headless.
     private SimulatorView view;
-    // current time of day of the simulation
-    public static int time;
-    // number to track current season of the simulation
-    private int seasonTrack;
-    // current season of simulation
-    public static int season = 0; 
+    // Engine running the actors in parallel, or null to run them sequentially.
+    private ParallelStepEngine engine;
+    // The seed that derived random streams are based on.
+    private long seed;
+    // The time of day, season and weather of this simulation.
+    private final Environment environment;
     // number to track weather
     public int weather = 0; 
-    // number for rain
-    public static Double rain = 0.0;
-    // value to check if it has rained during current season
-    public static boolean rainedThisSeason;
     
     // Random number generator
     private static final Random rand = Randomizer.getRandom();
@@ -70,6 +78,66 @@ public class Simulator
      * @param width Width of the field. Must be greater than zero.
      */
     public Simulator(int depth, int width)
+    {
+        this(depth, width, false);
+    }
+
+    /**
+     * Create a simulation field with the given size, optionally without
+     * any graphical view. A headless simulation never touches AWT or Swing
+     * and does not pause between steps.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param headless True if no view should be created.
+     */
+    public Simulator(int depth, int width, boolean headless)
+    {
+        this(createParameters(depth, width), headless);
+    }
+
+    /**
+     * Create a simulation with the given settings. Simulators share no
+     * state with each other, so several can run at once, each on its
+     * own thread.
+     * @param parameters The size, seed and creation probabilities.
+     * @param headless True if no view should be created.
+     */
+    public Simulator(SimulationParameters parameters, boolean headless)
+    {
+        this.parameters = new SimulationParameters(parameters);
+        int depth = parameters.getDepth();
+        int width = parameters.getWidth();
+        seed = parameters.getSeed();
+        environment = new Environment();
+
+        animals = new ActorList();
+        plants = new ActorList();
+        newAnimals = new ActorList();
+        newPlants = new ActorList();
+        churn = new ChurnMetrics();
+        profiler = new StepProfiler();
+        listeners = new ArrayList<>();
+        field = new Field(depth, width, parameters.isSparse());
+        field.setVegetation(parameters.isVegetationLayer());
+        field.setSensingRadius(parameters.getSensingRadius());
+        field.setEpidemic(parameters.isEpidemic());
+
+        if(!headless) {
+            createView(depth, width);
+        }
+        
+        // Setup a valid starting point.
+        reset();
+    }
+
+    /**
+     * Create default parameters for a field of the given size, falling
+     * back to the default size if it is not valid.
+     * @param depth Depth of the field.
+     * @param width Width of the field.
+     * @return The parameters.
+     */
+    private static SimulationParameters createParameters(int depth, int width)
     {
         if(width <= 0 || depth <= 0) {
             System.out.println("The dimensions must be greater than zero.");
@@ -77,24 +145,145 @@ public class Simulator
             depth = DEFAULT_DEPTH;
             width = DEFAULT_WIDTH;
         }
+        return new SimulationParameters().setSize(depth, width);
+    }
 
-        animals = new ArrayList<>();
-        plants = new ArrayList<>();
-        field = new Field(depth, width);
+    /**
+     * Create a view of the state of each location in the field. The
+     * view is built on the event dispatch thread, and this waits until
+     * it is ready.
+     * @param depth Depth of the field.
+     * @param width Width of the field.
+     */
+    private void createView(int depth, int width)
+    {
+        Runnable create = () -> {
+            view = new SimulatorView(depth, width, this);
+            view.setColor(Deer.class, new Color(221, 150, 0));
+            view.setColor(Zebra.class, Color.BLACK);        
+            view.setColor(Lion.class, Color.BLUE);
+            view.setColor(Bear.class, new Color(95, 64, 1));
+            view.setColor(Tiger.class, Color.RED);
+            view.setColor(Grass.class, Color.GREEN);
+        };
+        if(SwingUtilities.isEventDispatchThread()) {
+            create.run();
+            return;
+        }
+        try {
+            SwingUtilities.invokeAndWait(create);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating the view", e);
+        }
+        catch(InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create the view", e.getCause());
+        }
+    }
 
-        // Create a view of the state of each location in the field.
-        view = new SimulatorView(depth, width, this);
-        view.setColor(Deer.class, new Color(221, 150, 0));
-        view.setColor(Zebra.class, Color.BLACK);        
-        view.setColor(Lion.class, Color.BLUE);
-        view.setColor(Bear.class, new Color(95, 64, 1));
-        view.setColor(Tiger.class, Color.RED);
-        view.setColor(Grass.class, Color.GREEN);
-        
-        // Set time to 0.
-        time = 0;
-        // Setup a valid starting point.
-        reset();
+    /**
+     * Run a headless simulation from the command line and print the
+     * final population.
+     * Usage: java Simulator [steps [depth width [threads]]]
+     * @param args The number of steps, optionally followed by the field size
+     *             and the number of threads for a parallel step.
+     */
+    public static void main(String[] args)
+    {
+        System.setProperty("java.awt.headless", "true");
+        int numSteps = 1000;
+        int depth = DEFAULT_DEPTH;
+        int width = DEFAULT_WIDTH;
+        int threads = 0;
+        String csvFile = null;
+        int profileInterval = 0;
+        try {
+            if(args.length >= 1) {
+                numSteps = Integer.parseInt(args[0]);
+            }
+            if(args.length >= 3) {
+                depth = Integer.parseInt(args[1]);
+                width = Integer.parseInt(args[2]);
+            }
+            if(args.length >= 4) {
+                threads = Integer.parseInt(args[3]);
+            }
+            if(args.length >= 5 && !args[4].equals("-")) {
+                csvFile = args[4];
+            }
+            if(args.length >= 6) {
+                profileInterval = Integer.parseInt(args[5]);
+            }
+        }
+        catch(NumberFormatException e) {
+            System.out.println("Usage: java Simulator [steps [depth width [threads [csvfile [profile]]]]]");
+            return;
+        }
+        if(threads > 0) {
+            // A parallel run should depend on nothing but the seed.
+            Randomizer.setSplittable(true);
+        }
+        Simulator simulator = new Simulator(depth, width, true);
+        simulator.setThreads(threads);
+        StepProfiler profiler = simulator.getProfiler();
+        profiler.setDumpInterval(profileInterval, System.out);
+        try {
+            profiler.register("main");
+        }
+        catch(JMException e) {
+            System.out.println("Cannot publish the profiler: " + e.getMessage());
+        }
+        CsvStepSink sink = null;
+        if(csvFile != null) {
+            try {
+                sink = new CsvStepSink(csvFile);
+            }
+            catch(IOException e) {
+                System.out.println("Cannot write " + csvFile + ": " + e.getMessage());
+                return;
+            }
+            simulator.addStepListener(sink);
+        }
+        long start = System.nanoTime();
+        simulator.simulate(numSteps);
+        long elapsed = System.nanoTime() - start;
+        if(sink != null) {
+            simulator.removeStepListener(sink);
+            try {
+                sink.close();
+            }
+            catch(IOException e) {
+                System.out.println("Cannot write " + csvFile + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Steps: " + simulator.getStep()
+                           + " (" + (elapsed / 1000000) + " ms)");
+        System.out.println("Population: " + simulator.getPopulationDetails());
+        System.out.println("Churn: " + simulator.getChurnMetrics());
+        System.out.print(profiler.dump());
+        simulator.setThreads(0);
+    }
+    
+    /**
+     * Choose between running the actors sequentially and running them
+     * on a parallel, tiled engine. A parallel run gives the same result
+     * for any number of threads, although not the same result as a
+     * sequential run. Use Randomizer.setSplittable to make sequential
+     * runs independent of the shared generator too.
+     * @param threads The number of threads to use, or 0 to run sequentially.
+     */
+    public void setThreads(int threads)
+    {
+        if(engine != null) {
+            engine.shutdown();
+            engine = null;
+        }
+        if(threads > 0) {
+            int tileSize = ParallelStepEngine.tileSizeFor(parameters.getSensingRadius());
+            engine = new ParallelStepEngine(threads, tileSize, seed);
+            engine.setProfiler(profiler);
+        }
     }
 
     /**
@@ -116,10 +305,12 @@ public class Simulator
         if (!isRunning) { // Sets isRunning to true at start of simulation
             isRunning = true;
         }
-        for(int step = 1; step <= numSteps && view.isViable(field) && isRunning == true; step++) {
+        for(int step = 1; step <= numSteps && isViable() && isRunning == true; step++) {
             simulateOneStep();
 
-            delay(40);   // uncomment this to run more slowly
+            if(view != null) {
+                delay(40);   // uncomment this to run more slowly
+            }
         }
         isRunning = false;
     }
@@ -129,66 +320,128 @@ public class Simulator
      * Iterate over the whole field updating the state of each
      * Tiger, Lion, Bear and Zebra and Deer.
      * This method also tracks the time and season, and runs processing for weather.
+     * In splittable mode the whole step draws from a stream derived from
+     * the seed and the step number.
      */
     public void simulateOneStep()
     {
         step++;
-        time = step % 24;
-        seasonTrack = step % 30;
-        
-        
-        if (seasonTrack == 0) { // Tracking length of seasons
-            rainedThisSeason = false;
-            season = (season) % 4;
-            switch (season) {
-                case 0: //System.out.println("Spring"); break;
-                case 1: //System.out.println("Summer"); break;
-                case 2: //System.out.println("Autumn"); break;
-                case 3: //System.out.println("Winter"); break;
+        boolean splittable = Randomizer.isSplittable();
+        Random previous = null;
+        if(splittable) {
+            previous = Randomizer.bind(Randomizer.stream(seed, step));
+        }
+        try {
+            runOneStep();
+        }
+        finally {
+            if(splittable) {
+                Randomizer.bind(previous);
             }
-            season++;
         }
+    }
+    
+    /**
+     * Run the body of a single step.
+     */
+    private void runOneStep()
+    {
+        long start = profiler.startStep();
+        environment.update(step, rand);
+        long lap = profiler.lap(StepProfiler.WEATHER, start);
         
-        if ((time % 8) == 0) { // Every 8 hours, it could start raining.
-            setRain();
-            if (getRain()) {
-                rainedThisSeason = true;
-            }
+        // Let disease spread among the animals before they act.
+        EpidemicLayer epidemic = field.getEpidemic();
+        if(epidemic != null) {
+            epidemic.spread(Randomizer.stream(seed, step, EPIDEMIC_STREAM));
         }
+        lap = profiler.lap(StepProfiler.EPIDEMIC, lap);
         
         // Provide space for newborn animals.
-        List<Actor> newAnimals = new ArrayList<>();        
-        // Let all zebras and deers act.
-        for(Iterator<Actor> it = animals.iterator(); it.hasNext(); ) {
-            Actor animal = it.next();
-            animal.act(newAnimals);
-            if(! animal.isAlive()) {
-                it.remove();
-            }
+        newAnimals.clear();
+        int deaths;
+        // Let the active animals act and the others rest, then remove
+        // the dead in one pass, keeping them to be reused for newborns.
+        if(engine != null) {
+            deaths = engine.step(field, animals, newAnimals, environment, step, 0);
         }
+        else {
+            StepScheduler.run(animals, newAnimals, environment, profiler);
+            deaths = animals.compact(field.getActorPool());
+        }
+        lap = profiler.lap(StepProfiler.ANIMALS, lap);
         
         // Provide space for newborn plants.
-        List<Actor> newPlants = new ArrayList<>();
-        // Let all plants act.
-        for (Iterator<Actor> it = plants.iterator(); it.hasNext(); ) {
-            Actor plant = it.next();
-            plant.act(newPlants);
-            if (!plant.isAlive()) {
-                it.remove();
+        newPlants.clear();
+        // Let all plants act or rest.
+        VegetationLayer vegetation = field.getVegetation();
+        int replanted = 0;
+        if(vegetation != null) {
+            if(engine != null) {
+                engine.grow(vegetation, environment, step);
+            }
+            else {
+                vegetation.grow(environment, seed, step);
             }
+            lap = profiler.lap(StepProfiler.PLANTS, lap);
         }
-        
-        Location location = new Location(1,1);
-        Grass grass = new Grass(true, field, location);
-        if (plants.size() < 30) {
-            populateGrass();
+        else {
+            if(engine != null) {
+                deaths += engine.step(field, plants, newPlants, environment, step, 1);
+            }
+            else {
+                StepScheduler.run(plants, newPlants, environment, profiler);
+                deaths += plants.compact(field.getActorPool());
+            }
+            lap = profiler.lap(StepProfiler.PLANTS, lap);
+            
+            if (plants.size() < GRASS_MINIMUM) {
+                replanted = populateGrass();
+            }
         }
+        lap = profiler.lap(StepProfiler.REPOPULATION, lap);
 
         // Add the newly born lions, tigers, bears and zebras and deers to the main lists.
         animals.addAll(newAnimals);
         plants.addAll(newPlants);
+        // Give back the parts of a sparse field that have emptied.
+        field.trim();
+        int births = newAnimals.size() + newPlants.size();
+        churn.record(births, deaths, animals.size() + plants.size());
+        lap = profiler.lap(StepProfiler.MERGE, lap);
+        StepEvents events = field.getEvents();
+        int kills = events.takeKills();
+        int infections = events.takeInfections();
+        int starvations = events.takeStarvations();
+        if(!listeners.isEmpty()) {
+            int[] counts = new int[Species.count()];
+            for(int species = 1; species < counts.length; species++) {
+                counts[species] = field.getStats().getCount(species);
+            }
+            int susceptible = 0;
+            int infected = 0;
+            int recovered = 0;
+            if(epidemic != null) {
+                susceptible = epidemic.getSusceptibleCount();
+                infected = epidemic.getInfectedCount();
+                recovered = epidemic.getRecoveredCount();
+            }
+            StepRecord record = new StepRecord(step, environment.getTime(), environment.getSeason(),
+                                               environment.getRain(),
+                                               environment.hasRainedThisSeason(),
+                                               counts, births, deaths, kills, infections,
+                                               starvations, replanted,
+                                               susceptible, infected, recovered);
+            for(StepListener listener : listeners) {
+                listener.stepCompleted(record);
+            }
+        }
 
-        view.showStatus(step, field);
+        if(view != null) {
+            view.showStatus(step, field);
+        }
+        profiler.lap(StepProfiler.STATUS, lap);
+        profiler.endStep(start);
     }
     
     /**
@@ -213,37 +466,214 @@ public class Simulator
         step = 0;
         animals.clear();
         plants.clear();
-        populate();
+        churn.reset();
+        field.getEvents().reset();
+        environment.reset();
+        if(Randomizer.isSplittable()) {
+            // Populate from a stream of its own, keyed apart from the steps.
+            Random previous = Randomizer.bind(Randomizer.stream(seed, -1));
+            try {
+                populate();
+            }
+            finally {
+                Randomizer.bind(previous);
+            }
+        }
+        else {
+            populate();
+        }
 
         // Show the starting state in the view.
-        view.showStatus(step, field);
+        if(view != null) {
+            view.showStatus(step, field);
+        }
+    }
+    
+    /**
+     * Save the complete state of the simulation to a checkpoint file:
+     * the clock, the weather, the random generator, the stream bound to
+     * the calling thread if there is one, and every actor. Loading the
+     * file later resumes the run exactly where it was saved.
+     * @param filename The file to write.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalStateException If the calling thread has bound a
+     *         generator that is not a Randomizer stream, whose state
+     *         cannot be saved.
+     */
+    public void saveCheckpoint(String filename) throws IOException
+    {
+        boolean bound = Randomizer.isBound();
+        // Fetched before the file is created, so that nothing is written
+        // if the stream cannot be saved.
+        long streamState = bound ? Randomizer.getStreamState() : 0;
+        try(Checkpoint checkpoint = Checkpoint.create(Paths.get(filename), field)) {
+            checkpoint.writeInt(step);
+            checkpoint.writeInt(environment.getTime());
+            checkpoint.writeInt(environment.getSeasonTrack());
+            checkpoint.writeInt(environment.getSeason());
+            checkpoint.writeInt(weather);
+            checkpoint.writeDouble(environment.getRain());
+            checkpoint.writeBoolean(environment.hasRainedThisSeason());
+            checkpoint.writeLong(seed);
+            checkpoint.writeLong(Randomizer.getState());
+            checkpoint.writeBoolean(bound);
+            if(bound) {
+                checkpoint.writeLong(streamState);
+            }
+            checkpoint.writeField(field, animals, plants);
+        }
+    }
+    
+    /**
+     * Replace the state of the simulation with one saved by
+     * saveCheckpoint. The checkpoint must be for a field of the same size.
+     * If loading fails part of the way through, the simulation should be
+     * reset before it is run again. If the checkpoint was saved from a
+     * thread with a stream bound, the calling thread must have a stream
+     * bound too, which is put into the saved state; if it was not, the
+     * calling thread must have none.
+     * @param filename The file to read.
+     * @throws IOException If the file cannot be read, is not a
+     *                     checkpoint, is for a different field size or
+     *                     does not match whether a stream is bound.
+     */
+    public void loadCheckpoint(String filename) throws IOException
+    {
+        try(Checkpoint checkpoint = Checkpoint.open(Paths.get(filename))) {
+            if(checkpoint.getDepth() != field.getDepth() || checkpoint.getWidth() != field.getWidth()) {
+                throw new IOException(filename + " is for a " + checkpoint.getDepth() + "x"
+                                      + checkpoint.getWidth() + " field, not " + field.getDepth()
+                                      + "x" + field.getWidth());
+            }
+            step = checkpoint.readInt();
+            environment.setTime(checkpoint.readInt());
+            environment.setSeasonTrack(checkpoint.readInt());
+            environment.setSeason(checkpoint.readInt());
+            weather = checkpoint.readInt();
+            environment.setRain(checkpoint.readDouble());
+            environment.setRainedThisSeason(checkpoint.readBoolean());
+            seed = checkpoint.readLong();
+            long randomState = checkpoint.readLong();
+            boolean bound = checkpoint.getVersion() >= 6 && checkpoint.readBoolean();
+            long streamState = bound ? checkpoint.readLong() : 0;
+            if(checkpoint.getVersion() >= 6 && bound != Randomizer.isBound()) {
+                throw new IOException(filename + (bound ? " was saved with a random stream bound"
+                                                        : " was saved without a random stream bound")
+                                      + "; bind one to the loading thread only if it was");
+            }
+            
+            animals.clear();
+            plants.clear();
+            churn.reset();
+            field.getEvents().reset();
+            checkpoint.readField(field, animals, plants);
+            // Creating the actors drew random numbers, so the generator
+            // is restored last.
+            Randomizer.setState(randomState);
+            if(bound) {
+                Randomizer.setStreamState(streamState);
+            }
+        }
+        
+        if(view != null) {
+            view.showStatus(step, field);
+        }
+    }
+    
+    /**
+     * Determine whether the simulation should continue to run.
+     * This uses the field's own counters, not the view.
+     * @return true If there is more than one species alive.
+     */
+    public boolean isViable()
+    {
+        return field.getStats().isViable(field);
+    }
+    
+    /**
+     * Return how many of a species are alive.
+     * @param species The class of the species.
+     * @return The number of that species in the field.
+     */
+    public int getCount(Class<?> species)
+    {
+        return field.getStats().getCount(species);
+    }
+    
+    /**
+     * Get details of the current population.
+     * @return A string describing the number of each species alive.
+     */
+    public String getPopulationDetails()
+    {
+        return field.getStats().getPopulationDetails(field);
+    }
+    
+    /**
+     * Ask for a listener to be told about every step from now on.
+     * @param listener The listener to add.
+     */
+    public void addStepListener(StepListener listener)
+    {
+        listeners.add(listener);
+    }
+    
+    /**
+     * Stop telling a listener about steps.
+     * @param listener The listener to remove.
+     */
+    public void removeStepListener(StepListener listener)
+    {
+        listeners.remove(listener);
+    }
+    
+    /**
+     * Return the births and deaths recorded since the last reset.
+     * @return The churn metrics.
+     */
+    public ChurnMetrics getChurnMetrics()
+    {
+        return churn;
+    }
+    
+    /**
+     * Return the profiler timing the phases of each step. It is kept
+     * across resets and checkpoints; use its own reset to start afresh.
+     * @return The step profiler.
+     */
+    public StepProfiler getProfiler()
+    {
+        return profiler;
+    }
+    
+    /**
+     * Return the current step of the simulation.
+     * @return The number of steps simulated since the last reset.
+     */
+    public int getStep()
+    {
+        return step;
     }
     
     /**
      * Method allowing grass to repopulate when its population goes below a certain level.
-     * Code is similar to that in populate() method, but breaks once there are more than 100 plants.
+     * Grass is placed on random free cells, drawn from the field's free-cell set, until
+     * there are more than GRASS_REPOPULATION plants or the field is full.
+     * The number planted is reported to the step listeners.
+     * @return The number of plants added.
      */
-    private void populateGrass() {
-        System.out.println("Grass has repopulated!");
+    private int populateGrass() {
+        int before = plants.size();
         Random rand = Randomizer.getRandom();
-        while (plants.size() <= 60) {
-            for (int row = 0; row < field.getDepth(); row++) {
-                for (int col = 0; col < field.getWidth(); col++) {
-                    Location location = new Location(row, col); 
-                    if (field.getObjectAt(location) != null) { 
-                        if (rand.nextDouble() <= PLANT_CREATION_PROBABILITY) {
-                            if (location != null) {
-                                Grass grass = new Grass(true, field, location);
-                                plants.add(grass);
-                            }
-                        }
-                    }    
-                }
-                if (plants.size() > 100) {
-                    break;
-                }
+        while (plants.size() <= GRASS_REPOPULATION) {
+            int cell = field.randomFreeCell(rand);
+            if (cell < 0) {
+                // The field is full.
+                break;
             }
+            plants.add(new Grass(true, field, cell));
         }
+        return plants.size() - before;
     }
 
     /**
@@ -251,40 +681,44 @@ public class Simulator
      */
     private void populate()
     {
-        rainedThisSeason = true;
+        environment.setRainedThisSeason(true);
         Random rand = Randomizer.getRandom();
         field.clear();
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
-                if(rand.nextDouble() <= TIGER_CREATION_PROBABILITY) {
+                if(rand.nextDouble() <= parameters.getTigerCreationProbability()) {
                     Location location = new Location(row, col);
                     Tiger tiger = new Tiger(true, field, location, 15, 150, 0.4, 2);
                     animals.add(tiger);
                     //System.out.println(tiger.isFemale());
                 }
-                else if(rand.nextDouble() <= BEAR_CREATION_PROBABILITY) {
+                else if(rand.nextDouble() <= parameters.getBearCreationProbability()) {
                     Location location = new Location(row, col);
                     Bear bear = new Bear(true, field, location, 15, 150, 0.4, 2);
                     animals.add(bear);
                 }
-                else if(rand.nextDouble() <= LION_CREATION_PROBABILITY) {
+                else if(rand.nextDouble() <= parameters.getLionCreationProbability()) {
                     Location location = new Location(row, col);
                     Lion lion = new Lion(true, field, location, 15, 150, 0.5, 2);
                     animals.add(lion);
                 }
-                else if(rand.nextDouble() <= ZEBRA_CREATION_PROBABILITY) {
+                else if(rand.nextDouble() <= parameters.getZebraCreationProbability()) {
                     Location location = new Location(row, col);
                     Zebra zebra = new Zebra(true, field, location, 15, 150, 0.5, 2);
                     animals.add(zebra);
                 }
-                else if(rand.nextDouble() <= DEER_CREATION_PROBABILITY) {
+                else if(rand.nextDouble() <= parameters.getDeerCreationProbability()) {
                     Location location = new Location(row, col);
                     Deer deer = new Deer(true, field, location, 15, 150, 0.8, 2);
                     animals.add(deer);
                 }
-                else if (rand.nextDouble() <= PLANT_CREATION_PROBABILITY) {
+                else if (rand.nextDouble() <= parameters.getPlantCreationProbability()) {
                     Location location = new Location(row, col);
-                    if (location != null) {
+                    if (field.getVegetation() != null) {
+                        field.getVegetation().plant(field.getCell(row, col),
+                                                    rand.nextInt(VegetationLayer.MAX_AGE));
+                    }
+                    else if (location != null) {
                         Grass grass = new Grass(true, field, location);
                         plants.add(grass);
                     }
@@ -292,6 +726,19 @@ public class Simulator
                 // else leave the location empty.
             }
         }
+        EpidemicLayer epidemic = field.getEpidemic();
+        if(epidemic != null) {
+            epidemic.seed(animals, rand);
+        }
+    }
+    
+    /**
+     * Return the time of day, season and weather of this simulation.
+     * @return The simulation's environment.
+     */
+    public Environment getEnvironment()
+    {
+        return environment;
     }
     
     /**
@@ -299,40 +746,33 @@ public class Simulator
      * @return int time  The time of day for the simulation
      *      This is a number between 0 and 23.
      */
-    public static int getTime() {
-        return time;
+    public int getTime() {
+        return environment.getTime();
     }
     
     /**
      * Get current season of Simulator.
      * @return int season  The number representing each season of the year.
-     *  This is a number between 0 and 3. 0 is Spring, 1 is Summer, 2 is Autumn & 3 is Winter.
-     */
-    public static int getSeason() {
-        return season;
-    }
-    
-    /**
-     * Sets value for rain.
+     *  This is a number between 1 and 4, or 0 before the first season starts.
      */
-    public static void setRain() {
-        rain = rand.nextDouble();
+    public int getSeason() {
+        return environment.getSeason();
     }
     
     /**
      * Returns whether or not it's raining.
      * @return boolean  True if rain value is greater than or equal to 0.75.
      */
-    public static boolean getRain() {
-        return (rain >= 0.75);
+    public boolean getRain() {
+        return environment.isRaining();
     }
     
     /**
      * Returns true if it has rained during the current season.
      * @return boolean  True if it has recently rained.
      */
-    public static boolean rainedThisSeason() {
-        return rainedThisSeason;
+    public boolean rainedThisSeason() {
+        return environment.hasRainedThisSeason();
     }
     
     /**
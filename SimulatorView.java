@@ -1,6 +1,9 @@
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import javax.swing.*;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import javax.swing.JFrame;
@@ -15,6 +18,17 @@ import java.awt.event.ActionEvent;
  * Colors for each type of species can be defined using the
  * setColor method.
  * 
+ * The simulation does not draw the view itself. showStatus publishes a
+ * FrameSnapshot of the cells that changed to a small ring buffer, and a
+ * Swing timer on the event dispatch thread draws the newest snapshot,
+ * dropping any it had no time for. Only after a snapshot was dropped,
+ * or when the field is new, is a snapshot of every cell published and
+ * the whole field redrawn. All Swing components are only touched on the
+ * event dispatch thread: the simulator builds the view there, the
+ * buttons update themselves in their listeners and hand the simulation
+ * to a thread of their own, and a slow paint no longer holds up the
+ * simulation.
+ * 
  * @author David J. Barnes and Michael Kölling
  * @version 2016.02.29
  */
@@ -26,6 +40,11 @@ public class SimulatorView extends JFrame
     // Color used for objects that have no defined color.
     private static final Color UNKNOWN_COLOR = Color.gray;
 
+    // The milliseconds between checks for a new frame to draw.
+    private static final int RENDER_INTERVAL = 15;
+    // The most frames that can wait to be drawn.
+    private static final int FRAME_CAPACITY = 4;
+
     private final String STEP_PREFIX = "Step: ";
     private final String POPULATION_PREFIX = "Population: ";
     private JLabel stepLabel, population, infoLabel;
@@ -33,8 +52,22 @@ public class SimulatorView extends JFrame
     
     // A map for storing colors for participants in the simulation
     private Map<Class, Color> colors;
-    // A statistics object computing and storing simulation information
-    private FieldStats stats;
+    // The RGB value for each species number, or 0 if not yet looked up.
+    private int[] speciesRgb;
+    // The field shown by the last call to showStatus.
+    private Field shownField;
+    // The species number of each cell of shownField, as last published.
+    private byte[] shownSpecies;
+    // Receives the ids of changed cells from the field.
+    private int[] changeBuffer;
+    // Frames published by the simulation and waiting to be drawn.
+    private FrameBuffer frames;
+    // Set by the event dispatch thread when it needs a full frame.
+    private volatile boolean fullFrameWanted;
+    // The number of frames dropped when the last frame was drawn.
+    private long drawnDropped;
+    // Draws new frames on the event dispatch thread.
+    private Timer renderTimer;
     
     private JButton Play, Pause, Next, Reset, Quit;
     
@@ -48,8 +81,9 @@ public class SimulatorView extends JFrame
      * @param width  The simulation's width.
      */
     public SimulatorView(int height, int width, Simulator simulator) {
-        stats = new FieldStats();
         colors = new LinkedHashMap<>();
+        speciesRgb = new int[Species.MAX_SPECIES + 1];
+        frames = new FrameBuffer(FRAME_CAPACITY);
 
         setTitle("Safari Simulation");
         stepLabel = new JLabel(STEP_PREFIX, JLabel.CENTER);
@@ -73,7 +107,6 @@ public class SimulatorView extends JFrame
         pack();
         setVisible(true);
         
-        stats = new FieldStats();
         colors = new LinkedHashMap<>();
         this.simulator = simulator;
 
@@ -105,43 +138,43 @@ public class SimulatorView extends JFrame
         buttonBar.add(Next);
         buttonBar.add(Reset);
         buttonBar.add(Quit);
-        // Adding action listeners for each button.
-        Play.addActionListener(e -> new Thread(() -> {
-                        Play.setEnabled(false);
-                        Pause.setEnabled(true);
-                        Next.setEnabled(false);
-                        Reset.setEnabled(false);
-                        Quit.setEnabled(true);
-                        simulator.runLongSimulation();
-                    }).start());
-
-        Pause.addActionListener(e -> new Thread(() -> {
-                        Play.setEnabled(true);
-                        Pause.setEnabled(false);
-                        Next.setEnabled(true);
-                        Reset.setEnabled(true);
-                        Quit.setEnabled(true);
-                        simulator.pause();
-                    }).start());
-
-        Next.addActionListener(e -> new Thread(() -> {
-                        Play.setEnabled(true);
-                        Pause.setEnabled(false);
-                        Next.setEnabled(true);
-                        Reset.setEnabled(true);
-                        Quit.setEnabled(true);
-                        simulator.simulateOneStep();
-                    }).start());
-
-        Reset.addActionListener(e -> new Thread(() -> {
-                        Play.setEnabled(true);
-                        Next.setEnabled(true);
-                        simulator.reset();
-                    }).start());
-
-        Quit.addActionListener(e -> new Thread(() -> {
-                        simulator.quit();
-                    }).start());
+        // Adding action listeners for each button. The buttons are
+        // updated here, on the event dispatch thread; only the
+        // simulation itself runs on a thread of its own.
+        Play.addActionListener(e -> {
+            Play.setEnabled(false);
+            Pause.setEnabled(true);
+            Next.setEnabled(false);
+            Reset.setEnabled(false);
+            Quit.setEnabled(true);
+            new Thread(simulator::runLongSimulation).start();
+        });
+
+        Pause.addActionListener(e -> {
+            Play.setEnabled(true);
+            Pause.setEnabled(false);
+            Next.setEnabled(true);
+            Reset.setEnabled(true);
+            Quit.setEnabled(true);
+            new Thread(simulator::pause).start();
+        });
+
+        Next.addActionListener(e -> {
+            Play.setEnabled(true);
+            Pause.setEnabled(false);
+            Next.setEnabled(true);
+            Reset.setEnabled(true);
+            Quit.setEnabled(true);
+            new Thread(simulator::simulateOneStep).start();
+        });
+
+        Reset.addActionListener(e -> {
+            Play.setEnabled(true);
+            Next.setEnabled(true);
+            new Thread(simulator::reset).start();
+        });
+
+        Quit.addActionListener(e -> new Thread(simulator::quit).start());
 
         contents = getContentPane();
         infoPane = new JPanel(new BorderLayout());
@@ -154,16 +187,22 @@ public class SimulatorView extends JFrame
         contents.add(buttonBar, BorderLayout.EAST);
         pack();
         setVisible(true);
+        
+        renderTimer = new Timer(RENDER_INTERVAL, e -> render());
+        renderTimer.start();
     }
     
     /**
-     * Define a color to be used for a given class of animal.
+     * Define a color to be used for a given class of animal. Call this
+     * on the event dispatch thread, where the view is drawn.
      * @param animalClass The animal's Class object.
      * @param color The color to be used for the given class.
      */
     public void setColor(Class animalClass, Color color)
     {
         colors.put(animalClass, color);
+        Arrays.fill(speciesRgb, 0);
+        fullFrameWanted = true;
     }
 
     /**
@@ -171,7 +210,24 @@ public class SimulatorView extends JFrame
      */
     public void setInfoText(String text)
     {
-        infoLabel.setText(text);
+        SwingUtilities.invokeLater(() -> infoLabel.setText(text));
+    }
+
+    /**
+     * Stop drawing frames and close the window.
+     */
+    public void dispose()
+    {
+        renderTimer.stop();
+        super.dispose();
+    }
+
+    /**
+     * @return The number of published frames that were never drawn.
+     */
+    public long getDroppedFrames()
+    {
+        return frames.getDropped();
     }
 
     /**
@@ -189,38 +245,110 @@ public class SimulatorView extends JFrame
         }
     }
 
+    /**
+     * Return the RGB value used for a species.
+     * @param species The species number.
+     * @return The color's RGB value.
+     */
+    private int getRgb(int species)
+    {
+        int rgb = speciesRgb[species];
+        if(rgb == 0) {
+            Class<?> type = Species.getType(species);
+            rgb = (type == null ? EMPTY_COLOR : getColor(type)).getRGB();
+            speciesRgb[species] = rgb;
+        }
+        return rgb;
+    }
+
     /**
      * Show the current status of the field.
+     * A snapshot of the field is published for drawing; this method
+     * does not wait for it to be drawn. Only the cells that changed since
+     * the previous call are read and published, the field being asked to
+     * record them the first time it is shown; a field with a vegetation
+     * layer also records the cells whose grass became or stopped being
+     * grazeable. Every cell is published when the field is new or the
+     * view has asked for it.
      * @param step Which iteration step it is.
      * @param field The field whose status is to be displayed.
      */
-    public void showStatus(int step, Field field)
+    public synchronized void showStatus(int step, Field field)
     {
+        boolean full = fullFrameWanted;
+        if(field != shownField) {
+            // A new field: read every cell.
+            field.setChangeTracking(false);
+            field.setChangeTracking(true);
+            shownField = field;
+            shownSpecies = new byte[field.getSize()];
+            changeBuffer = new int[field.getSize()];
+            full = true;
+        }
+        int count = field.drainChanges(changeBuffer);
+        // Grazeable grass is shown wherever there is no animal.
+        VegetationLayer vegetation = field.getVegetation();
+        int grass = Species.of(Grass.class);
+        for(int i = 0; i < count; i++) {
+            int cell = changeBuffer[i];
+            int species = Species.of(field.getObjectAt(cell));
+            if(vegetation != null && species == Species.EMPTY && vegetation.isGrazeable(cell)) {
+                species = grass;
+            }
+            shownSpecies[cell] = (byte) species;
+        }
+        String details = field.getStats().getPopulationDetails(field);
+        // A list of changes takes five bytes a cell, a full copy one.
+        if(full || count * 5L >= shownSpecies.length) {
+            fullFrameWanted = false;
+            frames.publish(new FrameSnapshot(step, field.getWidth(), shownSpecies.clone(), details));
+        }
+        else {
+            int[] cells = Arrays.copyOf(changeBuffer, count);
+            byte[] species = new byte[count];
+            for(int i = 0; i < count; i++) {
+                species[i] = shownSpecies[cells[i]];
+            }
+            frames.publish(new FrameSnapshot(step, field.getWidth(), shownSpecies.length,
+                                             cells, species, details));
+        }
+    }
+
+    /**
+     * Draw the newest published frame, if there is one. Only the cells
+     * the frame holds are drawn. If any frame was dropped, the changes
+     * it held are missing from the screen, so a full frame is asked for.
+     * This runs on the event dispatch thread.
+     */
+    private void render()
+    {
+        FrameSnapshot frame = frames.takeLatest();
+        if(frame == null) {
+            return;
+        }
         if(!isVisible()) {
             setVisible(true);
         }
             
-        stepLabel.setText(STEP_PREFIX + step);
-        stats.reset();
+        stepLabel.setText(STEP_PREFIX + frame.getStep());
         
         fieldView.preparePaint();
 
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    stats.incrementCount(animal.getClass());
-                    fieldView.drawMark(col, row, getColor(animal.getClass()));
-                }
-                else {
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
-                }
+        long dropped = frames.getDropped();
+        if(dropped != drawnDropped && !frame.isFull()) {
+            fullFrameWanted = true;
+        }
+        drawnDropped = dropped;
+        if(frame.getCount() > 0) {
+            for(int i = 0; i < frame.getCount(); i++) {
+                fieldView.drawMark(frame.getCell(i), getRgb(frame.getSpecies(i)));
             }
+            int first = frame.getCell(0);
+            int last = frame.getCell(frame.getCount() - 1);
+            fieldView.repaintRows(first / frame.getWidth(), last / frame.getWidth());
         }
-        stats.countFinished();
 
-        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
-        fieldView.repaint();
+        population.setText(POPULATION_PREFIX + frame.getPopulation());
     }
 
     /**
@@ -229,7 +357,7 @@ public class SimulatorView extends JFrame
      */
     public boolean isViable(Field field)
     {
-        return stats.isViable(field);
+        return field.getStats().isViable(field);
     }
     
     /**
@@ -237,6 +365,8 @@ public class SimulatorView extends JFrame
      * a nested class (a class defined inside a class) which
      * defines a custom component for the user interface. This
      * component displays the field.
+     * The field is kept as an image with one pixel per cell, written
+     * directly through its int[] raster and scaled up when painted.
      * This is rather advanced GUI stuff - you can ignore this 
      * for your project if you like.
      */
@@ -247,8 +377,9 @@ public class SimulatorView extends JFrame
         private int gridWidth, gridHeight;
         private int xScale, yScale;
         Dimension size;
-        private Graphics g;
-        private Image fieldImage;
+        // The field image, one pixel per cell, and its pixels.
+        private BufferedImage fieldImage;
+        private int[] pixels;
 
         /**
          * Create a new FieldView component.
@@ -258,6 +389,8 @@ public class SimulatorView extends JFrame
             gridHeight = height;
             gridWidth = width;
             size = new Dimension(0, 0);
+            fieldImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) fieldImage.getRaster().getDataBuffer()).getData();
         }
 
         /**
@@ -277,8 +410,6 @@ public class SimulatorView extends JFrame
         {
             if(! size.equals(getSize())) {  // if the size has changed...
                 size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
-                g = fieldImage.getGraphics();
 
                 xScale = size.width / gridWidth;
                 if(xScale < 1) {
@@ -292,29 +423,34 @@ public class SimulatorView extends JFrame
         }
         
         /**
-         * Paint on grid location on this field in a given color.
+         * Paint one cell of the field in a given color.
+         * @param cell The cell id.
+         * @param rgb The color's RGB value.
          */
-        public void drawMark(int x, int y, Color color)
+        public void drawMark(int cell, int rgb)
         {
-            g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale-1, yScale-1);
+            pixels[cell] = rgb;
+        }
+
+        /**
+         * Ask for a band of rows to be copied to screen.
+         * @param firstRow The first row that changed.
+         * @param lastRow The last row that changed.
+         */
+        public void repaintRows(int firstRow, int lastRow)
+        {
+            repaint(0, firstRow * yScale, gridWidth * xScale, (lastRow - firstRow + 1) * yScale);
         }
 
         /**
          * The field view component needs to be redisplayed. Copy the
-         * internal image to screen.
+         * internal image to screen, scaling each cell up.
          */
         public void paintComponent(Graphics g)
         {
-            if(fieldImage != null) {
-                Dimension currentSize = getSize();
-                if(size.equals(currentSize)) {
-                    g.drawImage(fieldImage, 0, 0, null);
-                }
-                else {
-                    // Rescale the previous image.
-                    g.drawImage(fieldImage, 0, 0, currentSize.width, currentSize.height, null);
-                }
+            super.paintComponent(g);
+            if(xScale > 0) {
+                g.drawImage(fieldImage, 0, 0, gridWidth * xScale, gridHeight * yScale, null);
             }
         }
     }
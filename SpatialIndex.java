@@ -0,0 +1,224 @@
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Count the occupants of a field by species and area, so that animals
+ * can look for the nearest animals of a species over a distance without
+ * scanning every cell around them. The field is divided into square
+ * buckets of BUCKET_SIZE cells a side, and the index keeps the number
+ * of occupants of each species in each bucket, updated by the field as
+ * occupants are placed and cleared.
+ *
+ * A search visits the buckets in rings of growing distance around the
+ * cell searched from, skips those holding none of the species, and
+ * scans the cells of the others in the field's species plane. It stops
+ * as soon as no bucket further out can hold anything nearer. Distances
+ * are counted in steps to any of the eight neighbours, as the field's
+ * adjacent cells are.
+ *
+ * The counts are changed atomically, so tiles of a parallel step may
+ * place and clear occupants at the same time. A bucket's count only
+ * decides whether its cells are scanned, so a search gives exact results
+ * as long as nothing in the searched area moves during the search.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class SpatialIndex
+{
+    // The width and depth of a bucket, as a power of two.
+    private static final int BUCKET_SHIFT = 3;
+    public static final int BUCKET_SIZE = 1 << BUCKET_SHIFT;
+    // Per-thread buffers for searches for the single nearest cell.
+    private static final ThreadLocal<int[]> nearestBuffer =
+        ThreadLocal.withInitial(() -> new int[1]);
+
+    // The depth and width of the field.
+    private final int depth, width;
+    // The number of buckets across and down the field.
+    private final int bucketsAcross, bucketsDown;
+    // The number of occupants in each bucket, one array per species
+    // number, created when the species is first counted.
+    private final AtomicReferenceArray<AtomicIntegerArray> counts;
+
+    /**
+     * Create an empty index for a field of the given size.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public SpatialIndex(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        bucketsAcross = (width + BUCKET_SIZE - 1) >>> BUCKET_SHIFT;
+        bucketsDown = (depth + BUCKET_SIZE - 1) >>> BUCKET_SHIFT;
+        counts = new AtomicReferenceArray<>(Species.MAX_SPECIES + 1);
+    }
+
+    /**
+     * Count an occupant placed in a cell.
+     * @param cell The cell id.
+     * @param species The occupant's species number.
+     */
+    public void add(int cell, int species)
+    {
+        AtomicIntegerArray bucketCounts = counts.get(species);
+        if(bucketCounts == null) {
+            counts.compareAndSet(species, null, new AtomicIntegerArray(bucketsAcross * bucketsDown));
+            bucketCounts = counts.get(species);
+        }
+        bucketCounts.incrementAndGet(bucketOf(cell));
+    }
+
+    /**
+     * Stop counting an occupant cleared from a cell.
+     * @param cell The cell id.
+     * @param species The occupant's species number.
+     */
+    public void remove(int cell, int species)
+    {
+        counts.get(species).decrementAndGet(bucketOf(cell));
+    }
+
+    /**
+     * Forget every occupant.
+     */
+    public void clear()
+    {
+        for(int species = 0; species < counts.length(); species++) {
+            counts.set(species, null);
+        }
+    }
+
+    /**
+     * Find the nearest occupant of a species within a distance of a
+     * cell, not counting the cell itself.
+     * @param field The field the index belongs to.
+     * @param cell The cell to search from.
+     * @param species The species number to look for.
+     * @param radius The greatest distance to look.
+     * @return The nearest cell holding the species, or -1 if there is
+     *         none within the distance.
+     */
+    public int nearest(Field field, int cell, int species, int radius)
+    {
+        int[] found = nearestBuffer.get();
+        return nearest(field, cell, species, radius, found, 1) > 0 ? found[0] : -1;
+    }
+
+    /**
+     * Find the k nearest occupants of a species within a distance of a
+     * cell, not counting the cell itself. Cells at the same distance are
+     * given in the order the search meets them.
+     * @param field The field the index belongs to.
+     * @param cell The cell to search from.
+     * @param species The species number to look for.
+     * @param radius The greatest distance to look.
+     * @param found Receives the cells found, nearest first; at least k long.
+     * @param k The greatest number of cells wanted.
+     * @return The number of cells written to found.
+     */
+    public int nearest(Field field, int cell, int species, int radius, int[] found, int k)
+    {
+        AtomicIntegerArray bucketCounts = counts.get(species);
+        if(bucketCounts == null || k <= 0) {
+            return 0;
+        }
+        int row = cell / width;
+        int col = cell - row * width;
+        int top = Math.max(row - radius, 0);
+        int bottom = Math.min(row + radius, depth - 1);
+        int left = Math.max(col - radius, 0);
+        int right = Math.min(col + radius, width - 1);
+        int bucketRow = row >>> BUCKET_SHIFT;
+        int bucketCol = col >>> BUCKET_SHIFT;
+        int firstRow = top >>> BUCKET_SHIFT;
+        int lastRow = bottom >>> BUCKET_SHIFT;
+        int firstCol = left >>> BUCKET_SHIFT;
+        int lastCol = right >>> BUCKET_SHIFT;
+        int rings = Math.max(Math.max(bucketRow - firstRow, lastRow - bucketRow),
+                             Math.max(bucketCol - firstCol, lastCol - bucketCol));
+        int count = 0;
+        for(int ring = 0; ring <= rings; ring++) {
+            // Every cell of a bucket in this ring is at least this far away.
+            int closest = ring == 0 ? 0 : ((ring - 1) << BUCKET_SHIFT) + 1;
+            if(count == k && distance(cell, found[k - 1]) < closest) {
+                break;
+            }
+            int fromRow = Math.max(bucketRow - ring, firstRow);
+            int toRow = Math.min(bucketRow + ring, lastRow);
+            for(int br = fromRow; br <= toRow; br++) {
+                boolean edge = br == bucketRow - ring || br == bucketRow + ring;
+                int step = edge || ring == 0 ? 1 : 2 * ring;
+                for(int bc = bucketCol - ring; bc <= bucketCol + ring; bc += step) {
+                    if(bc < firstCol || bc > lastCol
+                       || bucketCounts.get(br * bucketsAcross + bc) == 0) {
+                        continue;
+                    }
+                    int rowEnd = Math.min(bottom, (br << BUCKET_SHIFT) + BUCKET_SIZE - 1);
+                    int colEnd = Math.min(right, (bc << BUCKET_SHIFT) + BUCKET_SIZE - 1);
+                    for(int r = Math.max(top, br << BUCKET_SHIFT); r <= rowEnd; r++) {
+                        for(int c = Math.max(left, bc << BUCKET_SHIFT); c <= colEnd; c++) {
+                            int other = r * width + c;
+                            if(other != cell && field.getSpecies(other) == species) {
+                                count = insert(found, count, k, cell, other);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return the distance between two cells, in steps to any of the
+     * eight neighbours.
+     * @param cell A cell id.
+     * @param other Another cell id.
+     * @return The distance.
+     */
+    public int distance(int cell, int other)
+    {
+        int row = cell / width;
+        int otherRow = other / width;
+        return Math.max(Math.abs(row - otherRow),
+                        Math.abs((cell - row * width) - (other - otherRow * width)));
+    }
+
+    /**
+     * Add a cell to a list of the nearest cells found so far, if it is
+     * nearer than the furthest of them or the list is not yet full.
+     * @param found The cells found so far, nearest first.
+     * @param count The number of cells found so far.
+     * @param k The greatest number of cells wanted.
+     * @param cell The cell searched from.
+     * @param other The cell to add.
+     * @return The new number of cells found.
+     */
+    private int insert(int[] found, int count, int k, int cell, int other)
+    {
+        int d = distance(cell, other);
+        if(count == k && d >= distance(cell, found[k - 1])) {
+            return count;
+        }
+        int i = count < k ? count++ : k - 1;
+        while(i > 0 && distance(cell, found[i - 1]) > d) {
+            found[i] = found[i - 1];
+            i--;
+        }
+        found[i] = other;
+        return count;
+    }
+
+    /**
+     * @param cell A cell id.
+     * @return The index of the bucket holding the cell.
+     */
+    private int bucketOf(int cell)
+    {
+        int row = cell / width;
+        int col = cell - row * width;
+        return (row >>> BUCKET_SHIFT) * bucketsAcross + (col >>> BUCKET_SHIFT);
+    }
+}
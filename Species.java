@@ -0,0 +1,103 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Give every class of simulation participant a small species number.
+ * The species of the simulation are numbered from 1 in a fixed order,
+ * so that reports and CSV columns always list them the same way; any
+ * other class gets the next number the first time it is seen. 0 (EMPTY)
+ * stands for no participant at all. The numbers let counters and other
+ * per-species data live in plain arrays instead of maps.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class Species
+{
+    // The species number used for an empty cell.
+    public static final int EMPTY = 0;
+    // The largest species number that can be handed out.
+    public static final int MAX_SPECIES = 127;
+
+    // The classes registered so far, indexed by species number.
+    private static final List<Class<?>> classes = new ArrayList<>();
+    // The species number of each class, computed once per class.
+    private static final ClassValue<Integer> numbers = new ClassValue<Integer>() {
+        protected Integer computeValue(Class<?> type)
+        {
+            return register(type);
+        }
+    };
+
+    static {
+        classes.add(null);
+        for(Class<?> type : new Class<?>[] { Lion.class, Tiger.class, Bear.class,
+                                             Zebra.class, Deer.class, Grass.class }) {
+            of(type);
+        }
+    }
+
+    /**
+     * Return the species number of a participant.
+     * @param participant The participant, or null.
+     * @return Its species number, or EMPTY for null.
+     */
+    public static int of(Object participant)
+    {
+        if(participant == null) {
+            return EMPTY;
+        }
+        return numbers.get(participant.getClass());
+    }
+
+    /**
+     * Return the species number of a class of participant.
+     * @param type The class.
+     * @return Its species number.
+     */
+    public static int of(Class<?> type)
+    {
+        return numbers.get(type);
+    }
+
+    /**
+     * Return the class with the given species number.
+     * @param species The species number.
+     * @return The class, or null if the number is EMPTY or unused.
+     */
+    public static synchronized Class<?> getType(int species)
+    {
+        if(species <= 0 || species >= classes.size()) {
+            return null;
+        }
+        return classes.get(species);
+    }
+
+    /**
+     * Return one more than the largest species number handed out so far.
+     * @return The number of species numbers in use, including EMPTY.
+     */
+    public static synchronized int count()
+    {
+        return classes.size();
+    }
+
+    /**
+     * Hand out the next species number, or the number already handed
+     * out if another thread registered the class first.
+     * @param type The class to register.
+     * @return Its species number.
+     */
+    private static synchronized int register(Class<?> type)
+    {
+        int known = classes.indexOf(type);
+        if(known > 0) {
+            return known;
+        }
+        if(classes.size() > MAX_SPECIES) {
+            throw new IllegalStateException("Too many species: " + type.getName());
+        }
+        classes.add(type);
+        return classes.size() - 1;
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * The behaviour of one species in an ActorStore: how long it lives,
+ * how it breeds, what it eats and when it is active. The default table
+ * mirrors the parameters the animal classes pass to Animal and use in
+ * their act methods, though ActorStore only approximates the
+ * simulation they run.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class SpeciesBehaviour
+{
+    // Indexes of the species in the default table.
+    public static final int LION = 0;
+    public static final int TIGER = 1;
+    public static final int BEAR = 2;
+    public static final int ZEBRA = 3;
+    public static final int DEER = 4;
+    // The prey of a species that eats grass rather than other animals.
+    public static final int GRAZER = -1;
+    // When a species runs the infection roll: never, only during its
+    // active hours, or every step whether active or not.
+    public static final int INFECTION_NEVER = 0;
+    public static final int INFECTION_WHILE_ACTIVE = 1;
+    public static final int INFECTION_ALWAYS = 2;
+
+    // The species' name, used in population details.
+    private final String name;
+    // The age at which an animal can start to breed.
+    private final int breedingAge;
+    // The age to which an animal can live.
+    private final int maxAge;
+    // The likelihood of an animal breeding.
+    private final double breedingProbability;
+    // The maximum number of births.
+    private final int maxLitterSize;
+    // The food value of one meal: the number of active steps an animal
+    // can go before it has to eat again.
+    private final int foodValue;
+    // The index of the species eaten, or GRAZER.
+    private final int prey;
+    // The first and last hour of the day in which the species is active.
+    // If the first hour is after the last the window wraps past midnight.
+    private final int activeFrom, activeTo;
+    // The chance of getting hungrier during each inactive step.
+    private final double dormantHungerProbability;
+    // When the species runs the infection roll, one of the INFECTION
+    // constants.
+    private final int infection;
+
+    /**
+     * Describe the behaviour of a species.
+     * @param name The species' name.
+     * @param breedingAge The age at which an animal can start to breed.
+     * @param maxAge The age to which an animal can live.
+     * @param breedingProbability The likelihood of an animal breeding.
+     * @param maxLitterSize The maximum number of births.
+     * @param foodValue The number of active steps one meal lasts.
+     * @param prey The index of the species eaten, or GRAZER.
+     * @param activeFrom The first active hour of the day.
+     * @param activeTo The last active hour of the day.
+     * @param dormantHungerProbability The chance of getting hungrier
+     *                                 during an inactive step.
+     * @param infection When the species runs the infection roll, one of
+     *                  the INFECTION constants.
+     */
+    public SpeciesBehaviour(String name, int breedingAge, int maxAge, double breedingProbability,
+                            int maxLitterSize, int foodValue, int prey,
+                            int activeFrom, int activeTo, double dormantHungerProbability,
+                            int infection)
+    {
+        if(infection < INFECTION_NEVER || infection > INFECTION_ALWAYS) {
+            throw new IllegalArgumentException("No such infection policy: " + infection);
+        }
+        this.name = name;
+        this.breedingAge = breedingAge;
+        this.maxAge = maxAge;
+        this.breedingProbability = breedingProbability;
+        this.maxLitterSize = maxLitterSize;
+        this.foodValue = foodValue;
+        this.prey = prey;
+        this.activeFrom = activeFrom;
+        this.activeTo = activeTo;
+        this.dormantHungerProbability = dormantHungerProbability;
+        this.infection = infection;
+    }
+
+    /**
+     * Return the default behaviour table, indexed by LION, TIGER, BEAR,
+     * ZEBRA and DEER.
+     * @return A new copy of the default table.
+     */
+    public static SpeciesBehaviour[] defaults()
+    {
+        return new SpeciesBehaviour[] {
+            new SpeciesBehaviour("Lion", 15, 150, 0.9, 3, 20, ZEBRA, 8, 18, 0.125,
+                                 INFECTION_ALWAYS),
+            new SpeciesBehaviour("Tiger", 15, 150, 0.8, 1, 24, DEER, 0, 14, 0.125,
+                                 INFECTION_WHILE_ACTIVE),
+            new SpeciesBehaviour("Bear", 15, 150, 0.8, 2, 20, DEER, 5, 17, 0.1,
+                                 INFECTION_WHILE_ACTIVE),
+            new SpeciesBehaviour("Zebra", 15, 250, 0.8, 4, 9, GRAZER, 6, 18, 0.1,
+                                 INFECTION_WHILE_ACTIVE),
+            new SpeciesBehaviour("Deer", 15, 150, 0.95, 3, 14, GRAZER, 14, 6, 0.0,
+                                 INFECTION_NEVER),
+        };
+    }
+
+    /**
+     * Check whether the species is active at a time of day.
+     * @param time The hour of the day, 0 to 23.
+     * @return true if the species is active at that hour.
+     */
+    public boolean isActive(int time)
+    {
+        if(activeFrom <= activeTo) {
+            return time >= activeFrom && time <= activeTo;
+        }
+        else {
+            return time >= activeFrom || time <= activeTo;
+        }
+    }
+
+    /**
+     * @return The species' name.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return The age at which an animal can start to breed.
+     */
+    public int getBreedingAge()
+    {
+        return breedingAge;
+    }
+
+    /**
+     * @return The age to which an animal can live.
+     */
+    public int getMaxAge()
+    {
+        return maxAge;
+    }
+
+    /**
+     * @return The likelihood of an animal breeding.
+     */
+    public double getBreedingProbability()
+    {
+        return breedingProbability;
+    }
+
+    /**
+     * @return The maximum number of births.
+     */
+    public int getMaxLitterSize()
+    {
+        return maxLitterSize;
+    }
+
+    /**
+     * @return The number of active steps one meal lasts.
+     */
+    public int getFoodValue()
+    {
+        return foodValue;
+    }
+
+    /**
+     * @return The index of the species eaten, or GRAZER.
+     */
+    public int getPrey()
+    {
+        return prey;
+    }
+
+    /**
+     * @return The chance of getting hungrier during an inactive step.
+     */
+    public double getDormantHungerProbability()
+    {
+        return dormantHungerProbability;
+    }
+
+    /**
+     * @return When the species runs the infection roll, one of the
+     *         INFECTION constants.
+     */
+    public int getInfection()
+    {
+        return infection;
+    }
+}
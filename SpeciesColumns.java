@@ -0,0 +1,126 @@
+import java.util.Arrays;
+
+/**
+ * The animals of one species in an ActorStore, held as parallel
+ * primitive columns rather than as objects. Slot i of every column
+ * describes the same animal. The columns are package-private so that
+ * the store's loops can read and write them directly.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class SpeciesColumns
+{
+    // The capacity of a new set of columns.
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // The number of slots in use.
+    int size;
+    // Each animal's age.
+    int[] age;
+    // Each animal's food level.
+    int[] food;
+    // Each animal's cell in the store's field.
+    int[] cell;
+    // Each animal's sex: 1 for female, 0 for male.
+    byte[] female;
+    // Each animal's infection level.
+    float[] infection;
+    // Whether each animal is alive.
+    boolean[] alive;
+
+    /**
+     * Create empty columns.
+     */
+    public SpeciesColumns()
+    {
+        age = new int[INITIAL_CAPACITY];
+        food = new int[INITIAL_CAPACITY];
+        cell = new int[INITIAL_CAPACITY];
+        female = new byte[INITIAL_CAPACITY];
+        infection = new float[INITIAL_CAPACITY];
+        alive = new boolean[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Add an animal.
+     * @param newCell The animal's cell.
+     * @param newAge The animal's age.
+     * @param newFood The animal's food level.
+     * @param isFemale Whether the animal is female.
+     * @param newInfection The animal's infection level.
+     * @return The animal's slot.
+     * @throws IllegalStateException If every slot an occupant entry can
+     *                               name is in use.
+     */
+    public int add(int newCell, int newAge, int newFood, boolean isFemale, float newInfection)
+    {
+        if(size > ActorStore.SLOT_MASK) {
+            throw new IllegalStateException("Too many animals of one species: " + size);
+        }
+        if(size == cell.length) {
+            grow();
+        }
+        int slot = size++;
+        cell[slot] = newCell;
+        age[slot] = newAge;
+        food[slot] = newFood;
+        female[slot] = (byte) (isFemale ? 1 : 0);
+        infection[slot] = newInfection;
+        alive[slot] = true;
+        return slot;
+    }
+
+    /**
+     * Remove the dead animals in one pass, keeping the living ones in
+     * order. The occupant entries of animals that change slot are
+     * updated to match.
+     * @param occupant The store's occupant plane.
+     * @param species The index of this species in the store.
+     * @return The number of animals removed.
+     */
+    public int compact(int[] occupant, int species)
+    {
+        int live = 0;
+        for(int slot = 0; slot < size; slot++) {
+            if(alive[slot]) {
+                if(live != slot) {
+                    cell[live] = cell[slot];
+                    age[live] = age[slot];
+                    food[live] = food[slot];
+                    female[live] = female[slot];
+                    infection[live] = infection[slot];
+                    alive[live] = true;
+                    occupant[cell[live]] = ActorStore.encode(species, live);
+                }
+                live++;
+            }
+        }
+        int removed = size - live;
+        Arrays.fill(alive, live, size, false);
+        size = live;
+        return removed;
+    }
+
+    /**
+     * @return The number of animals in the columns, living or not.
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Double the capacity of every column.
+     */
+    private void grow()
+    {
+        int capacity = cell.length * 2;
+        age = Arrays.copyOf(age, capacity);
+        food = Arrays.copyOf(food, capacity);
+        cell = Arrays.copyOf(cell, capacity);
+        female = Arrays.copyOf(female, capacity);
+        infection = Arrays.copyOf(infection, capacity);
+        alive = Arrays.copyOf(alive, capacity);
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count the events of a step that leave no trace in the field: animals
+ * killed by predators or grazers, animals starved, and infections
+ * passed on. Actors
+ * record the events through their field; the simulator reads and
+ * resets the counts at the end of each step. The counts may be updated
+ * from several threads at once.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class StepEvents
+{
+    // The number of actors eaten.
+    private final LongAdder kills;
+    // The number of infections passed on.
+    private final LongAdder infections;
+    // The number of animals starved.
+    private final LongAdder starvations;
+
+    /**
+     * Create empty counts.
+     */
+    public StepEvents()
+    {
+        kills = new LongAdder();
+        infections = new LongAdder();
+        starvations = new LongAdder();
+    }
+
+    /**
+     * Record that an actor was eaten.
+     */
+    public void kill()
+    {
+        kills.increment();
+    }
+
+    /**
+     * Record that an infection was passed on.
+     */
+    public void infect()
+    {
+        infections.increment();
+    }
+
+    /**
+     * Record that an animal starved.
+     */
+    public void starve()
+    {
+        starvations.increment();
+    }
+
+    /**
+     * Return the number of actors eaten, and start counting again.
+     * @return The number of kills since the last call.
+     */
+    public int takeKills()
+    {
+        return (int) kills.sumThenReset();
+    }
+
+    /**
+     * Return the number of infections passed on, and start counting again.
+     * @return The number of infections since the last call.
+     */
+    public int takeInfections()
+    {
+        return (int) infections.sumThenReset();
+    }
+
+    /**
+     * Return the number of animals starved, and start counting again.
+     * @return The number of starvations since the last call.
+     */
+    public int takeStarvations()
+    {
+        return (int) starvations.sumThenReset();
+    }
+
+    /**
+     * Forget all the counts.
+     */
+    public void reset()
+    {
+        kills.reset();
+        infections.reset();
+        starvations.reset();
+    }
+}
@@ -0,0 +1,17 @@
+/**
+ * Something that wants to hear about every step of a simulation, such
+ * as a sink writing a population time series. Listeners are called on
+ * the simulation thread at the end of each step, so they should hand
+ * slow work on to another thread.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public interface StepListener
+{
+    /**
+     * Called when a step has finished.
+     * @param record What happened in the step.
+     */
+    void stepCompleted(StepRecord record);
+}
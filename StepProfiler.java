@@ -0,0 +1,397 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Measure where the time of each step of a simulation goes. A step is
+ * divided into phases, and the time of each phase is recorded in a
+ * histogram, along with the time of the whole step. The number of times
+ * each species acts and rests is counted too.
+ *
+ * The simulation thread marks the end of each phase with lap, which
+ * reads the clock once and records one value, so profiling can be left
+ * on. The species counts are kept by the scheduler and added here once
+ * per list of actors run. The profile can be read through JMX once
+ * registered, or printed every so many steps.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class StepProfiler implements StepProfilerMXBean
+{
+    // The phases of a step, in the order they run.
+    public static final int WEATHER = 0;
+    public static final int EPIDEMIC = 1;
+    public static final int ANIMALS = 2;
+    public static final int PLANTS = 3;
+    public static final int REPOPULATION = 4;
+    public static final int MERGE = 5;
+    public static final int STATUS = 6;
+    // The whole step.
+    public static final int STEP = 7;
+    // The name of each phase, for reports.
+    private static final String[] PHASE_NAMES = {
+        "weather", "epidemic", "animals", "plants", "repopulation", "merge", "status", "step"
+    };
+    // The domain under which profilers are registered with JMX.
+    private static final String DOMAIN = "Simulator";
+
+    // The times of each phase.
+    private final LatencyHistogram[] phases;
+    // The number of times each species, by species number, has acted
+    // and rested.
+    private final AtomicLongArray acts, rests;
+    // The number of steps profiled.
+    private volatile long steps;
+    // Whether steps are to be profiled.
+    private volatile boolean enabled;
+    // Whether the current step is being profiled.
+    private boolean timing;
+    // Set to forget the profile at the start of the next step.
+    private volatile boolean resetPending;
+    // The number of steps between printed profiles, or 0 for none.
+    private int dumpInterval;
+    // Where profiles are printed.
+    private PrintStream dumpStream;
+    // The name the profiler is registered under, or null.
+    private ObjectName registeredName;
+
+    /**
+     * Create an enabled profiler with nothing recorded.
+     */
+    public StepProfiler()
+    {
+        phases = new LatencyHistogram[PHASE_NAMES.length];
+        for(int phase = 0; phase < phases.length; phase++) {
+            phases[phase] = new LatencyHistogram();
+        }
+        acts = new AtomicLongArray(Species.MAX_SPECIES + 1);
+        rests = new AtomicLongArray(Species.MAX_SPECIES + 1);
+        enabled = true;
+    }
+
+    /**
+     * Mark the start of a step. A pending reset happens here, on the
+     * simulation thread.
+     * @return The time the step started, to be passed to the first lap.
+     */
+    public long startStep()
+    {
+        if(resetPending) {
+            resetPending = false;
+            for(LatencyHistogram histogram : phases) {
+                histogram.reset();
+            }
+            for(int species = 0; species < acts.length(); species++) {
+                acts.set(species, 0);
+                rests.set(species, 0);
+            }
+            steps = 0;
+        }
+        timing = enabled;
+        return timing ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Mark the end of a phase.
+     * @param phase The phase that has ended.
+     * @param since The time the phase started.
+     * @return The time the phase ended, when the next one starts.
+     */
+    public long lap(int phase, long since)
+    {
+        if(!timing) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        phases[phase].record(now - since);
+        return now;
+    }
+
+    /**
+     * Mark the end of a step, printing the profile if it is due.
+     * @param stepStart The time the step started.
+     */
+    public void endStep(long stepStart)
+    {
+        if(!timing) {
+            return;
+        }
+        lap(STEP, stepStart);
+        steps++;
+        if(dumpInterval > 0 && steps % dumpInterval == 0) {
+            dumpStream.print(dump());
+            dumpStream.flush();
+        }
+    }
+
+    /**
+     * Count the actors of a species that acted and rested.
+     * @param species The species number.
+     * @param acted The number that acted.
+     * @param rested The number that rested.
+     */
+    public void count(int species, int acted, int rested)
+    {
+        if(!enabled) {
+            return;
+        }
+        if(acted > 0) {
+            acts.addAndGet(species, acted);
+        }
+        if(rested > 0) {
+            rests.addAndGet(species, rested);
+        }
+    }
+
+    /**
+     * Print the profile every so many steps.
+     * @param interval The number of steps between profiles, or 0 to stop.
+     * @param out Where to print the profiles.
+     */
+    public void setDumpInterval(int interval, PrintStream out)
+    {
+        if(interval > 0 && out == null) {
+            throw new IllegalArgumentException("No stream to print profiles to");
+        }
+        dumpInterval = Math.max(interval, 0);
+        dumpStream = out;
+    }
+
+    /**
+     * Publish the profiler through the platform MBean server.
+     * @param name The name to register under, unique among the
+     *             profilers of this process.
+     * @throws JMException If the profiler cannot be registered.
+     */
+    public void register(String name) throws JMException
+    {
+        unregister();
+        ObjectName objectName = new ObjectName(DOMAIN + ":type=StepProfiler,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        registeredName = objectName;
+    }
+
+    /**
+     * Withdraw the profiler from the platform MBean server, if it was
+     * registered.
+     * @throws JMException If the profiler cannot be withdrawn.
+     */
+    public void unregister() throws JMException
+    {
+        if(registeredName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if(server.isRegistered(registeredName)) {
+                server.unregisterMBean(registeredName);
+            }
+            registeredName = null;
+        }
+    }
+
+    /**
+     * @param phase A phase.
+     * @return The times recorded for the phase.
+     */
+    public LatencyHistogram getHistogram(int phase)
+    {
+        return phases[phase];
+    }
+
+    /**
+     * @param species A species number.
+     * @return The number of times the species has acted.
+     */
+    public long getActs(int species)
+    {
+        return acts.get(species);
+    }
+
+    /**
+     * @param species A species number.
+     * @return The number of times the species has rested.
+     */
+    public long getRests(int species)
+    {
+        return rests.get(species);
+    }
+
+    /**
+     * @return The number of steps profiled.
+     */
+    public long getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * @return The names of the phases of a step, in the order they run.
+     */
+    public String[] getPhases()
+    {
+        return PHASE_NAMES.clone();
+    }
+
+    /**
+     * @return The mean time of each phase.
+     */
+    public Map<String, Double> getMeanNanos()
+    {
+        Map<String, Double> means = new LinkedHashMap<>();
+        for(int phase = 0; phase < phases.length; phase++) {
+            means.put(PHASE_NAMES[phase], phases[phase].getMean());
+        }
+        return means;
+    }
+
+    /**
+     * @return The median time of each phase.
+     */
+    public Map<String, Long> getMedianNanos()
+    {
+        return percentiles(50);
+    }
+
+    /**
+     * @return The 99th percentile time of each phase.
+     */
+    public Map<String, Long> getP99Nanos()
+    {
+        return percentiles(99);
+    }
+
+    /**
+     * @return The longest time of each phase.
+     */
+    public Map<String, Long> getMaxNanos()
+    {
+        return percentiles(100);
+    }
+
+    /**
+     * @return The number of times each species has acted.
+     */
+    public Map<String, Long> getActCounts()
+    {
+        return bySpecies(acts);
+    }
+
+    /**
+     * @return The number of times each species has rested.
+     */
+    public Map<String, Long> getRestCounts()
+    {
+        return bySpecies(rests);
+    }
+
+    /**
+     * @return True if steps are being profiled.
+     */
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Start or stop profiling steps, from the next step.
+     * @param enabled True to profile steps.
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Return the time that a percentage of a phase's times are at or below.
+     * @param phase The phase name.
+     * @param percentile The percentage, from 0 to 100.
+     * @return The time.
+     */
+    public long percentileNanos(String phase, double percentile)
+    {
+        for(int i = 0; i < PHASE_NAMES.length; i++) {
+            if(PHASE_NAMES[i].equals(phase)) {
+                return phases[i].getValueAtPercentile(percentile);
+            }
+        }
+        throw new IllegalArgumentException("No such phase: " + phase);
+    }
+
+    /**
+     * @return A table of the phase times, in microseconds, and the
+     *         species counts.
+     */
+    public String dump()
+    {
+        StringBuilder table = new StringBuilder();
+        table.append("Profile of ").append(steps).append(" steps (times in microseconds)\n");
+        table.append(String.format("%-14s %10s %10s %10s %10s %10s%n",
+                                   "phase", "mean", "p50", "p90", "p99", "max"));
+        for(int phase = 0; phase < phases.length; phase++) {
+            LatencyHistogram histogram = phases[phase];
+            table.append(String.format("%-14s %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                                       PHASE_NAMES[phase], histogram.getMean() / 1000,
+                                       histogram.getValueAtPercentile(50) / 1000.0,
+                                       histogram.getValueAtPercentile(90) / 1000.0,
+                                       histogram.getValueAtPercentile(99) / 1000.0,
+                                       histogram.getMax() / 1000.0));
+        }
+        table.append(String.format("%-14s %10s %10s%n", "species", "acts", "rests"));
+        for(int species = 1; species < Species.count(); species++) {
+            if(acts.get(species) > 0 || rests.get(species) > 0) {
+                table.append(String.format("%-14s %10d %10d%n", nameOf(species),
+                                           acts.get(species), rests.get(species)));
+            }
+        }
+        return table.toString();
+    }
+
+    /**
+     * Forget everything profiled so far, at the start of the next step.
+     */
+    public void reset()
+    {
+        resetPending = true;
+    }
+
+    /**
+     * @param percentile A percentage, from 0 to 100.
+     * @return The time that the percentage of each phase's times are at
+     *         or below.
+     */
+    private Map<String, Long> percentiles(double percentile)
+    {
+        Map<String, Long> times = new LinkedHashMap<>();
+        for(int phase = 0; phase < phases.length; phase++) {
+            times.put(PHASE_NAMES[phase], phases[phase].getValueAtPercentile(percentile));
+        }
+        return times;
+    }
+
+    /**
+     * @param counts Counts by species number.
+     * @return The counts of the species seen so far, by species name.
+     */
+    private Map<String, Long> bySpecies(AtomicLongArray counts)
+    {
+        Map<String, Long> named = new LinkedHashMap<>();
+        for(int species = 1; species < Species.count(); species++) {
+            named.put(nameOf(species), counts.get(species));
+        }
+        return named;
+    }
+
+    /**
+     * @param species A species number.
+     * @return The name of the species.
+     */
+    private static String nameOf(int species)
+    {
+        Class<?> type = Species.getType(species);
+        return type == null ? "#" + species : type.getSimpleName();
+    }
+}
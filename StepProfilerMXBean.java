@@ -0,0 +1,81 @@
+import java.util.Map;
+
+/**
+ * The view of a step profiler published through JMX, so that a running
+ * simulation can be watched from a tool such as JConsole. Times are in
+ * nanoseconds and keyed by phase name; counts are keyed by species name.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public interface StepProfilerMXBean
+{
+    /**
+     * @return The number of steps profiled.
+     */
+    long getSteps();
+
+    /**
+     * @return The names of the phases of a step, in the order they run.
+     */
+    String[] getPhases();
+
+    /**
+     * @return The mean time of each phase.
+     */
+    Map<String, Double> getMeanNanos();
+
+    /**
+     * @return The median time of each phase.
+     */
+    Map<String, Long> getMedianNanos();
+
+    /**
+     * @return The 99th percentile time of each phase.
+     */
+    Map<String, Long> getP99Nanos();
+
+    /**
+     * @return The longest time of each phase.
+     */
+    Map<String, Long> getMaxNanos();
+
+    /**
+     * @return The number of times each species has acted.
+     */
+    Map<String, Long> getActCounts();
+
+    /**
+     * @return The number of times each species has rested.
+     */
+    Map<String, Long> getRestCounts();
+
+    /**
+     * @return True if steps are being profiled.
+     */
+    boolean isEnabled();
+
+    /**
+     * Start or stop profiling steps.
+     * @param enabled True to profile steps.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Return the time that a percentage of a phase's times are at or below.
+     * @param phase The phase name.
+     * @param percentile The percentage, from 0 to 100.
+     * @return The time.
+     */
+    long percentileNanos(String phase, double percentile);
+
+    /**
+     * @return A table of the phase times and species counts.
+     */
+    String dump();
+
+    /**
+     * Forget everything profiled so far.
+     */
+    void reset();
+}
@@ -0,0 +1,212 @@
+/**
+ * What happened in one step of a simulation: the population of each
+ * species at the end of the step, the births, deaths, kills,
+ * infections and starvations during it, the grass planted to
+ * repopulate the field, and the weather. When the field has an
+ * epidemic layer the record also holds the numbers of susceptible,
+ * infected and recovered animals. Step listeners receive one record per
+ * step.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class StepRecord
+{
+    // The step number.
+    private final int step;
+    // The time of day and the season.
+    private final int time, season;
+    // The rain value, and whether it has rained this season.
+    private final double rain;
+    private final boolean rainedThisSeason;
+    // The population of each species, indexed by species number.
+    private final int[] counts;
+    // The events of the step.
+    private final int births, deaths, kills, infections, starvations;
+    // The number of plants added because grass had nearly died out.
+    private final int replanted;
+    // The numbers of susceptible, infected and recovered animals.
+    private final int susceptible, infected, recovered;
+
+    /**
+     * Create a record of a step.
+     * @param step The step number.
+     * @param time The time of day, 0 to 23.
+     * @param season The season.
+     * @param rain The rain value; it is raining at 0.75 or more.
+     * @param rainedThisSeason Whether it has rained this season.
+     * @param counts The population of each species, indexed by species
+     *               number. The record keeps the array.
+     * @param births The number of actors born.
+     * @param deaths The number of dead actors removed.
+     * @param kills The number of actors eaten.
+     * @param infections The number of infections passed on.
+     * @param starvations The number of animals starved.
+     * @param replanted The number of plants added to repopulate the field.
+     * @param susceptible The number of susceptible animals, or 0.
+     * @param infected The number of infected animals, or 0.
+     * @param recovered The number of recovered animals, or 0.
+     */
+    public StepRecord(int step, int time, int season, double rain, boolean rainedThisSeason,
+                      int[] counts, int births, int deaths, int kills, int infections,
+                      int starvations, int replanted,
+                      int susceptible, int infected, int recovered)
+    {
+        this.step = step;
+        this.time = time;
+        this.season = season;
+        this.rain = rain;
+        this.rainedThisSeason = rainedThisSeason;
+        this.counts = counts;
+        this.births = births;
+        this.deaths = deaths;
+        this.kills = kills;
+        this.infections = infections;
+        this.starvations = starvations;
+        this.replanted = replanted;
+        this.susceptible = susceptible;
+        this.infected = infected;
+        this.recovered = recovered;
+    }
+
+    /**
+     * @return The step number.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The time of day, 0 to 23.
+     */
+    public int getTime()
+    {
+        return time;
+    }
+
+    /**
+     * @return The season.
+     */
+    public int getSeason()
+    {
+        return season;
+    }
+
+    /**
+     * @return The rain value.
+     */
+    public double getRain()
+    {
+        return rain;
+    }
+
+    /**
+     * @return True if it was raining.
+     */
+    public boolean isRaining()
+    {
+        return rain >= 0.75;
+    }
+
+    /**
+     * @return True if it has rained this season.
+     */
+    public boolean hasRainedThisSeason()
+    {
+        return rainedThisSeason;
+    }
+
+    /**
+     * @return The number of species numbers the counts cover.
+     */
+    public int getSpeciesCount()
+    {
+        return counts.length;
+    }
+
+    /**
+     * Return the population of a species.
+     * @param species The species number.
+     * @return The number alive at the end of the step.
+     */
+    public int getCount(int species)
+    {
+        return species < counts.length ? counts[species] : 0;
+    }
+
+    /**
+     * @return The number of actors born.
+     */
+    public int getBirths()
+    {
+        return births;
+    }
+
+    /**
+     * @return The number of dead actors removed.
+     */
+    public int getDeaths()
+    {
+        return deaths;
+    }
+
+    /**
+     * @return The number of actors eaten.
+     */
+    public int getKills()
+    {
+        return kills;
+    }
+
+    /**
+     * @return The number of infections passed on.
+     */
+    public int getInfections()
+    {
+        return infections;
+    }
+
+    /**
+     * @return The number of animals starved.
+     */
+    public int getStarvations()
+    {
+        return starvations;
+    }
+
+    /**
+     * @return The number of plants added because grass had nearly died out.
+     */
+    public int getReplanted()
+    {
+        return replanted;
+    }
+
+    /**
+     * @return The number of animals that could still catch the disease,
+     *         or 0 if there is no epidemic layer.
+     */
+    public int getSusceptible()
+    {
+        return susceptible;
+    }
+
+    /**
+     * @return The number of infected animals, or 0 if there is no
+     *         epidemic layer.
+     */
+    public int getInfected()
+    {
+        return infected;
+    }
+
+    /**
+     * @return The number of recovered animals, or 0 if there is no
+     *         epidemic layer.
+     */
+    public int getRecovered()
+    {
+        return recovered;
+    }
+}
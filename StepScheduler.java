@@ -0,0 +1,102 @@
+import java.util.List;
+
+/**
+ * Run the actors of a step according to the hour of the day. Every
+ * species is only active for part of the day, and outside its active
+ * hours an actor does little more than age and perhaps get hungrier.
+ * Instead of calling act on every actor, the scheduler dispatches act
+ * only to the actors whose species is active in the current hour and
+ * drops the others into a bucket per species. Each bucket is then
+ * rested in one pass, so that a pass runs the same rest method over a
+ * single species, and actors that died during the active pass, such as
+ * eaten prey, are skipped.
+ *
+ * The buckets are kept per thread and reused, so a step allocates
+ * nothing, and tiles of a parallel step can be scheduled at once. When
+ * a profiler is given, the actors that act and rest are counted per
+ * thread too and handed to it once per run.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class StepScheduler
+{
+    // Per-thread buckets of resting actors, indexed by species number.
+    private static final ThreadLocal<ActorList[]> restingBuckets =
+        ThreadLocal.withInitial(() -> new ActorList[Species.MAX_SPECIES + 1]);
+    // Per-thread counts of the actors that acted, indexed by species number.
+    private static final ThreadLocal<int[]> actedCounts =
+        ThreadLocal.withInitial(() -> new int[Species.MAX_SPECIES + 1]);
+
+    /**
+     * Let the active actors act and the others rest, for one step.
+     * Active actors act in the order of the list; the resting actors
+     * then rest species by species, each species in the order of the
+     * list.
+     * @param actors The actors to run.
+     * @param newActors A list to receive newly born actors.
+     * @param environment The time and weather of the step.
+     * @param profiler The profiler to count the actors for, or null.
+     */
+    public static void run(List<Actor> actors, List<Actor> newActors, Environment environment,
+                           StepProfiler profiler)
+    {
+        ActorList[] buckets = restingBuckets.get();
+        int[] acted = actedCounts.get();
+        boolean counting = profiler != null && profiler.isEnabled();
+        int lowest = buckets.length;
+        int highest = Species.EMPTY;
+        for(int i = 0; i < actors.size(); i++) {
+            Actor actor = actors.get(i);
+            if(environment.isActive(actor.getActiveHours())) {
+                if(counting) {
+                    int species = Species.of(actor);
+                    acted[species]++;
+                    lowest = Math.min(lowest, species);
+                    highest = Math.max(highest, species);
+                }
+                actor.act(newActors, environment);
+            }
+            else if(actor.isAlive()) {
+                int species = Species.of(actor);
+                if(buckets[species] == null) {
+                    buckets[species] = new ActorList();
+                }
+                buckets[species].add(actor);
+                lowest = Math.min(lowest, species);
+                highest = Math.max(highest, species);
+            }
+        }
+        for(int species = lowest; species <= highest; species++) {
+            ActorList bucket = buckets[species];
+            int rested = 0;
+            if(bucket != null && !bucket.isEmpty()) {
+                rested = rest(bucket, environment);
+                bucket.clear();
+            }
+            if(counting) {
+                profiler.count(species, acted[species], rested);
+                acted[species] = 0;
+            }
+        }
+    }
+
+    /**
+     * Rest the living actors of one species.
+     * @param bucket The resting actors of the species.
+     * @param environment The time and weather of the step.
+     * @return The number of actors that rested.
+     */
+    private static int rest(ActorList bucket, Environment environment)
+    {
+        int rested = 0;
+        for(int i = 0; i < bucket.size(); i++) {
+            Actor actor = bucket.get(i);
+            if(actor.isAlive()) {
+                actor.rest(environment);
+                rested++;
+            }
+        }
+        return rested;
+    }
+}
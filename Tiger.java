@@ -1,5 +1,4 @@
 import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
@@ -18,22 +17,12 @@ public class Tiger extends Animal
     private static final int DEER_FOOD_VALUE = 24;
     // A shared random number generator to control breeding.
     private static final Random rand = Randomizer.getRandom();
-    
-        // The age at which a Tiger can start to breed.
-    protected static int BREEDING_AGE;
-    // The age to which a Tiger can live.
-    protected static int MAX_AGE;
-    // The likelihood of a Tiger breeding.
-    protected static double BREEDING_PROBABILITY;
-    // The maximum number of births.
-    protected static int MAX_LITTER_SIZE;
-
-    // The Tiger's age.
-    protected int age;
-    // The Tiger's food level, which is increased by eating zebras.
-    protected int foodLevel;
-    // Minimum food level for Tiger to reproduce
-    protected int breedingFoodLevel;
+    // The species number of the Tiger's food.
+    private static final int PREY = Species.of(Deer.class);
+    // The hours of the day in which the Tiger is active.
+    private static final int ACTIVE_HOURS = Environment.hours(0, 14);
+    // The chance of a resting Tiger getting hungrier in a step.
+    private static final double RESTING_HUNGER = 0.125;
 
     /**
      * Create a Tiger . A Tiger  can be created as a new born (age zero
@@ -43,12 +32,38 @@ public class Tiger extends Animal
      * @param field The field currently occupied.
      * @param location The location within the field.
      */
-    public Tiger (boolean randomAge, Field field, Location location, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
+    public Tiger(boolean randomAge, Field field, Location location, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
+    {
+        this(randomAge, field, field.getCell(location.getRow(), location.getCol()),
+             BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE);
+    }
+
+    /**
+     * Create a Tiger in a cell. A Tiger can be created as a new born (age
+     * zero and not hungry) or with a random age and food level.
+     * 
+     * @param randomAge If true, the Tiger will have random age and hunger level.
+     * @param field The field currently occupied.
+     * @param cell The cell id within the field.
+     */
+    public Tiger(boolean randomAge, Field field, int cell, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
     {
+        reset(randomAge, field, cell, BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE);
+    }
 
-        super(field, location, 15, 150, 0.8, 1);
-        //super(field, location, 15, 150, 0.4, 1);
-        breedingFoodLevel = 0;
+    /**
+     * Make this Tiger a new Tiger, as the constructor does. The object
+     * of a dead Tiger taken from the field's actor pool is reset to
+     * be born again.
+     * 
+     * @param randomAge If true, the Tiger will have random age and hunger level.
+     * @param field The field currently occupied.
+     * @param cell The cell id within the field.
+     */
+    public void reset(boolean randomAge, Field field, int cell, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
+    {
+        reset(field, cell, 15, 150, 0.8, 1);
+        //reset(field, location, 15, 150, 0.4, 1);
         if(randomAge) {
             age = rand.nextInt(MAX_AGE);
             foodLevel = rand.nextInt(DEER_FOOD_VALUE);
@@ -65,65 +80,81 @@ public class Tiger extends Animal
      * or die of old age.
      * @param field The field currently occupied.
      * @param newTigers  A list to return newly born Tigers .
+     * @param environment The time and weather of the current step.
      */
-    public void act(List<Actor> newTigers )
+    public void act(List<Actor> newTigers, Environment environment)
     {
+        if (!environment.isActive(ACTIVE_HOURS)) {
+            rest(environment);
+            return;
+        }
         incrementAge();
-        if (Simulator.getTime() >= 0 && Simulator.getTime() <= 14) {
-            if(isAlive()) {
-                if (foodLevel > breedingFoodLevel) {
-                    giveBirth(newTigers ); 
-                }
-                // Move towards a source of food if found.
-                Location newLocation = findFood();
-                if(newLocation == null) { 
-                    // No food found - try to move to a free location.
-                    newLocation = getField().freeAdjacentLocation(getLocation());
-                }
-                // See if it was possible to move.
-                if(newLocation != null) {
-                    setLocation(newLocation);
-                }
-                else {
-                    // Overcrowding.
-                    setDead();
-                }
-                runInfection(newTigers);
+        if(isAlive()) {
+            if (foodLevel > breedingFoodLevel) {
+                giveBirth(newTigers ); 
             }
-            incrementHunger();
-        }
-        else {
-            Double randomVal = rand.nextDouble();
-            if (randomVal < 0.125) {
-                incrementHunger();
+            // Move towards a source of food if found.
+            int newCell = findFood();
+            if(newCell < 0) { 
+                // No food found - try to move to a free location.
+                newCell = getField().freeAdjacentCell(getCell());
+            }
+            // See if it was possible to move.
+            if(newCell >= 0) {
+                setCell(newCell);
+            }
+            else {
+                // Overcrowding.
+                setDead();
             }
+            runInfection(newTigers);
         }
+        incrementHunger();
+    }
+
+    /**
+     * Outside its active hours a Tiger only ages and sometimes gets
+     * hungrier.
+     * @param environment The time and weather of the current step.
+     */
+    public void rest(Environment environment)
+    {
+        passTime(RESTING_HUNGER);
+    }
+
+    /**
+     * @return The hours of the day in which the Tiger is active.
+     */
+    public int getActiveHours()
+    {
+        return ACTIVE_HOURS;
     }
     
     /**
      * Look for deers adjacent to the current location.
-     * Only the first live deer is eaten.
-     * @return Where food was found, or null if it wasn't.
+     * Only the first live deer is eaten. If there is none, head for the
+     * nearest deer within the field's sensing radius.
+     * @return The cell where food was found or that leads towards it,
+     *         or -1 if there is neither.
      */
-    private Location findFood()
+    private int findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object animal = field.getObjectAt(where);
-            if(animal instanceof Deer) {
-                Deer deer = (Deer) animal;
-                if(deer.isAlive()) { 
-                    deer.setDead();
-                    foodLevel = DEER_FOOD_VALUE;
-                    //System.out.println("Tiger eats Deer");
-                    return where;
-                }
+        int[] adjacent = Field.getAdjacentBuffer();
+        int count = field.adjacentCellsOfSpecies(getCell(), PREY, adjacent);
+        for(int i = 0; i < count; i++) {
+            int where = adjacent[i];
+            Deer deer = (Deer) field.getObjectAt(where);
+            if(deer.isAlive()) { 
+                deer.setDead();
+                field.getEvents().kill();
+                foodLevel = DEER_FOOD_VALUE;
+                //System.out.println("Tiger eats Deer");
+                return where;
             }
         }
-        return null;
+        // Nothing to eat nearby - head for the nearest prey sensed.
+        return approach(PREY);
     }
     
     /**
@@ -137,11 +168,18 @@ public class Tiger extends Animal
         // Get a list of adjacent free locations.
         //System.out.println("Tiger giving birth!");
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+        ActorPool pool = field.getActorPool();
+        int[] free = Field.getFreeBuffer();
+        int freeCount = field.freeAdjacentCells(getCell(), free);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Tiger  young = new Tiger (false, field, loc, 15, 150, 0.7, 2);
+        for(int b = 0; b < births && b < freeCount; b++) {
+            Tiger young = pool.take(Tiger.class);
+            if(young == null) {
+                young = new Tiger(false, field, free[b], 15, 150, 0.7, 2);
+            }
+            else {
+                young.reset(false, field, free[b], 15, 150, 0.7, 2);
+            }
             newTigers .add(young);
         }
     }
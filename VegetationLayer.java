@@ -0,0 +1,954 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The grass of a field, kept as planes of biomass and age values, one
+ * byte each per cell, beside the field's animals rather than as Grass
+ * objects in the animals' cells. Grass and an animal can therefore share
+ * a cell, and the whole field grows as a stencil over the arrays in place
+ * of every Grass object acting in turn.
+ *
+ * A cell holds grass while its biomass is above zero. Grass ages every
+ * step and dies back after MAX_AGE steps. During its active hours it
+ * grows, faster the wetter the weather, up to a maximum, and spreads to
+ * bare cells next to grass old enough to breed: each such neighbour
+ * seeds a bare cell with a chance that follows the rain-dependent
+ * breeding probability, as Grass objects do. A herbivore grazes a cell
+ * holding at least GRAZE_THRESHOLD, eating all of it.
+ *
+ * A step is two passes, each of which can be split into bands of rows
+ * run at the same time. ageRows ages and grows the cells eight at a
+ * time, treating a long as eight byte lanes, and records which cells can
+ * seed their neighbours; then spreadRows seeds the bare cells, skipping
+ * eight covered cells at a time. The random numbers are a hash of the
+ * seed, the step and the cell, so the result does not depend on how the
+ * rows were split.
+ *
+ * The planes are held in chunks. A dense layer has one chunk covering
+ * the whole field. A sparse layer, for a sparse field, is divided into
+ * square chunks as a ChunkedStorage is: a chunk is only allocated when
+ * grass is first put in it, and a step only visits the chunks holding
+ * grass and the edges of the missing chunks next to them, where grass
+ * can spread. Both give the same result.
+ *
+ * While a change set is given, the layer records in it each cell whose
+ * grass becomes or stops being grazeable, so that a view showing the
+ * grazeable grass need only redraw those cells.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 2022.03.02
+ */
+public class VegetationLayer
+{
+    // The most biomass a cell can hold.
+    public static final int MAX_BIOMASS = 100;
+    // The least biomass a herbivore will graze.
+    public static final int GRAZE_THRESHOLD = 50;
+    // The age to which grass can live.
+    public static final int MAX_AGE = 200;
+    // The age at which grass can start to spread.
+    private static final int BREEDING_AGE = 2;
+    // The biomass added to each cell in an active hour when grass is
+    // certain to breed; less is added in drier weather.
+    private static final int GROWTH = 10;
+    // The share of its free neighbours a breeding Grass seeds on
+    // average: two births among eight neighbours.
+    private static final double SPREAD_SHARE = 0.25;
+    // The hours of the day in which grass grows and spreads.
+    private static final int ACTIVE_HOURS = Environment.hours(6, 20);
+    // A one, the lowest seven bits, and the top bit of each byte of a long.
+    private static final long ONES = 0x0101010101010101L;
+    private static final long LOW_SEVEN = 0x7F7F7F7F7F7F7F7FL;
+    private static final long HIGH = 0x8080808080808080L;
+    // Reads and writes eight cells of a plane as one long.
+    private static final VarHandle EIGHT_CELLS =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    // The width and depth of a chunk of a sparse layer, as a power of
+    // two, as in ChunkedStorage.
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /**
+     * The planes of one chunk, indexed by row and column within the chunk.
+     */
+    private static class Chunk
+    {
+        // The first row and column of the chunk.
+        final int top, left;
+        // The depth and width of the chunk.
+        final int rows, cols;
+        // The biomass of each cell.
+        final byte[] biomass;
+        // The age of the grass in each cell.
+        final byte[] age;
+        // 1 for each cell whose grass can spread this step, otherwise 0.
+        final byte[] mature;
+
+        /**
+         * Create a bare chunk.
+         * @param top The first row of the chunk.
+         * @param left The first column of the chunk.
+         * @param rows The depth of the chunk.
+         * @param cols The width of the chunk.
+         */
+        Chunk(int top, int left, int rows, int cols)
+        {
+            this.top = top;
+            this.left = left;
+            this.rows = rows;
+            this.cols = cols;
+            biomass = new byte[rows * cols];
+            age = new byte[rows * cols];
+            mature = new byte[rows * cols];
+        }
+
+        /**
+         * @return True if no cell of the chunk holds grass.
+         */
+        boolean isBare()
+        {
+            int cell = 0;
+            for(; cell + 8 <= biomass.length; cell += 8) {
+                if(((long) EIGHT_CELLS.get(biomass, cell) | (long) EIGHT_CELLS.get(age, cell)) != 0) {
+                    return false;
+                }
+            }
+            for(; cell < biomass.length; cell++) {
+                if((biomass[cell] | age[cell]) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // The depth and width of the field.
+    private final int depth, width;
+    // The number of chunks across and down the field.
+    private final int chunksAcross, chunksDown;
+    // The chunks, row by row, or null where a chunk has no grass.
+    private final AtomicReferenceArray<Chunk> chunks;
+    // The only chunk of a dense layer, or null for a sparse layer.
+    private final Chunk whole;
+    // Receives the cells whose grass becomes or stops being grazeable,
+    // or null if they are not recorded.
+    private volatile ChangeSet changes;
+    // The biomass added to each grassy cell in the current step.
+    private int growth;
+    // The biomass of grass newly seeded in the current step.
+    private int seedMass;
+    // The hash key of the current step.
+    private long key;
+    // For each number of mature neighbours, the chance out of 256 of
+    // a bare cell being seeded in the current step.
+    private final int[] spreadChance = new int[9];
+
+    /**
+     * Create a bare dense layer.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    public VegetationLayer(int depth, int width)
+    {
+        this(depth, width, false);
+    }
+
+    /**
+     * Create a bare layer, held densely or in chunks.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param sparse True to allocate the layer in chunks as grass is put
+     *               in them, for large fields that are mostly empty.
+     */
+    public VegetationLayer(int depth, int width, boolean sparse)
+    {
+        this.depth = depth;
+        this.width = width;
+        if(sparse) {
+            chunksAcross = (width + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+            chunksDown = (depth + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+            chunks = new AtomicReferenceArray<>(chunksAcross * chunksDown);
+            whole = null;
+        }
+        else {
+            chunksAcross = 1;
+            chunksDown = 1;
+            chunks = new AtomicReferenceArray<>(1);
+            whole = new Chunk(0, 0, depth, width);
+            chunks.set(0, whole);
+        }
+    }
+
+    /**
+     * Record the cells whose grass becomes or stops being grazeable.
+     * @param changes The set to record them in, or null to stop.
+     */
+    public void setChangeSet(ChangeSet changes)
+    {
+        this.changes = changes;
+    }
+
+    /**
+     * Remove all the grass.
+     */
+    public void clear()
+    {
+        markAllChanged();
+        if(whole != null) {
+            Arrays.fill(whole.biomass, (byte) 0);
+            Arrays.fill(whole.age, (byte) 0);
+            return;
+        }
+        for(int index = 0; index < chunks.length(); index++) {
+            chunks.set(index, null);
+        }
+    }
+
+    /**
+     * Give back the chunks of a sparse layer that no longer hold grass.
+     * Only call this between steps.
+     */
+    public void trim()
+    {
+        if(whole != null) {
+            return;
+        }
+        for(int index = 0; index < chunks.length(); index++) {
+            Chunk chunk = chunks.get(index);
+            if(chunk != null && chunk.isBare()) {
+                chunks.set(index, null);
+            }
+        }
+    }
+
+    /**
+     * Grow, spread and age the grass of every cell for one step.
+     * @param environment The time and weather of the step.
+     * @param seed The seed of the simulation.
+     * @param step The step number.
+     */
+    public void grow(Environment environment, long seed, int step)
+    {
+        prepare(environment, seed, step);
+        ageRows(0, depth);
+        spreadRows(0, depth);
+    }
+
+    /**
+     * Work out the growth and spreading chances of a step. This must be
+     * called before the step's ageRows and spreadRows.
+     * @param environment The time and weather of the step.
+     * @param seed The seed of the simulation.
+     * @param step The step number.
+     */
+    public void prepare(Environment environment, long seed, int step)
+    {
+        // Outside the active hours nothing grows or spreads.
+        boolean active = environment.isActive(ACTIVE_HOURS);
+        double probability = active ? environment.getGrassBreedingProbability() : 0.0;
+        growth = (int) Math.round(GROWTH * probability);
+        seedMass = Math.max(growth, 1);
+        double missed = 1.0 - probability * SPREAD_SHARE;
+        for(int neighbours = 0; neighbours < spreadChance.length; neighbours++) {
+            spreadChance[neighbours] = (int) Math.round(256 * (1.0 - Math.pow(missed, neighbours)));
+        }
+        key = Randomizer.derive(seed, step);
+    }
+
+    /**
+     * Age and grow the grass of a band of rows, and record which cells
+     * now hold grass old enough to spread. Every band must be aged
+     * before any is spread.
+     * @param fromRow The first row of the band.
+     * @param toRow The row after the last row of the band.
+     */
+    public void ageRows(int fromRow, int toRow)
+    {
+        if(fromRow >= toRow) {
+            return;
+        }
+        long grown = growth * ONES;
+        for(int down = chunkRowOf(fromRow); down <= chunkRowOf(toRow - 1); down++) {
+            for(int across = 0; across < chunksAcross; across++) {
+                Chunk chunk = chunks.get(down * chunksAcross + across);
+                if(chunk != null) {
+                    int first = Math.max(fromRow, chunk.top) - chunk.top;
+                    int last = Math.min(toRow, chunk.top + chunk.rows) - chunk.top;
+                    ageCells(chunk, first * chunk.cols, last * chunk.cols, grown, changes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Age and grow the grass of a run of cells of a chunk.
+     * @param chunk The chunk.
+     * @param start The position of the first cell in the chunk.
+     * @param end The position after the last cell.
+     * @param grown The step's growth in every byte.
+     * @param changes Receives the cells whose grass becomes or stops
+     *                being grazeable, or null.
+     */
+    private void ageCells(Chunk chunk, int start, int end, long grown, ChangeSet changes)
+    {
+        int cell = start;
+        for(; cell + 8 <= end; cell += 8) {
+            long flipped = ageEight(chunk, cell, grown);
+            if(flipped != 0 && changes != null) {
+                for(; flipped != 0; flipped &= flipped - 1) {
+                    changes.add(cellOf(chunk, cell + (Long.numberOfTrailingZeros(flipped) >>> 3)));
+                }
+            }
+        }
+        for(; cell < end; cell++) {
+            boolean grazeable = chunk.biomass[cell] >= GRAZE_THRESHOLD;
+            ageCell(chunk, cell);
+            if(grazeable != chunk.biomass[cell] >= GRAZE_THRESHOLD && changes != null) {
+                changes.add(cellOf(chunk, cell));
+            }
+        }
+    }
+
+    /**
+     * Age and grow the grass of one cell.
+     * @param chunk The chunk holding the cell.
+     * @param cell The position of the cell in the chunk.
+     */
+    private void ageCell(Chunk chunk, int cell)
+    {
+        byte[] biomass = chunk.biomass;
+        byte[] age = chunk.age;
+        byte[] mature = chunk.mature;
+        int mass = biomass[cell];
+        int older = (age[cell] & 0xFF) + 1;
+        if(mass == 0 || older > MAX_AGE) {
+            // No grass, or it dies of old age.
+            biomass[cell] = 0;
+            age[cell] = 0;
+            mature[cell] = 0;
+        }
+        else {
+            biomass[cell] = (byte) Math.min(mass + growth, MAX_BIOMASS);
+            age[cell] = (byte) older;
+            mature[cell] = (byte) (older >= BREEDING_AGE ? 1 : 0);
+        }
+    }
+
+    /**
+     * Age and grow the grass of eight cells at once, doing what ageCell
+     * does to each of them with arithmetic on one long per plane, a byte
+     * per cell. No byte can carry into the next: biomass stays below 128
+     * and ages below 256.
+     * @param chunk The chunk holding the cells.
+     * @param cell The position of the first of the eight cells in the chunk.
+     * @param grown The step's growth in every byte.
+     * @return The top bit set in the byte of each cell whose grass
+     *         became or stopped being grazeable.
+     */
+    private long ageEight(Chunk chunk, int cell, long grown)
+    {
+        long mass = (long) EIGHT_CELLS.get(chunk.biomass, cell);
+        long ages = (long) EIGHT_CELLS.get(chunk.age, cell);
+        // The top bit of each byte holding grass.
+        long alive = (mass + LOW_SEVEN) & HIGH;
+        long older = ages + (alive >>> 7);
+        // Grass reaching MAX_AGE + 1 dies of old age.
+        long survives = alive & ~zeroBytes(older ^ ((MAX_AGE + 1) * ONES));
+        long keep = (survives >>> 7) * 0xFF;
+        long more = mass + grown;
+        long full = (((more + (127 - MAX_BIOMASS) * ONES) & HIGH) >>> 7) * 0xFF;
+        more = (more & ~full) | (MAX_BIOMASS * ONES & full);
+        EIGHT_CELLS.set(chunk.biomass, cell, more & keep);
+        EIGHT_CELLS.set(chunk.age, cell, older & keep);
+        // BREEDING_AGE is 2: mature grass has some bit above the lowest.
+        long breeding = survives & ~zeroBytes(older & ~ONES);
+        EIGHT_CELLS.set(chunk.mature, cell, breeding >>> 7);
+        return grazeable(mass) ^ grazeable(more & keep);
+    }
+
+    /**
+     * Find the grazeable cells of eight. No byte can carry into the
+     * next, as biomass stays below 128.
+     * @param mass The biomass of eight cells.
+     * @return A word with the top bit set in each byte of at least
+     *         GRAZE_THRESHOLD.
+     */
+    private static long grazeable(long mass)
+    {
+        return (mass + (128 - GRAZE_THRESHOLD) * ONES) & HIGH;
+    }
+
+    /**
+     * Find the zero bytes of a word.
+     * @param word Eight bytes.
+     * @return A word with the top bit set in each byte that was zero.
+     */
+    private static long zeroBytes(long word)
+    {
+        return ~(((word & LOW_SEVEN) + LOW_SEVEN) | word) & HIGH;
+    }
+
+    /**
+     * Spread grass into the bare cells of a band of rows. The rows of
+     * each chunk are read eight cells at a time, and only the bare cells
+     * are visited. Of a missing chunk only the edges can have mature
+     * neighbours, so only they are visited, and only if a chunk next to
+     * it holds grass.
+     * @param fromRow The first row of the band.
+     * @param toRow The row after the last row of the band.
+     */
+    public void spreadRows(int fromRow, int toRow)
+    {
+        if(spreadChance[spreadChance.length - 1] == 0 || fromRow >= toRow) {
+            // Nothing can spread in this step.
+            return;
+        }
+        for(int down = chunkRowOf(fromRow); down <= chunkRowOf(toRow - 1); down++) {
+            for(int across = 0; across < chunksAcross; across++) {
+                Chunk chunk = chunks.get(down * chunksAcross + across);
+                if(chunk != null) {
+                    spreadChunk(chunk, Math.max(fromRow, chunk.top),
+                                Math.min(toRow, chunk.top + chunk.rows));
+                }
+                else if(hasNeighbour(down, across)) {
+                    spreadEdges(down, across, fromRow, toRow);
+                }
+            }
+        }
+    }
+
+    /**
+     * Spread grass into the bare cells of some rows of a chunk.
+     * @param chunk The chunk.
+     * @param fromRow The first row of the field to spread.
+     * @param toRow The row after the last row to spread.
+     */
+    private void spreadChunk(Chunk chunk, int fromRow, int toRow)
+    {
+        int cols = chunk.cols;
+        for(int row = fromRow; row < toRow; row++) {
+            int start = (row - chunk.top) * cols;
+            int end = start + cols;
+            // The id of the chunk's first cell in the row, less its position.
+            int base = row * width + chunk.left - start;
+            boolean inside = row > chunk.top && row < chunk.top + chunk.rows - 1;
+            int cell = start;
+            for(; cell + 8 <= end; cell += 8) {
+                long bare = zeroBytes((long) EIGHT_CELLS.get(chunk.biomass, cell));
+                if(bare == 0) {
+                    continue;
+                }
+                // One hash gives a random byte for each of the eight cells.
+                long random = Randomizer.derive(key, base + cell);
+                // Away from the edges, count every cell's neighbours at once.
+                long counts = inside && cell > start && cell + 8 < end ? countEight(chunk, cell) : -1;
+                while(bare != 0) {
+                    int lane = Long.numberOfTrailingZeros(bare) >>> 3;
+                    int neighbours = counts >= 0 ? (int) (counts >>> (lane << 3)) & 0xFF
+                                                 : matureNeighbours(chunk, cell + lane, row);
+                    spread(chunk, cell + lane, neighbours, (int) (random >>> (lane << 3)) & 0xFF);
+                    bare &= bare - 1;
+                }
+            }
+            long random = cell < end ? Randomizer.derive(key, base + cell) : 0;
+            for(int lane = 0; cell + lane < end; lane++) {
+                if(chunk.biomass[cell + lane] == 0) {
+                    spread(chunk, cell + lane, matureNeighbours(chunk, cell + lane, row),
+                           (int) (random >>> (lane << 3)) & 0xFF);
+                }
+            }
+        }
+    }
+
+    /**
+     * Spread grass into the edge cells of some rows of a missing chunk,
+     * drawing the same random numbers as spreadChunk would.
+     * @param down The chunk's row of chunks.
+     * @param across The chunk's column of chunks.
+     * @param fromRow The first row of the band.
+     * @param toRow The row after the last row of the band.
+     */
+    private void spreadEdges(int down, int across, int fromRow, int toRow)
+    {
+        int top = down << CHUNK_SHIFT;
+        int bottom = Math.min(top + CHUNK_SIZE, depth) - 1;
+        int left = across << CHUNK_SHIFT;
+        int right = Math.min(left + CHUNK_SIZE, width) - 1;
+        for(int row = Math.max(fromRow, top); row <= Math.min(toRow - 1, bottom); row++) {
+            // Every cell of the top and bottom rows, the ends of the others.
+            int step = row == top || row == bottom ? 1 : Math.max(right - left, 1);
+            for(int col = left; col <= right; col += step) {
+                int neighbours = matureNeighbours(row, col);
+                if(spreadChance[neighbours] > 0) {
+                    int first = row * width + (col & ~7);
+                    int draw = (int) (Randomizer.derive(key, first) >>> ((col & 7) << 3)) & 0xFF;
+                    if(draw < spreadChance[neighbours]) {
+                        Chunk chunk = obtain(row, col);
+                        spread(chunk, offsetOf(chunk, row, col), neighbours, draw);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether any chunk next to a missing one holds grass.
+     * @param down The missing chunk's row of chunks.
+     * @param across The missing chunk's column of chunks.
+     * @return True if a neighbouring chunk is allocated.
+     */
+    private boolean hasNeighbour(int down, int across)
+    {
+        for(int d = Math.max(down - 1, 0); d <= Math.min(down + 1, chunksDown - 1); d++) {
+            for(int a = Math.max(across - 1, 0); a <= Math.min(across + 1, chunksAcross - 1); a++) {
+                if(chunks.get(d * chunksAcross + a) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count the mature neighbours of eight cells away from the edges of
+     * their chunk, adding the words of the eight neighbouring positions.
+     * @param chunk The chunk holding the cells.
+     * @param cell The position of the first of the eight cells in the chunk.
+     * @return The count for each cell in its byte.
+     */
+    private long countEight(Chunk chunk, int cell)
+    {
+        byte[] mature = chunk.mature;
+        int above = cell - chunk.cols;
+        int below = cell + chunk.cols;
+        return (long) EIGHT_CELLS.get(mature, above - 1) + (long) EIGHT_CELLS.get(mature, above)
+               + (long) EIGHT_CELLS.get(mature, above + 1) + (long) EIGHT_CELLS.get(mature, cell - 1)
+               + (long) EIGHT_CELLS.get(mature, cell + 1) + (long) EIGHT_CELLS.get(mature, below - 1)
+               + (long) EIGHT_CELLS.get(mature, below) + (long) EIGHT_CELLS.get(mature, below + 1);
+    }
+
+    /**
+     * Seed a bare cell if its neighbours spread to it.
+     * @param chunk The chunk holding the cell.
+     * @param cell The position of the cell in the chunk.
+     * @param neighbours The number of mature neighbours of the cell.
+     * @param draw A random number from 0 to 255.
+     */
+    private void spread(Chunk chunk, int cell, int neighbours, int draw)
+    {
+        if(draw < spreadChance[neighbours]) {
+            chunk.biomass[cell] = (byte) seedMass;
+            chunk.age[cell] = 0;
+            if(seedMass >= GRAZE_THRESHOLD) {
+                markChanged(cellOf(chunk, cell));
+            }
+        }
+    }
+
+    /**
+     * Count the neighbours of a cell that hold grass old enough to spread.
+     * @param chunk The chunk holding the cell.
+     * @param cell The position of the cell in the chunk.
+     * @param row The cell's row of the field.
+     * @return The number of mature neighbours, 0 to 8.
+     */
+    private int matureNeighbours(Chunk chunk, int cell, int row)
+    {
+        int rowStart = (row - chunk.top) * chunk.cols;
+        int col = cell - rowStart + chunk.left;
+        if(row > chunk.top && row < chunk.top + chunk.rows - 1
+           && col > chunk.left && col < chunk.left + chunk.cols - 1) {
+            byte[] mature = chunk.mature;
+            int above = cell - chunk.cols;
+            int below = cell + chunk.cols;
+            return mature[above - 1] + mature[above] + mature[above + 1]
+                   + mature[cell - 1] + mature[cell + 1]
+                   + mature[below - 1] + mature[below] + mature[below + 1];
+        }
+        // On the edge of the chunk.
+        return matureNeighbours(row, col);
+    }
+
+    /**
+     * Count the neighbours of a cell that hold grass old enough to
+     * spread, looking into the neighbouring chunks.
+     * @param row The cell's row.
+     * @param col The cell's column.
+     * @return The number of mature neighbours, 0 to 8.
+     */
+    private int matureNeighbours(int row, int col)
+    {
+        int count = 0;
+        for(int r = Math.max(row - 1, 0); r <= Math.min(row + 1, depth - 1); r++) {
+            for(int c = Math.max(col - 1, 0); c <= Math.min(col + 1, width - 1); c++) {
+                if(r != row || c != col) {
+                    Chunk chunk = find(r, c);
+                    if(chunk != null) {
+                        count += chunk.mature[offsetOf(chunk, r, c)];
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Put fully grown grass of the given age in a cell.
+     * @param cell A cell id.
+     * @param years The age of the grass, below MAX_AGE.
+     */
+    public void plant(int cell, int years)
+    {
+        setBiomass(cell, MAX_BIOMASS);
+        setAge(cell, years);
+    }
+
+    /**
+     * Eat the grass of a cell if there is enough of it. Grazed grass
+     * dies, and the cell is bare until grass spreads back to it.
+     * @param cell The cell to graze.
+     * @return True if the cell was grazed.
+     */
+    public boolean graze(int cell)
+    {
+        Chunk chunk = find(cell);
+        if(chunk == null) {
+            return false;
+        }
+        int offset = offsetOf(chunk, cell);
+        if(chunk.biomass[offset] < GRAZE_THRESHOLD) {
+            return false;
+        }
+        chunk.biomass[offset] = 0;
+        chunk.age[offset] = 0;
+        markChanged(cell);
+        return true;
+    }
+
+    /**
+     * @param cell A cell id.
+     * @return True if the cell has enough grass to be grazed.
+     */
+    public boolean isGrazeable(int cell)
+    {
+        return getBiomass(cell) >= GRAZE_THRESHOLD;
+    }
+
+    /**
+     * @param cell A cell id.
+     * @return The biomass of the cell, 0 to MAX_BIOMASS.
+     */
+    public int getBiomass(int cell)
+    {
+        Chunk chunk = find(cell);
+        return chunk == null ? 0 : chunk.biomass[offsetOf(chunk, cell)];
+    }
+
+    /**
+     * Set the biomass of a cell.
+     * @param cell A cell id.
+     * @param amount The biomass, 0 to MAX_BIOMASS.
+     */
+    public void setBiomass(int cell, int amount)
+    {
+        if(amount < 0 || amount > MAX_BIOMASS) {
+            throw new IllegalArgumentException("Biomass out of range: " + amount);
+        }
+        Chunk chunk = amount == 0 ? find(cell) : obtain(cell / width, cell % width);
+        if(chunk != null) {
+            int offset = offsetOf(chunk, cell);
+            if((chunk.biomass[offset] >= GRAZE_THRESHOLD) != (amount >= GRAZE_THRESHOLD)) {
+                markChanged(cell);
+            }
+            chunk.biomass[offset] = (byte) amount;
+        }
+    }
+
+    /**
+     * @param cell A cell id.
+     * @return The age of the grass in the cell.
+     */
+    public int getAge(int cell)
+    {
+        Chunk chunk = find(cell);
+        return chunk == null ? 0 : chunk.age[offsetOf(chunk, cell)] & 0xFF;
+    }
+
+    /**
+     * Set the age of the grass in a cell.
+     * @param cell A cell id.
+     * @param years The age, 0 to MAX_AGE.
+     */
+    public void setAge(int cell, int years)
+    {
+        if(years < 0 || years > MAX_AGE) {
+            throw new IllegalArgumentException("Age out of range: " + years);
+        }
+        Chunk chunk = years == 0 ? find(cell) : obtain(cell / width, cell % width);
+        if(chunk != null) {
+            chunk.age[offsetOf(chunk, cell)] = (byte) years;
+        }
+    }
+
+    /**
+     * @return The number of cells with enough grass to be grazed.
+     */
+    public int getCover()
+    {
+        int cover = 0;
+        for(int index = 0; index < chunks.length(); index++) {
+            Chunk chunk = chunks.get(index);
+            if(chunk != null) {
+                for(byte mass : chunk.biomass) {
+                    if(mass >= GRAZE_THRESHOLD) {
+                        cover++;
+                    }
+                }
+            }
+        }
+        return cover;
+    }
+
+    /**
+     * @return The depth of the field.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The number of cells in the layer.
+     */
+    public int getSize()
+    {
+        return depth * width;
+    }
+
+    /**
+     * @return True if the layer is allocated in chunks as grass is put in them.
+     */
+    public boolean isSparse()
+    {
+        return whole == null;
+    }
+
+    /**
+     * @return The number of chunks currently allocated.
+     */
+    public int getChunkCount()
+    {
+        int count = 0;
+        for(int index = 0; index < chunks.length(); index++) {
+            if(chunks.get(index) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of square chunks a sparse layer of this size
+     *         is divided into, whether or not they are allocated.
+     */
+    public int getChunkSlots()
+    {
+        return squaresAcross() * ((depth + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * @param index The index of a square chunk, row by row.
+     * @return The number of cells in the chunk; chunks on the bottom and
+     *         right edges of the field may be smaller than the rest.
+     */
+    public int getChunkCells(int index)
+    {
+        int top = (index / squaresAcross()) << CHUNK_SHIFT;
+        int left = (index % squaresAcross()) << CHUNK_SHIFT;
+        return Math.min(CHUNK_SIZE, depth - top) * Math.min(CHUNK_SIZE, width - left);
+    }
+
+    /**
+     * Copy the planes of a chunk of a sparse layer, row by row.
+     * @param index The index of the chunk, row by row.
+     * @param biomass Receives the biomass of each cell of the chunk.
+     * @param age Receives the age of the grass in each cell.
+     * @return True if the chunk was copied, false if it is missing.
+     */
+    public boolean copyChunk(int index, byte[] biomass, byte[] age)
+    {
+        if(whole != null) {
+            throw new IllegalStateException("A dense layer has no square chunks");
+        }
+        Chunk chunk = chunks.get(index);
+        if(chunk == null) {
+            return false;
+        }
+        System.arraycopy(chunk.biomass, 0, biomass, 0, chunk.biomass.length);
+        System.arraycopy(chunk.age, 0, age, 0, chunk.age.length);
+        return true;
+    }
+
+    /**
+     * Set the planes of a square chunk of the field, as copied by
+     * copyChunk, in a layer held either densely or in chunks.
+     * @param index The index of the chunk, row by row.
+     * @param biomass The biomass of each cell of the chunk.
+     * @param age The age of the grass in each cell.
+     */
+    public void fillChunk(int index, byte[] biomass, byte[] age)
+    {
+        markAllChanged();
+        int top = (index / squaresAcross()) << CHUNK_SHIFT;
+        int left = (index % squaresAcross()) << CHUNK_SHIFT;
+        if(whole == null) {
+            Chunk chunk = obtain(top, left);
+            System.arraycopy(biomass, 0, chunk.biomass, 0, chunk.biomass.length);
+            System.arraycopy(age, 0, chunk.age, 0, chunk.age.length);
+            return;
+        }
+        int rows = Math.min(CHUNK_SIZE, depth - top);
+        int cols = Math.min(CHUNK_SIZE, width - left);
+        for(int row = 0; row < rows; row++) {
+            int cell = (top + row) * width + left;
+            System.arraycopy(biomass, row * cols, whole.biomass, cell, cols);
+            System.arraycopy(age, row * cols, whole.age, cell, cols);
+        }
+    }
+
+    /**
+     * Record that the grass of a cell has become or stopped being
+     * grazeable.
+     * @param cell The cell id.
+     */
+    private void markChanged(int cell)
+    {
+        ChangeSet set = changes;
+        if(set != null) {
+            set.add(cell);
+        }
+    }
+
+    /**
+     * Record that the grass of every cell may have changed.
+     */
+    private void markAllChanged()
+    {
+        ChangeSet set = changes;
+        if(set != null) {
+            set.addAll();
+        }
+    }
+
+    /**
+     * @param chunk A chunk.
+     * @param offset The position of a cell in the chunk.
+     * @return The cell id.
+     */
+    private int cellOf(Chunk chunk, int offset)
+    {
+        if(chunk == whole) {
+            return offset;
+        }
+        int row = offset / chunk.cols;
+        return (chunk.top + row) * width + chunk.left + offset - row * chunk.cols;
+    }
+
+    /**
+     * @return The number of square chunks across the field.
+     */
+    private int squaresAcross()
+    {
+        return (width + CHUNK_SIZE - 1) >>> CHUNK_SHIFT;
+    }
+
+    /**
+     * @param row A row of the field.
+     * @return The row of chunks holding the row.
+     */
+    private int chunkRowOf(int row)
+    {
+        return whole != null ? 0 : row >>> CHUNK_SHIFT;
+    }
+
+    /**
+     * @param cell A cell id.
+     * @return The chunk holding the cell, or null if it is missing.
+     */
+    private Chunk find(int cell)
+    {
+        if(whole != null) {
+            return whole;
+        }
+        int row = cell / width;
+        return find(row, cell - row * width);
+    }
+
+    /**
+     * @param row A row of the field.
+     * @param col A column of the field.
+     * @return The chunk holding the cell, or null if it is missing.
+     */
+    private Chunk find(int row, int col)
+    {
+        if(whole != null) {
+            return whole;
+        }
+        return chunks.get((row >>> CHUNK_SHIFT) * chunksAcross + (col >>> CHUNK_SHIFT));
+    }
+
+    /**
+     * Return the chunk holding a cell, allocating it if it is missing.
+     * Tiles of a parallel step may seed the same chunk at the same time,
+     * so it is created atomically.
+     * @param row A row of the field.
+     * @param col A column of the field.
+     * @return The chunk holding the cell.
+     */
+    private Chunk obtain(int row, int col)
+    {
+        Chunk chunk = find(row, col);
+        if(chunk == null) {
+            int down = row >>> CHUNK_SHIFT;
+            int across = col >>> CHUNK_SHIFT;
+            int top = down << CHUNK_SHIFT;
+            int left = across << CHUNK_SHIFT;
+            chunk = new Chunk(top, left, Math.min(CHUNK_SIZE, depth - top),
+                              Math.min(CHUNK_SIZE, width - left));
+            int index = down * chunksAcross + across;
+            if(!chunks.compareAndSet(index, null, chunk)) {
+                // Another tile created it first.
+                chunk = chunks.get(index);
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * @param chunk The chunk holding a cell.
+     * @param cell The cell id.
+     * @return The position of the cell in the chunk.
+     */
+    private int offsetOf(Chunk chunk, int cell)
+    {
+        if(chunk == whole) {
+            return cell;
+        }
+        int row = cell / width;
+        return offsetOf(chunk, row, cell - row * width);
+    }
+
+    /**
+     * @param chunk The chunk holding a cell.
+     * @param row The cell's row.
+     * @param col The cell's column.
+     * @return The position of the cell in the chunk.
+     */
+    private static int offsetOf(Chunk chunk, int row, int col)
+    {
+        return (row - chunk.top) * chunk.cols + col - chunk.left;
+    }
+}
@@ -1,5 +1,4 @@
 import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
@@ -19,24 +18,12 @@ public class Zebra extends Animal
     private static final int GRASS_FOOD_VALUE = 9;
     // A shared random number generator to control breeding.
     private static final Random rand = Randomizer.getRandom();
-    
-        // // The age at which a Zebra can start to breed.
-    // private int BREEDING_AGE;
-    // // The age to which a Zebra can live.
-    // private int MAX_AGE;
-    // // The likelihood of a Zebra breeding.
-    // private double BREEDING_PROBABILITY;
-    // // The maximum number of births.
-    // private int MAX_LITTER_SIZE;
-
-    // The Zebra's age.
-    protected int age;
-    // The Zebra's food level, which is increased by eating zebras.
-    protected int foodLevel;
-    // The Zebra's field
-    private Field field;
-    // Minimum food level where zebras can breed
-    protected int breedingFoodLevel;
+    // The species number of the Zebra's food.
+    private static final int PREY = Species.of(Grass.class);
+    // The hours of the day in which the Zebra is active.
+    private static final int ACTIVE_HOURS = Environment.hours(6, 18);
+    // The chance of a resting Zebra getting hungrier in a step.
+    private static final double RESTING_HUNGER = 0.1;
 
 
     /**
@@ -49,9 +36,35 @@ public class Zebra extends Animal
      */
     public Zebra(boolean randomAge, Field field, Location location, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
     {
-        super(field, location, 15, 250, 0.8, 4);
-        breedingFoodLevel = 0;
-        
+        this(randomAge, field, field.getCell(location.getRow(), location.getCol()),
+             BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE);
+    }
+
+    /**
+     * Create a Zebra in a cell. A Zebra can be created as a new born (age
+     * zero and not hungry) or with a random age and food level.
+     * 
+     * @param randomAge If true, the Zebra will have random age and hunger level.
+     * @param field The field currently occupied.
+     * @param cell The cell id within the field.
+     */
+    public Zebra(boolean randomAge, Field field, int cell, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
+    {
+        reset(randomAge, field, cell, BREEDING_AGE, MAX_AGE, BREEDING_PROBABILITY, MAX_LITTER_SIZE);
+    }
+
+    /**
+     * Make this Zebra a new Zebra, as the constructor does. The object
+     * of a dead Zebra taken from the field's actor pool is reset to
+     * be born again.
+     * 
+     * @param randomAge If true, the Zebra will have random age and hunger level.
+     * @param field The field currently occupied.
+     * @param cell The cell id within the field.
+     */
+    public void reset(boolean randomAge, Field field, int cell, int BREEDING_AGE, int MAX_AGE, double BREEDING_PROBABILITY, int MAX_LITTER_SIZE)
+    {
+        reset(field, cell, 15, 250, 0.8, 4);
         if(randomAge) {
             age = rand.nextInt(MAX_AGE);
             foodLevel = rand.nextInt(GRASS_FOOD_VALUE);
@@ -69,39 +82,54 @@ public class Zebra extends Animal
      * or die of old age.
      * @param field The field currently occupied.
      * @param newZebras A list to return newly born Zebras.
+     * @param environment The time and weather of the current step.
      */
-    public void act(List<Actor> newZebras)
+    public void act(List<Actor> newZebras, Environment environment)
     {
+        if (!environment.isActive(ACTIVE_HOURS)) {
+            rest(environment);
+            return;
+        }
         incrementAge();
-        if (Simulator.getTime() >= 6 && Simulator.getTime() <= 18) {
-            if(isAlive()) {
-                if (foodLevel > breedingFoodLevel) {
-                    giveBirth(newZebras); 
-                }
-                // Move towards a source of food if found.
-                Location newLocation = findFood();
-                if(newLocation == null) { 
-                    // No food found - try to move to a free location.
-                    newLocation = getField().freeAdjacentLocation(getLocation());
-                }
-                // See if it was possible to move.
-                if(newLocation != null) {
-                    setLocation(newLocation);
-                }
-                else {
-                    // Overcrowding.
-                    setDead();
-                }
-                runInfection(newZebras);
+        if(isAlive()) {
+            if (foodLevel > breedingFoodLevel) {
+                giveBirth(newZebras); 
             }
-            incrementHunger();
-        }
-        else {
-            Double randomVal = rand.nextDouble();
-            if (randomVal < 0.1) {
-                incrementHunger();
+            // Move towards a source of food if found.
+            int newCell = findFood();
+            if(newCell < 0) { 
+                // No food found - try to move to a free location.
+                newCell = getField().freeAdjacentCell(getCell());
+            }
+            // See if it was possible to move.
+            if(newCell >= 0) {
+                setCell(newCell);
+            }
+            else {
+                // Overcrowding.
+                setDead();
             }
+            runInfection(newZebras);
         }
+        incrementHunger();
+    }
+
+    /**
+     * Outside its active hours a Zebra only ages and sometimes gets
+     * hungrier.
+     * @param environment The time and weather of the current step.
+     */
+    public void rest(Environment environment)
+    {
+        passTime(RESTING_HUNGER);
+    }
+
+    /**
+     * @return The hours of the day in which the Zebra is active.
+     */
+    public int getActiveHours()
+    {
+        return ACTIVE_HOURS;
     }
     
     /**
@@ -118,26 +146,28 @@ public class Zebra extends Animal
     /**
      * Look for zebra adjacent to the current location.
      * Only the first live zebra is eaten.
-     * @return Where food was found, or null if it wasn't.
+     * @return The cell where food was found, or -1 if it wasn't.
      */
-    private Location findFood()
+    private int findFood()
     {
         Field field = getField();
-        List<Location> adjacent = field.adjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        while(it.hasNext()) {
-            Location where = it.next();
-            Object plant = field.getObjectAt(where);
-            if(plant instanceof Grass) {
-                Grass grass = (Grass) plant;
-                if(grass.isAlive()) { 
-                    grass.setDead();
-                    foodLevel = GRASS_FOOD_VALUE;                  
-                    return where;
-                }
+        VegetationLayer vegetation = field.getVegetation();
+        if(vegetation != null) {
+            return graze(vegetation, GRASS_FOOD_VALUE);
+        }
+        int[] adjacent = Field.getAdjacentBuffer();
+        int count = field.adjacentCellsOfSpecies(getCell(), PREY, adjacent);
+        for(int i = 0; i < count; i++) {
+            int where = adjacent[i];
+            Grass grass = (Grass) field.getObjectAt(where);
+            if(grass.isAlive()) { 
+                grass.setDead();
+                field.getEvents().kill();
+                foodLevel = GRASS_FOOD_VALUE;                  
+                return where;
             }
         }
-        return null;
+        return -1;
     }
 
     /**
@@ -149,11 +179,18 @@ public class Zebra extends Animal
         // New Zebras are born into adjacent locations.
         // Get a list of adjacent free locations.
         Field field = getField();
-        List<Location> free = field.getFreeAdjacentLocations(getLocation());
+        ActorPool pool = field.getActorPool();
+        int[] free = Field.getFreeBuffer();
+        int freeCount = field.freeAdjacentCells(getCell(), free);
         int births = breed();
-        for(int b = 0; b < births && free.size() > 0; b++) {
-            Location loc = free.remove(0);
-            Zebra young = new Zebra(false, field, loc, 15, 150, 0.6, 2);
+        for(int b = 0; b < births && b < freeCount; b++) {
+            Zebra young = pool.take(Zebra.class);
+            if(young == null) {
+                young = new Zebra(false, field, free[b], 15, 150, 0.6, 2);
+            }
+            else {
+                young.reset(false, field, free[b], 15, 150, 0.6, 2);
+            }
             newZebras.add(young);
         }
     }